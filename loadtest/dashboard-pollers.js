@@ -0,0 +1,61 @@
+// Dashboard pollers: many tabs refreshing the dashboard of one tenant.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e EMAIL=a@b.c -e PASSWORD=secret123 \
+//          --summary-export=platform.json loadtest/dashboard-pollers.js
+//
+// See loadtest/README.md for the platform vs virtual thread comparison.
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '5000');
+const POLL_INTERVAL = parseFloat(__ENV.POLL_INTERVAL || '1');
+
+export const options = {
+    scenarios: {
+        pollers: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: __ENV.RAMP || '30s', target: VUS },
+                { duration: __ENV.HOLD || '2m', target: VUS },
+                { duration: '10s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{endpoint:stats}': ['p(99)<2000'],
+        'http_req_duration{endpoint:top-customers}': ['p(99)<2000'],
+        'http_req_duration{endpoint:orders-by-date}': ['p(99)<2000'],
+    },
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/api/auth/login`,
+        JSON.stringify({ email: __ENV.EMAIL, password: __ENV.PASSWORD }),
+        { headers: { 'Content-Type': 'application/json' } });
+    check(res, { 'logged in': (r) => r.status === 200 });
+    return { token: res.json('token') };
+}
+
+function isoDate(daysAgo) {
+    return new Date(Date.now() - daysAgo * 86400000).toISOString().slice(0, 10);
+}
+
+export default function (data) {
+    const params = (endpoint) => ({
+        headers: { Authorization: `Bearer ${data.token}` },
+        tags: { endpoint },
+    });
+    const responses = http.batch([
+        ['GET', `${BASE_URL}/api/dashboard/stats`, null, params('stats')],
+        ['GET', `${BASE_URL}/api/dashboard/top-customers?limit=5`, null, params('top-customers')],
+        ['GET', `${BASE_URL}/api/dashboard/orders-by-date?startDate=${isoDate(30)}&endDate=${isoDate(0)}`,
+            null, params('orders-by-date')],
+    ]);
+    responses.forEach((r) => check(r, { 'status 200': (res) => res.status === 200 }));
+    sleep(POLL_INTERVAL);
+}
@@ -0,0 +1,159 @@
+package com.xeno.analytics;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Dense cohort retention matrix for a single tenant.
+ * <p>
+ * Row {@code c} is the cohort of customers whose first order fell in month {@code baseMonth + c};
+ * column {@code k} counts how many of them ordered again in month offset {@code k}. Column 0 is
+ * therefore the cohort size. Each customer keeps a bitset of the offsets already counted, so
+ * recording the same (customer, month) twice is a no-op and orders may arrive in any order. A
+ * customer whose orders changed is re-entered with {@link #replace}.
+ * <p>
+ * Not thread-safe; callers hold {@link #lock()} around every access.
+ */
+public class CohortMatrix {
+
+    private static final int[] EMPTY_ROW = new int[0];
+
+    private int baseMonth = -1;
+    private int[][] rows = new int[0][];
+    private final Map<Long, CustomerActivity> customers = new HashMap<>();
+    // Not a monitor: it is held while the matrix is bootstrapped from the database, and a virtual
+    // thread blocking inside synchronized would pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ReentrantLock lock() {
+        return lock;
+    }
+
+    public static int toEpochMonth(LocalDateTime dateTime) {
+        return dateTime.getYear() * 12 + dateTime.getMonthValue() - 1;
+    }
+
+    public static int toEpochMonth(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    public static YearMonth fromEpochMonth(int epochMonth) {
+        return YearMonth.of(Math.floorDiv(epochMonth, 12), Math.floorMod(epochMonth, 12) + 1);
+    }
+
+    /**
+     * Record that a customer placed an order in the given epoch month.
+     */
+    public void record(long customerId, int epochMonth) {
+        CustomerActivity activity = customers.get(customerId);
+        if (activity == null) {
+            activity = new CustomerActivity(epochMonth);
+            activity.offsets.set(0);
+            customers.put(customerId, activity);
+            increment(epochMonth, 0, 1);
+            return;
+        }
+
+        if (epochMonth < activity.firstMonth) {
+            // An earlier order moves the customer into an older cohort: retract and re-add
+            adjust(activity, -1);
+            int shift = activity.firstMonth - epochMonth;
+            BitSet shifted = new BitSet();
+            for (int o = activity.offsets.nextSetBit(0); o >= 0; o = activity.offsets.nextSetBit(o + 1)) {
+                shifted.set(o + shift);
+            }
+            shifted.set(0);
+            activity.firstMonth = epochMonth;
+            activity.offsets = shifted;
+            adjust(activity, 1);
+            return;
+        }
+
+        int offset = epochMonth - activity.firstMonth;
+        if (!activity.offsets.get(offset)) {
+            activity.offsets.set(offset);
+            increment(activity.firstMonth, offset, 1);
+        }
+    }
+
+    /**
+     * Replace everything recorded for a customer with the given epoch months, e.g. after one of their
+     * orders moved to another customer or month. An empty array removes the customer.
+     */
+    public void replace(long customerId, int[] epochMonths) {
+        CustomerActivity activity = customers.remove(customerId);
+        if (activity != null) {
+            adjust(activity, -1);
+        }
+        int[] sorted = epochMonths.clone();
+        Arrays.sort(sorted);
+        for (int epochMonth : sorted) {
+            record(customerId, epochMonth);
+        }
+    }
+
+    public int getBaseMonth() {
+        return baseMonth;
+    }
+
+    public int getCohortCount() {
+        return rows.length;
+    }
+
+    /**
+     * Copy of the row for the cohort starting in {@code epochMonth}, or an empty array.
+     */
+    public int[] row(int epochMonth) {
+        int index = epochMonth - baseMonth;
+        if (baseMonth < 0 || index < 0 || index >= rows.length) {
+            return EMPTY_ROW;
+        }
+        return rows[index].clone();
+    }
+
+    private void adjust(CustomerActivity activity, int delta) {
+        for (int o = activity.offsets.nextSetBit(0); o >= 0; o = activity.offsets.nextSetBit(o + 1)) {
+            increment(activity.firstMonth, o, delta);
+        }
+    }
+
+    private void increment(int cohortMonth, int offset, int delta) {
+        if (baseMonth < 0) {
+            baseMonth = cohortMonth;
+            rows = new int[][]{EMPTY_ROW};
+        } else if (cohortMonth < baseMonth) {
+            int prepend = baseMonth - cohortMonth;
+            int[][] grown = new int[rows.length + prepend][];
+            Arrays.fill(grown, 0, prepend, EMPTY_ROW);
+            System.arraycopy(rows, 0, grown, prepend, rows.length);
+            rows = grown;
+            baseMonth = cohortMonth;
+        } else if (cohortMonth - baseMonth >= rows.length) {
+            int oldLength = rows.length;
+            rows = Arrays.copyOf(rows, cohortMonth - baseMonth + 1);
+            Arrays.fill(rows, oldLength, rows.length, EMPTY_ROW);
+        }
+
+        int index = cohortMonth - baseMonth;
+        int[] row = rows[index];
+        if (offset >= row.length) {
+            row = Arrays.copyOf(row, Math.max(offset + 1, row.length * 2));
+            rows[index] = row;
+        }
+        row[offset] += delta;
+    }
+
+    private static final class CustomerActivity {
+        private int firstMonth;
+        private BitSet offsets = new BitSet();
+
+        private CustomerActivity(int firstMonth) {
+            this.firstMonth = firstMonth;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.xeno.analytics;
+
+import com.xeno.util.LongLongHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented copy of a single tenant's orders.
+ * <p>
+ * Each order occupies one row across three primitive arrays: order date as epoch day, total in
+ * minor units and a dictionary-encoded financial status. Rows are appended from ingest and updated
+ * in place when an already-known order is re-synced, retracting the old values first.
+ * <p>
+ * Alongside the rows, per-status daily count and revenue buckets are maintained on every write, so
+ * range and group-by-day aggregations cost O(days in range) rather than O(orders).
+ */
+public class OrderColumns {
+
+    public static final int ANY_STATUS = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] epochDays = new int[1024];
+    private long[] totalCents = new long[1024];
+    private byte[] statusCodes = new byte[1024];
+    private int size;
+
+    private int bucketBase;
+    private int bucketDays;
+    private long[][] bucketCounts = new long[0][];
+    private long[][] bucketSums = new long[0][];
+
+    private final LongLongHashMap rowByOrderId = new LongLongHashMap(1024);
+    private final List<String> statusDictionary = new ArrayList<>(List.of(""));
+    private final Map<String, Byte> statusCodeByName = new HashMap<>(Map.of("", (byte) 0));
+
+    public ReentrantReadWriteLock.WriteLock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Insert or update the row for {@code orderId}. Callers must hold {@link #writeLock()}.
+     */
+    public void upsert(long orderId, int epochDay, long cents, String status) {
+        long existing = rowByOrderId.get(orderId);
+        int row;
+        if (existing == LongLongHashMap.MISSING) {
+            if (size == epochDays.length) {
+                grow();
+            }
+            row = size++;
+            rowByOrderId.put(orderId, row);
+        } else {
+            row = (int) existing;
+            addToBucket(statusCodes[row] & 0xFF, epochDays[row], -1, -totalCents[row]);
+        }
+        byte code = encodeStatus(status);
+        epochDays[row] = epochDay;
+        totalCents[row] = cents;
+        statusCodes[row] = code;
+        addToBucket(code & 0xFF, epochDay, 1, cents);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dictionary code for {@code status}, or {@link Integer#MIN_VALUE} (matches no row) if no row carries it.
+     */
+    public int statusCode(String status) {
+        lock.readLock().lock();
+        try {
+            Byte code = statusCodeByName.get(status == null ? "" : status);
+            return code != null ? code & 0xFF : Integer.MIN_VALUE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Order count and revenue for days in {@code [fromDay, toDay]}, optionally restricted to one status code.
+     */
+    public RangeAggregate sumRange(int fromDay, int toDay, int statusCode) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            long sum = 0;
+            int from = Math.max(fromDay, bucketBase) - bucketBase;
+            int to = (int) Math.min((long) toDay - bucketBase, bucketDays - 1L);
+            for (int code = 0; code < bucketCounts.length; code++) {
+                if (statusCode != ANY_STATUS && code != statusCode) {
+                    continue;
+                }
+                long[] counts = bucketCounts[code];
+                long[] sums = bucketSums[code];
+                for (int d = from; d <= to; d++) {
+                    count += counts[d];
+                    sum += sums[d];
+                }
+            }
+            return new RangeAggregate(count, sum);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Order count and revenue per day for {@code [fromDay, toDay]}; index 0 is {@code fromDay}. An
+     * inverted range yields no days.
+     */
+    public DailyAggregate groupByDay(int fromDay, int toDay) {
+        int days = Math.max(0, toDay - fromDay + 1);
+        long[] counts = new long[days];
+        long[] sums = new long[days];
+        lock.readLock().lock();
+        try {
+            int from = Math.max(fromDay, bucketBase);
+            int to = (int) Math.min(toDay, (long) bucketBase + bucketDays - 1);
+            for (int code = 0; code < bucketCounts.length; code++) {
+                long[] bucketCount = bucketCounts[code];
+                long[] bucketSum = bucketSums[code];
+                for (int day = from; day <= to; day++) {
+                    counts[day - fromDay] += bucketCount[day - bucketBase];
+                    sums[day - fromDay] += bucketSum[day - bucketBase];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new DailyAggregate(fromDay, counts, sums);
+    }
+
+    private byte encodeStatus(String status) {
+        String key = status == null ? "" : status;
+        Byte code = statusCodeByName.get(key);
+        if (code != null) {
+            return code;
+        }
+        if (statusDictionary.size() > 255) {
+            throw new IllegalStateException("Too many distinct order statuses for byte encoding");
+        }
+        byte next = (byte) statusDictionary.size();
+        statusDictionary.add(key);
+        statusCodeByName.put(key, next);
+        return next;
+    }
+
+    private void addToBucket(int code, int epochDay, long count, long cents) {
+        if (bucketDays == 0) {
+            bucketBase = epochDay;
+            bucketDays = 1;
+        } else if (epochDay < bucketBase) {
+            int shift = bucketBase - epochDay;
+            for (int c = 0; c < bucketCounts.length; c++) {
+                bucketCounts[c] = shifted(bucketCounts[c], shift, bucketDays + shift);
+                bucketSums[c] = shifted(bucketSums[c], shift, bucketDays + shift);
+            }
+            bucketBase = epochDay;
+            bucketDays += shift;
+        } else if (epochDay - bucketBase >= bucketDays) {
+            bucketDays = epochDay - bucketBase + 1;
+        }
+        if (code >= bucketCounts.length) {
+            int oldLength = bucketCounts.length;
+            bucketCounts = Arrays.copyOf(bucketCounts, code + 1);
+            bucketSums = Arrays.copyOf(bucketSums, code + 1);
+            for (int c = oldLength; c <= code; c++) {
+                bucketCounts[c] = new long[0];
+                bucketSums[c] = new long[0];
+            }
+        }
+        for (int c = 0; c < bucketCounts.length; c++) {
+            if (bucketCounts[c].length < bucketDays) {
+                int capacity = Math.max(bucketDays, bucketCounts[c].length * 2);
+                bucketCounts[c] = Arrays.copyOf(bucketCounts[c], capacity);
+                bucketSums[c] = Arrays.copyOf(bucketSums[c], capacity);
+            }
+        }
+        int index = epochDay - bucketBase;
+        bucketCounts[code][index] += count;
+        bucketSums[code][index] += cents;
+    }
+
+    private static long[] shifted(long[] values, int shift, int minLength) {
+        long[] result = new long[Math.max(minLength, values.length + shift)];
+        System.arraycopy(values, 0, result, shift, values.length);
+        return result;
+    }
+
+    private void grow() {
+        int capacity = epochDays.length << 1;
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        totalCents = Arrays.copyOf(totalCents, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+    }
+
+    public record RangeAggregate(long count, long sumCents) {
+    }
+
+    public record DailyAggregate(int fromDay, long[] counts, long[] sumCents) {
+    }
+}
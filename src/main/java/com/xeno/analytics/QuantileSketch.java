@@ -0,0 +1,153 @@
+package com.xeno.analytics;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch over non-negative long values (order totals in minor units).
+ * <p>
+ * Values are counted in logarithmic buckets whose width is bounded by a 1% relative error, so any
+ * quantile is returned within 1% of a true sample value. Merging two sketches adds their bucket
+ * counts, which makes the result independent of merge order and exact across daily partitions.
+ */
+public class QuantileSketch {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private long zeroCount;
+    private int minIndex;
+    private long[] counts = new long[0];
+
+    public void add(long value) {
+        if (value <= 0) {
+            zeroCount++;
+            return;
+        }
+        addToBucket(bucketIndex(value), 1);
+    }
+
+    public void merge(QuantileSketch other) {
+        zeroCount += other.zeroCount;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                addToBucket(other.minIndex + i, other.counts[i]);
+            }
+        }
+    }
+
+    public long count() {
+        long total = zeroCount;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Estimated value at quantile {@code q} in [0, 1], or 0 for an empty sketch.
+     */
+    public long quantile(double q) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.floor(Math.max(0.0, Math.min(1.0, q)) * (total - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return bucketValue(minIndex + i);
+            }
+        }
+        return bucketValue(minIndex + counts.length - 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + counts.length * 2);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, zeroCount);
+        writeVarLong(out, zigZag(minIndex));
+        writeVarLong(out, counts.length);
+        for (long c : counts) {
+            writeVarLong(out, c);
+        }
+        return out.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch sketch = new QuantileSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.get() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported quantile sketch encoding");
+        }
+        sketch.zeroCount = readVarLong(in);
+        sketch.minIndex = (int) unZigZag(readVarLong(in));
+        sketch.counts = new long[(int) readVarLong(in)];
+        for (int i = 0; i < sketch.counts.length; i++) {
+            sketch.counts[i] = readVarLong(in);
+        }
+        return sketch;
+    }
+
+    private void addToBucket(int index, long n) {
+        if (counts.length == 0) {
+            minIndex = index;
+            counts = new long[1];
+        } else if (index < minIndex) {
+            long[] grown = new long[counts.length + (minIndex - index)];
+            System.arraycopy(counts, 0, grown, minIndex - index, counts.length);
+            counts = grown;
+            minIndex = index;
+        } else if (index >= minIndex + counts.length) {
+            counts = Arrays.copyOf(counts, index - minIndex + 1);
+        }
+        counts[index - minIndex] += n;
+    }
+
+    private static int bucketIndex(long value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static long bucketValue(int index) {
+        // Midpoint of (gamma^(i-1), gamma^i] in the relative-error sense
+        return Math.round(2 * Math.pow(GAMMA, index) / (GAMMA + 1));
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+}
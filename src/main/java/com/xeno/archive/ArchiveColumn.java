@@ -0,0 +1,22 @@
+package com.xeno.archive;
+
+/**
+ * One column of a columnar archive file. Money is stored as minor units and timestamps as epoch
+ * milliseconds, so every numeric column is a {@link Type#LONG}.
+ */
+public record ArchiveColumn(String name, Type type) {
+
+    public enum Type { LONG, BOOLEAN, STRING }
+
+    public static ArchiveColumn longColumn(String name) {
+        return new ArchiveColumn(name, Type.LONG);
+    }
+
+    public static ArchiveColumn booleanColumn(String name) {
+        return new ArchiveColumn(name, Type.BOOLEAN);
+    }
+
+    public static ArchiveColumn stringColumn(String name) {
+        return new ArchiveColumn(name, Type.STRING);
+    }
+}
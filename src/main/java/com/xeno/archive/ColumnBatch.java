@@ -0,0 +1,53 @@
+package com.xeno.archive;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One row group's worth of the columns requested from {@link ColumnarArchiveReader#scan}, as
+ * primitive arrays indexed by row. A null cell reads as 0, false or null; check {@link #isNull}.
+ */
+public final class ColumnBatch {
+
+    private final int size;
+    private final Map<String, BitSet> present = new HashMap<>();
+    private final Map<String, Object> values = new HashMap<>();
+
+    ColumnBatch(int size) {
+        this.size = size;
+    }
+
+    void put(String column, BitSet presentRows, Object columnValues) {
+        present.put(column, presentRows);
+        values.put(column, columnValues);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(String column, int row) {
+        return !column(present, column).get(row);
+    }
+
+    public long[] longs(String column) {
+        return (long[]) column(values, column);
+    }
+
+    public boolean[] booleans(String column) {
+        return (boolean[]) column(values, column);
+    }
+
+    public String[] strings(String column) {
+        return (String[]) column(values, column);
+    }
+
+    private static <T> T column(Map<String, T> columns, String column) {
+        T value = columns.get(column);
+        if (value == null) {
+            throw new IllegalArgumentException("Column was not read: " + column);
+        }
+        return value;
+    }
+}
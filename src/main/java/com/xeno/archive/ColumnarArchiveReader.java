@@ -0,0 +1,246 @@
+package com.xeno.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads files written by {@link ColumnarArchiveWriter}.
+ * <p>
+ * Opening a file reads only its footer. {@link #scan} then walks the row groups and, for each one,
+ * reads and inflates just the requested columns; the other columns' bytes are never touched. Row
+ * counts come from the footer alone.
+ */
+public class ColumnarArchiveReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<ArchiveColumn> columns;
+    private final Map<String, Integer> indexByName = new HashMap<>();
+    private final List<ColumnarArchiveWriter.RowGroup> rowGroups;
+
+    private ColumnarArchiveReader(FileChannel channel, List<ArchiveColumn> columns,
+                                  List<ColumnarArchiveWriter.RowGroup> rowGroups) {
+        this.channel = channel;
+        this.columns = columns;
+        this.rowGroups = rowGroups;
+        for (int c = 0; c < columns.size(); c++) {
+            indexByName.put(columns.get(c).name(), c);
+        }
+    }
+
+    public static ColumnarArchiveReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int magicLength = ColumnarArchiveWriter.MAGIC.length;
+            if (size < 2L * magicLength + Integer.BYTES) {
+                throw new IOException("Not an archive file: " + path);
+            }
+            ByteBuffer tail = read(channel, size - Integer.BYTES - magicLength, Integer.BYTES + magicLength);
+            int footerLength = tail.getInt();
+            byte[] magic = new byte[magicLength];
+            tail.get(magic);
+            if (!Arrays.equals(magic, ColumnarArchiveWriter.MAGIC)
+                    || footerLength <= 0 || footerLength > size - 2L * magicLength - Integer.BYTES) {
+                throw new IOException("Not an archive file: " + path);
+            }
+            ByteBuffer footerBytes = read(channel, size - Integer.BYTES - magicLength - footerLength, footerLength);
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes.array()));
+
+            int version = footer.readInt();
+            if (version != ColumnarArchiveWriter.VERSION) {
+                throw new IOException("Unsupported archive version " + version + ": " + path);
+            }
+            int columnCount = footer.readInt();
+            List<ArchiveColumn> columns = new ArrayList<>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                String name = footer.readUTF();
+                columns.add(new ArchiveColumn(name, ArchiveColumn.Type.values()[footer.readByte()]));
+            }
+            int groupCount = footer.readInt();
+            List<ColumnarArchiveWriter.RowGroup> rowGroups = new ArrayList<>(groupCount);
+            for (int g = 0; g < groupCount; g++) {
+                int rows = footer.readInt();
+                long[] offsets = new long[columnCount];
+                int[] compressedLengths = new int[columnCount];
+                int[] rawLengths = new int[columnCount];
+                for (int c = 0; c < columnCount; c++) {
+                    offsets[c] = footer.readLong();
+                    compressedLengths[c] = footer.readInt();
+                    rawLengths[c] = footer.readInt();
+                }
+                rowGroups.add(new ColumnarArchiveWriter.RowGroup(rows, offsets, compressedLengths, rawLengths));
+            }
+            return new ColumnarArchiveReader(channel, List.copyOf(columns), rowGroups);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public List<ArchiveColumn> columns() {
+        return columns;
+    }
+
+    public long rowCount() {
+        long rows = 0;
+        for (ColumnarArchiveWriter.RowGroup group : rowGroups) {
+            rows += group.rows();
+        }
+        return rows;
+    }
+
+    /**
+     * Hands {@code consumer} one {@link ColumnBatch} per row group, holding only {@code columnNames}.
+     */
+    public void scan(Collection<String> columnNames, Consumer<ColumnBatch> consumer) throws IOException {
+        int[] selected = new int[columnNames.size()];
+        int i = 0;
+        for (String name : columnNames) {
+            Integer index = indexByName.get(name);
+            if (index == null) {
+                throw new IllegalArgumentException("Unknown archive column: " + name);
+            }
+            selected[i++] = index;
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            for (ColumnarArchiveWriter.RowGroup group : rowGroups) {
+                ColumnBatch batch = new ColumnBatch(group.rows());
+                for (int c : selected) {
+                    ByteBuffer compressed = read(channel, group.offsets()[c], group.compressedLengths()[c]);
+                    byte[] raw = inflate(inflater, compressed.array(), group.rawLengths()[c]);
+                    decode(columns.get(c), raw, batch);
+                }
+                consumer.accept(batch);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void decode(ArchiveColumn column, byte[] raw, ColumnBatch batch) throws IOException {
+        Cursor in = new Cursor(raw);
+        int rows = batch.size();
+        BitSet present = BitSet.valueOf(in.readBytes());
+        switch (column.type()) {
+            case LONG -> {
+                long[] values = new long[rows];
+                long previous = 0;
+                for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                    long delta = in.readVarLong();
+                    previous += (delta >>> 1) ^ -(delta & 1);
+                    values[i] = previous;
+                }
+                batch.put(column.name(), present, values);
+            }
+            case BOOLEAN -> {
+                BitSet bits = BitSet.valueOf(in.readBytes());
+                boolean[] values = new boolean[rows];
+                for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                    values[i] = true;
+                }
+                batch.put(column.name(), present, values);
+            }
+            case STRING -> {
+                String[] dictionary = new String[Math.toIntExact(in.readVarLong())];
+                for (int d = 0; d < dictionary.length; d++) {
+                    dictionary[d] = new String(in.readBytes(), StandardCharsets.UTF_8);
+                }
+                String[] values = new String[rows];
+                for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                    values[i] = dictionary[Math.toIntExact(in.readVarLong())];
+                }
+                batch.put(column.name(), present, values);
+            }
+        }
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] compressed, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] raw = new byte[rawLength];
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                n += inflater.inflate(raw, n, rawLength - n);
+                if (inflater.needsInput()) {
+                    break;
+                }
+            }
+            if (n != rawLength) {
+                throw new IOException("Corrupt archive chunk");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive chunk", e);
+        }
+        return raw;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IOException("Corrupt archive chunk");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt archive chunk");
+        }
+
+        byte[] readBytes() throws IOException {
+            int length = Math.toIntExact(readVarLong());
+            if (length > bytes.length - position) {
+                throw new IOException("Corrupt archive chunk");
+            }
+            byte[] out = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return out;
+        }
+    }
+}
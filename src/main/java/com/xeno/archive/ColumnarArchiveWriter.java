@@ -0,0 +1,239 @@
+package com.xeno.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes rows into a compact columnar file, read back by {@link ColumnarArchiveReader}.
+ * <p>
+ * Rows are buffered into row groups. Each column of a row group is encoded on its own (longs as
+ * zigzag varint deltas, booleans as a bitmap, strings dictionary-encoded), prefixed with a bitmap of
+ * its non-null rows and Deflate-compressed into one chunk. The footer records the schema and where
+ * every chunk sits, so a reader only fetches and inflates the columns it asks for.
+ * <p>
+ * Layout: {@code "XCA1" chunk* footer footerLength:int "XCA1"}. Not thread-safe.
+ */
+public class ColumnarArchiveWriter implements Closeable {
+
+    static final byte[] MAGIC = {'X', 'C', 'A', '1'};
+    static final int VERSION = 1;
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 65_536;
+
+    private final List<ArchiveColumn> columns;
+    private final int rowGroupSize;
+    private final Deflater deflater;
+    private final OutputStream out;
+    private long position;
+
+    private final Object[][] buffer;
+    private int buffered;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private boolean closed;
+
+    record RowGroup(int rows, long[] offsets, int[] compressedLengths, int[] rawLengths) {}
+
+    public ColumnarArchiveWriter(Path path, List<ArchiveColumn> columns) throws IOException {
+        this(Files.newOutputStream(path), columns, DEFAULT_ROW_GROUP_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ColumnarArchiveWriter(OutputStream out, List<ArchiveColumn> columns, int rowGroupSize,
+                                 int compressionLevel) throws IOException {
+        if (columns.isEmpty() || rowGroupSize <= 0) {
+            throw new IllegalArgumentException("An archive needs at least one column and a positive row group size");
+        }
+        this.columns = List.copyOf(columns);
+        this.rowGroupSize = rowGroupSize;
+        this.deflater = new Deflater(compressionLevel);
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.buffer = new Object[columns.size()][rowGroupSize];
+        write(MAGIC);
+    }
+
+    /**
+     * Appends one row. {@code values} follow the schema order: {@link Long} for LONG, {@link Boolean}
+     * for BOOLEAN, {@link String} for STRING columns, or null.
+     */
+    public void addRow(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values, got " + values.length);
+        }
+        for (int c = 0; c < values.length; c++) {
+            buffer[c][buffered] = values[c];
+        }
+        if (++buffered == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    public long rowCount() {
+        long rows = buffered;
+        for (RowGroup group : rowGroups) {
+            rows += group.rows();
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (buffered > 0) {
+                flushRowGroup();
+            }
+            byte[] footer = footer();
+            write(footer);
+            DataOutputStream tail = new DataOutputStream(out);
+            tail.writeInt(footer.length);
+            tail.write(MAGIC);
+            tail.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        long[] offsets = new long[columns.size()];
+        int[] compressedLengths = new int[columns.size()];
+        int[] rawLengths = new int[columns.size()];
+        for (int c = 0; c < columns.size(); c++) {
+            byte[] raw = encode(columns.get(c).type(), buffer[c], buffered);
+            byte[] compressed = compress(raw);
+            offsets[c] = position;
+            compressedLengths[c] = compressed.length;
+            rawLengths[c] = raw.length;
+            write(compressed);
+            Arrays.fill(buffer[c], 0, buffered, null);
+        }
+        rowGroups.add(new RowGroup(buffered, offsets, compressedLengths, rawLengths));
+        buffered = 0;
+    }
+
+    private static byte[] encode(ArchiveColumn.Type type, Object[] values, int rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows * 2 + 16);
+        BitSet present = new BitSet(rows);
+        for (int i = 0; i < rows; i++) {
+            if (values[i] != null) {
+                present.set(i);
+            }
+        }
+        writeBytes(bytes, present.toByteArray());
+
+        switch (type) {
+            case LONG -> {
+                long previous = 0;
+                for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                    long value = (Long) values[i];
+                    writeVarLong(bytes, zigzag(value - previous));
+                    previous = value;
+                }
+            }
+            case BOOLEAN -> {
+                BitSet bits = new BitSet(rows);
+                for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                    if ((Boolean) values[i]) {
+                        bits.set(i);
+                    }
+                }
+                writeBytes(bytes, bits.toByteArray());
+            }
+            case STRING -> {
+                // Dictionary first, then one code per non-null row
+                Map<String, Integer> dictionary = new HashMap<>();
+                List<String> entries = new ArrayList<>();
+                ByteArrayOutputStream codes = new ByteArrayOutputStream(rows);
+                for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                    String value = (String) values[i];
+                    Integer code = dictionary.get(value);
+                    if (code == null) {
+                        code = entries.size();
+                        dictionary.put(value, code);
+                        entries.add(value);
+                    }
+                    writeVarLong(codes, code);
+                }
+                writeVarLong(bytes, entries.size());
+                for (String entry : entries) {
+                    writeBytes(bytes, entry.getBytes(StandardCharsets.UTF_8));
+                }
+                bytes.writeBytes(codes.toByteArray());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] compress(byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+        return compressed.toByteArray();
+    }
+
+    private byte[] footer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(bytes);
+        footer.writeInt(VERSION);
+        footer.writeInt(columns.size());
+        for (ArchiveColumn column : columns) {
+            footer.writeUTF(column.name());
+            footer.writeByte(column.type().ordinal());
+        }
+        footer.writeInt(rowGroups.size());
+        for (RowGroup group : rowGroups) {
+            footer.writeInt(group.rows());
+            for (int c = 0; c < columns.size(); c++) {
+                footer.writeLong(group.offsets()[c]);
+                footer.writeInt(group.compressedLengths()[c]);
+                footer.writeInt(group.rawLengths()[c]);
+            }
+        }
+        footer.flush();
+        return bytes.toByteArray();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+}
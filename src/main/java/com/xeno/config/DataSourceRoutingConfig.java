@@ -0,0 +1,170 @@
+package com.xeno.config;
+
+import com.xeno.shard.ShardDirectory;
+import com.xeno.shard.ShardNode;
+import com.xeno.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the single auto-configured pool once a read replica ({@code datasource.replica.url}) or
+ * sharding ({@code sharding.enabled}) is configured.
+ * <p>
+ * Everything that injects a {@link DataSource} (JPA, JdbcTemplate) gets one lazy proxy over the
+ * routing layers: {@link ShardRoutingDataSource} picks the tenant's shard, and on the default shard
+ * {@link ReplicaRoutingDataSource} sends {@code @Transactional(readOnly = true)} work to the replica.
+ * Schema migrations bypass the routing and run against the primary and each extra shard directly.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnExpression("'${datasource.replica.url:}' != '' or '${sharding.enabled:false}' == 'true'")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${datasource.replica.lag-query:" + ReplicaLagMonitor.POSTGRES_LAG_QUERY + "}") String lagQuery,
+                                               @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        return new ReplicaLagMonitor(replica, lagQuery, maxLagMillis, meterRegistry);
+    }
+
+    /**
+     * One pool per extra shard, closed with the context. Empty unless sharding is enabled.
+     */
+    @Bean
+    public ShardPools shardPools(ShardDirectory shardDirectory, DataSourceProperties properties,
+                                 @Value("${sharding.pool-size:10}") int poolSize) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        shardDirectory.nodes().forEach((id, node) -> pools.put(id, shardPool(id, node, properties, poolSize)));
+        return new ShardPools(pools);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+                                 ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                                 ShardDirectory shardDirectory,
+                                 ShardPools shardPools,
+                                 MeterRegistry meterRegistry) {
+        DataSource defaultShard = primary;
+        if (replicaLagMonitor.getIfAvailable() != null) {
+            ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica.getObject(),
+                    replicaLagMonitor.getObject(), meterRegistry);
+            routing.afterPropertiesSet();
+            defaultShard = routing;
+        }
+        DataSource routed = defaultShard;
+        if (shardDirectory.isEnabled()) {
+            ShardRoutingDataSource sharding = new ShardRoutingDataSource(defaultShard, shardPools.pools(), shardDirectory);
+            sharding.afterPropertiesSet();
+            routed = sharding;
+        }
+        // Connection defaults (auto-commit, isolation) are read from the default shard's primary
+        return new LazyConnectionDataSourceProxy(routed);
+    }
+
+    /**
+     * Migrates the default shard, then every extra shard with the same configuration, before the
+     * entity model is validated. A shard that fails to migrate stops the startup.
+     */
+    @Bean
+    public FlywayMigrationStrategy migrateEveryShard(ShardPools shardPools) {
+        return flyway -> {
+            flyway.migrate();
+            shardPools.pools().forEach((id, pool) -> {
+                log.info("Migrating shard {}", id);
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(pool).load().migrate();
+            });
+        };
+    }
+
+    /**
+     * Hibernate normally keeps a session's connection until the session closes, and open-in-view
+     * sessions span several transactions. A connection picked for a read-only transaction, or for
+     * another tenant's shard, could then serve the request's next unit of work, so it is handed back
+     * after every transaction instead.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private static HikariDataSource shardPool(String id, ShardNode node, DataSourceProperties properties, int poolSize) {
+        if (node.url() == null) {
+            throw new IllegalArgumentException("sharding.shards." + id + ".url is required");
+        }
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(node.url())
+                .username(node.username() != null ? node.username() : properties.determineUsername())
+                .password(node.password() != null ? node.password() : properties.determinePassword())
+                .build();
+        dataSource.setPoolName("shard-" + id);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return dataSource;
+    }
+
+    public record ShardPools(Map<String, HikariDataSource> pools) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            pools.values().forEach(HikariDataSource::close);
+        }
+    }
+}
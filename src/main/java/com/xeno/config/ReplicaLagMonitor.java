@@ -0,0 +1,98 @@
+package com.xeno.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Polls the read replica's replication lag and decides whether {@link ReplicaRoutingDataSource}
+ * may send reads to it. The replica starts out unusable until its first check passes, and drops
+ * back to unusable when the lag reaches {@code maxLagMillis} or the check query fails.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /**
+     * Milliseconds since the last replayed transaction, or 0 when the standby has replayed
+     * everything it received (an idle primary would otherwise look ever more lagged) or when the
+     * server is not a standby at all.
+     */
+    public static final String POSTGRES_LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagMillis;
+
+    private volatile boolean usable;
+    private volatile boolean checked;
+    private volatile double lastLagMillis = Double.NaN;
+    private volatile long caughtUpAt;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagMillis, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLagMillis;
+        meterRegistry.gauge("datasource.replica.lag", this, monitor -> monitor.lastLagMillis);
+        meterRegistry.gauge("datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    /**
+     * Whether a check that started at or after {@code epochMillis} found the replica with nothing
+     * left to replay, i.e. whether a commit made on the primary by then is visible on the replica.
+     */
+    public boolean hasCaughtUpSince(long epochMillis) {
+        return caughtUpAt >= epochMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.check-interval-ms:1000}")
+    public void check() {
+        long started = System.currentTimeMillis();
+        double lag;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(5);
+            try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                rs.next();
+                lag = rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            markUnavailable(e);
+            return;
+        }
+        lastLagMillis = lag;
+        if (lag == 0) {
+            caughtUpAt = started;
+        }
+        boolean nowUsable = lag < maxLagMillis;
+        if (nowUsable != usable || !checked) {
+            if (nowUsable) {
+                log.info("Read replica caught up ({} ms behind), routing read-only work to it", (long) lag);
+            } else {
+                log.warn("Read replica is {} ms behind (limit {} ms), routing reads to the primary", (long) lag, maxLagMillis);
+            }
+            usable = nowUsable;
+        }
+        checked = true;
+    }
+
+    void markUnavailable(SQLException cause) {
+        lastLagMillis = Double.NaN;
+        if (usable || !checked) {
+            log.warn("Read replica unavailable, routing reads to the primary until it recovers: {}", cause.getMessage());
+            usable = false;
+        }
+        checked = true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.xeno.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.xeno.model.Product;
+import com.xeno.model.Tenant;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regions of Hibernate's second-level cache, held in Caffeine through JCache.
+ * <p>
+ * Every region is bounded and expires after write, and Hibernate refuses to start with a region that
+ * is not declared here ({@code hibernate.javax.cache.missing_cache_strategy=fail}). The cache is local
+ * to each instance: writes through Hibernate update it at commit, while another instance's writes
+ * become visible once the entry expires, the same staleness the tenant lookups already accept.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String TENANT_REGION = Tenant.class.getName();
+    public static final String PRODUCT_REGION = Product.class.getName();
+    public static final String PRODUCT_NATURAL_ID_REGION = PRODUCT_REGION + "##NaturalId";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${cache.tenant.ttl-ms:60000}") long tenantTtlMillis,
+                                               @Value("${cache.tenant.max-entries:10000}") long tenantMaxEntries,
+                                               @Value("${cache.product.ttl-ms:300000}") long productTtlMillis,
+                                               @Value("${cache.product.max-entries:50000}") long productMaxEntries,
+                                               @Value("${cache.query.ttl-ms:60000}") long queryTtlMillis,
+                                               @Value("${cache.query.max-entries:10000}") long queryMaxEntries) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A manager of our own, so a restarted context does not find the old regions in the JVM-wide default
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("second-level-cache-" + System.identityHashCode(this)), getClass().getClassLoader());
+        cacheManager.createCache(TENANT_REGION, region(tenantTtlMillis, tenantMaxEntries));
+        cacheManager.createCache(PRODUCT_REGION, region(productTtlMillis, productMaxEntries));
+        cacheManager.createCache(PRODUCT_NATURAL_ID_REGION, region(productTtlMillis, productMaxEntries));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queryTtlMillis, queryMaxEntries));
+        // One entry per table, and it must outlive every cached query result: an evicted timestamp
+        // would make results cached before the table's last write look current
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long ttlMillis, long maxEntries) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        return configuration;
+    }
+}
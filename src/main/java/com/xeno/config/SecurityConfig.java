@@ -60,7 +60,7 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/signup", "/api/auth/login", "/api/auth/health", 
-                        "/api/health", "/api/webhooks/**",
+                        "/api/health", "/api/webhooks/**", "/actuator/health",
                         "/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**", 
                         "/swagger-resources/**", "/webjars/**", "/error").permitAll()
                 .anyRequest().authenticated()
@@ -84,6 +84,7 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of("ETag"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
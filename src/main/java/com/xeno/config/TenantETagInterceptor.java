@@ -0,0 +1,86 @@
+package com.xeno.config;
+
+import com.xeno.service.CustomUserDetailsService;
+import com.xeno.service.TenantDataVersionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Conditional GETs for tenant read endpoints.
+ * <p>
+ * The ETag is computed from the tenant's data version before the handler runs, so a matching
+ * {@code If-None-Match} is answered with 304 without a single query. The tenant id comes from the
+ * cached email lookup shared with the JWT filter. Other successful requests on the same paths
+ * (rebuilds and the like) bump the version when they complete.
+ * <p>
+ * With a read replica configured, the version is bumped at primary commit but the response may be
+ * built from the replica. Until a lag check started after the tenant's last change has found the
+ * replica fully replayed, requests get no tag and are never answered with 304, so a stale response
+ * is never tagged with the new version.
+ */
+@Component
+@RequiredArgsConstructor
+public class TenantETagInterceptor implements HandlerInterceptor {
+
+    private final TenantDataVersionService dataVersionService;
+    private final CustomUserDetailsService userDetailsService;
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isRead(request)) {
+            return true;
+        }
+        String tenantId = currentTenantId();
+        if (tenantId == null) {
+            return true;
+        }
+        String resource = request.getQueryString() != null
+                ? request.getRequestURI() + "?" + request.getQueryString()
+                : request.getRequestURI();
+        String etag = dataVersionService.etag(tenantId, resource);
+        // Read after the tag, so the time checked covers every change counted in its version
+        long changedAt = dataVersionService.changedAt(tenantId);
+        // Browsers revalidate every time; shared caches never store tenant data
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+        if (monitor != null && !monitor.hasCaughtUpSince(changedAt)) {
+            return true;
+        }
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (isRead(request) || ex != null || response.getStatus() >= 400) {
+            return;
+        }
+        String tenantId = currentTenantId();
+        if (tenantId != null) {
+            dataVersionService.bump(tenantId);
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+
+    private String currentTenantId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return userDetailsService.tenantIdFor(authentication.getName());
+    }
+}
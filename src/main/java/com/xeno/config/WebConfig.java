@@ -0,0 +1,55 @@
+package com.xeno.config;
+
+import com.xeno.shard.TenantContext;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers open-in-view for the API, minus paths that must not hold a pooled connection for the
+ * whole request.
+ * <p>
+ * An open-in-view EntityManager keeps the connection from its first query until the request ends.
+ * Webhook requests wait on the batch writer, which needs a connection of its own, so a burst of
+ * them could take the whole pool and stall the writer until every request timed out. A live
+ * dashboard stream lasts for minutes, so it would pin its connection for just as long.
+ * <p>
+ * Dashboard, product and customer reads also get tenant-versioned ETags, see {@link TenantETagInterceptor}.
+ * Webhook requests set their tenant's {@link TenantContext} after the JWT filter has run, so it is
+ * cleared here once the request completes.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final TenantETagInterceptor tenantETagInterceptor;
+
+    public WebConfig(EntityManagerFactory entityManagerFactory, TenantETagInterceptor tenantETagInterceptor) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.tenantETagInterceptor = tenantETagInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+        openInView.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(openInView)
+                .excludePathPatterns("/api/webhooks/**", "/api/dashboard/live");
+        // Registered after open-in-view, but a 304 returns before any query is issued
+        registry.addInterceptor(tenantETagInterceptor)
+                .addPathPatterns("/api/dashboard/**", "/api/products/**", "/api/customers/**")
+                .excludePathPatterns("/api/dashboard/live", "/api/dashboard/archive");
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                        Object handler, Exception ex) {
+                TenantContext.clear();
+            }
+        }).addPathPatterns("/api/webhooks/**");
+    }
+}
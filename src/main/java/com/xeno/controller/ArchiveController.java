@@ -0,0 +1,41 @@
+package com.xeno.controller;
+
+import com.xeno.dto.ArchiveSummaryDTO;
+import com.xeno.service.AuthService;
+import com.xeno.service.EventArchiveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/api/dashboard/archive")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class ArchiveController {
+
+    private static final int MAX_RANGE_MONTHS = 120;
+
+    private final EventArchiveService eventArchiveService;
+    private final AuthService authService;
+
+    @GetMapping
+    public ResponseEntity<ArchiveSummaryDTO> getArchiveSummary(
+            @RequestParam(defaultValue = "orders") String dataset,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        EventArchiveService.Dataset source = EventArchiveService.Dataset.parse(dataset);
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(11);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (start.plusMonths(MAX_RANGE_MONTHS).isBefore(end)) {
+            throw new IllegalArgumentException("Range must not exceed 120 months");
+        }
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok(eventArchiveService.summarize(tenantId, source, start, end));
+    }
+}
@@ -0,0 +1,31 @@
+package com.xeno.controller;
+
+import com.xeno.dto.CohortRetentionDTO;
+import com.xeno.model.Tenant;
+import com.xeno.service.AuthService;
+import com.xeno.service.CohortService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/dashboard/cohorts")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class CohortController {
+
+    private final CohortService cohortService;
+    private final AuthService authService;
+
+    @GetMapping
+    public ResponseEntity<List<CohortRetentionDTO>> getCohortRetention(
+            @RequestParam(defaultValue = "12") int months) {
+        if (months < 1 || months > 120) {
+            throw new IllegalArgumentException("months must be between 1 and 120");
+        }
+        Tenant tenant = authService.getCurrentTenant();
+        return ResponseEntity.ok(cohortService.getCohortRetention(tenant, months));
+    }
+}
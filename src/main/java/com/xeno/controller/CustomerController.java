@@ -1,5 +1,6 @@
 package com.xeno.controller;
 
+import com.xeno.dto.CustomerDTO;
 import com.xeno.model.Customer;
 import com.xeno.model.Tenant;
 import com.xeno.repository.CustomerRepository;
@@ -79,16 +80,16 @@ public class CustomerController {
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Customer> customerPage;
+        Page<CustomerDTO> customerPage;
 
         // Apply filters based on segment and search
         if (search != null && !search.trim().isEmpty()) {
             String searchTerm = "%" + search.toLowerCase() + "%";
-            customerPage = customerRepository.searchCustomers(searchTerm, tenant, pageable);
+            customerPage = customerRepository.searchCustomerViews(searchTerm, tenant.getId(), pageable);
         } else if (segment != null && !segment.isEmpty()) {
             customerPage = getCustomersBySegment(segment, tenant, pageable);
         } else {
-            customerPage = customerRepository.findByTenant(tenant, pageable);
+            customerPage = customerRepository.findViewsByTenant(tenant.getId(), pageable);
         }
 
         Map<String, Object> response = new HashMap<>();
@@ -141,12 +142,12 @@ public class CustomerController {
      * Get single customer details
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Customer> getCustomer(
+    public ResponseEntity<CustomerDTO> getCustomer(
             @PathVariable Long id) {
 
         Tenant tenant = authService.getCurrentTenant();
 
-        Customer customer = customerRepository.findByIdAndTenant(id, tenant)
+        CustomerDTO customer = customerRepository.findViewByIdAndTenant(id, tenant.getId())
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
 
         return ResponseEntity.ok(customer);
@@ -210,15 +211,15 @@ public class CustomerController {
     /**
      * Helper method to get customers by segment
      */
-    private Page<Customer> getCustomersBySegment(String segment, Tenant tenant, Pageable pageable) {
+    private Page<CustomerDTO> getCustomersBySegment(String segment, Tenant tenant, Pageable pageable) {
         return switch (segment.toLowerCase()) {
-            case "high" -> customerRepository.findByTenantAndTotalSpentGreaterThan(
-                    tenant, new BigDecimal("5000"), pageable);
-            case "medium" -> customerRepository.findByTenantAndTotalSpentBetween(
-                    tenant, new BigDecimal("1000"), new BigDecimal("5000"), pageable);
-            case "low" -> customerRepository.findByTenantAndTotalSpentLessThan(
-                    tenant, new BigDecimal("1000"), pageable);
-            default -> customerRepository.findByTenant(tenant, pageable);
+            case "high" -> customerRepository.findViewsByTenantAndTotalSpentGreaterThan(
+                    tenant.getId(), new BigDecimal("5000"), pageable);
+            case "medium" -> customerRepository.findViewsByTenantAndTotalSpentBetween(
+                    tenant.getId(), new BigDecimal("1000"), new BigDecimal("5000"), pageable);
+            case "low" -> customerRepository.findViewsByTenantAndTotalSpentLessThan(
+                    tenant.getId(), new BigDecimal("1000"), pageable);
+            default -> customerRepository.findViewsByTenant(tenant.getId(), pageable);
         };
     }
 
@@ -1,15 +1,24 @@
 package com.xeno.controller;
 
+import com.xeno.dto.DashboardOverviewDTO;
 import com.xeno.dto.DashboardStats;
 import com.xeno.dto.OrderStatsDTO;
 import com.xeno.dto.TopCustomerDTO;
 import com.xeno.model.Tenant;
 import com.xeno.service.AuthService;
+import com.xeno.service.DashboardOverviewService;
 import com.xeno.service.DashboardService;
+import com.xeno.service.LiveDashboardService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -20,13 +29,29 @@ import java.util.List;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class DashboardController {
 
+    // Sketch KPIs merge one stored row per day in the range
+    private static final int MAX_STATS_RANGE_DAYS = 731;
+
     private final DashboardService dashboardService;
+    private final DashboardOverviewService dashboardOverviewService;
+    private final LiveDashboardService liveDashboardService;
     private final AuthService authService;
 
     @GetMapping("/stats")
-    public ResponseEntity<DashboardStats> getDashboardStats() {
+    public ResponseEntity<DashboardStats> getDashboardStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         Tenant tenant = authService.getCurrentTenant();
-        return ResponseEntity.ok(dashboardService.getDashboardStats(tenant));
+        // Sketch-backed KPIs default to the trailing 30 days
+        LocalDate rangeEnd = endDate != null ? endDate : LocalDate.now();
+        LocalDate rangeStart = startDate != null ? startDate : rangeEnd.minusDays(29);
+        if (rangeStart.isAfter(rangeEnd)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        if (rangeStart.plusDays(MAX_STATS_RANGE_DAYS).isBefore(rangeEnd)) {
+            throw new IllegalArgumentException("Date range must not exceed two years");
+        }
+        return ResponseEntity.ok(dashboardService.getDashboardStats(tenant, rangeStart, rangeEnd));
     }
 
     @GetMapping("/top-customers")
@@ -40,7 +65,51 @@ public class DashboardController {
     public ResponseEntity<List<OrderStatsDTO>> getOrdersByDate(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
         Tenant tenant = authService.getCurrentTenant();
         return ResponseEntity.ok(dashboardService.getOrderStatsByDateRange(tenant, startDate, endDate));
     }
+
+    /**
+     * Stats, top customers and the daily series in one response, queried in parallel.
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<DashboardOverviewDTO> getOverview(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "5") int limit,
+            HttpServletResponse servletResponse) {
+        Tenant tenant = authService.getCurrentTenant();
+        LocalDate rangeEnd = endDate != null ? endDate : LocalDate.now();
+        LocalDate rangeStart = startDate != null ? startDate : rangeEnd.minusDays(29);
+        if (rangeStart.isAfter(rangeEnd)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        DashboardOverviewDTO overview = dashboardOverviewService.getOverview(tenant, rangeStart, rangeEnd, limit);
+        if (!overview.getIncomplete().isEmpty()) {
+            // A partial page must not be revalidated against the data version's ETag
+            servletResponse.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        }
+        return ResponseEntity.ok()
+                .header("Server-Timing", "overview;dur=" + overview.getElapsedMs())
+                .body(overview);
+    }
+
+    /**
+     * Server-Sent Events stream of KPI deltas for the current tenant, at most one per interval.
+     */
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> live() {
+        Tenant tenant = authService.getCurrentTenant();
+        SseEmitter emitter = liveDashboardService.subscribe(tenant.getTenantId());
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+        // Stops nginx-style proxies from buffering the stream
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
 }
@@ -1,56 +1,162 @@
 package com.xeno.controller;
 
-import com.xeno.model.CartEvent;
-import com.xeno.model.CheckoutEvent;
-import com.xeno.repository.CartEventRepository;
-import com.xeno.repository.CheckoutEventRepository;
+import com.xeno.model.CheckoutSession;
+import com.xeno.service.AuthService;
+import com.xeno.service.EventQueryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Cart and checkout events. Every listing is bounded by {@code [from, to)} (default: the last
+ * {@value #DEFAULT_WINDOW_DAYS} days) and paginated with {@code cursor}/{@code nextCursor}.
+ * Abandoned/completed checkouts are read from checkout sessions, one row per checkout.
+ */
 @RestController
 @RequestMapping("/api/events")
 @RequiredArgsConstructor
 public class EventController {
     
-    private final CartEventRepository cartEventRepository;
-    private final CheckoutEventRepository checkoutEventRepository;
+    private static final int DEFAULT_WINDOW_DAYS = 7;
+    private static final int MAX_LIMIT = 1000;
+    private static final List<String> SESSION_STATES =
+            List.of(CheckoutSession.STARTED, CheckoutSession.COMPLETED, CheckoutSession.ABANDONED);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    private final EventQueryService eventQueryService;
+    private final AuthService authService;
     
     @GetMapping("/carts")
-    public ResponseEntity<List<CartEvent>> getCartEvents(Authentication authentication) {
-        String tenantId = authentication.getName();
-        List<CartEvent> cartEvents = cartEventRepository.findByTenantId(tenantId);
-        return ResponseEntity.ok(cartEvents);
+    public ResponseEntity<Map<String, Object>> getCartEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return cartEvents(from, to, null, cursor, limit);
     }
     
     @GetMapping("/carts/abandoned")
-    public ResponseEntity<List<CartEvent>> getAbandonedCarts(Authentication authentication) {
-        String tenantId = authentication.getName();
-        List<CartEvent> abandonedCarts = cartEventRepository.findByTenantIdAndIsAbandoned(tenantId, true);
-        return ResponseEntity.ok(abandonedCarts);
+    public ResponseEntity<Map<String, Object>> getAbandonedCarts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return cartEvents(from, to, true, cursor, limit);
+    }
+    
+    @GetMapping(value = "/carts/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCartEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = resolveFrom(from, end);
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(eventQueryService.exportCartEvents(tenantId, start, end));
     }
     
     @GetMapping("/checkouts")
-    public ResponseEntity<List<CheckoutEvent>> getCheckoutEvents(Authentication authentication) {
-        String tenantId = authentication.getName();
-        List<CheckoutEvent> checkoutEvents = checkoutEventRepository.findByTenantId(tenantId);
-        return ResponseEntity.ok(checkoutEvents);
+    public ResponseEntity<Map<String, Object>> getCheckoutEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return checkoutEvents(from, to, cursor, limit);
     }
     
     @GetMapping("/checkouts/abandoned")
-    public ResponseEntity<List<CheckoutEvent>> getAbandonedCheckouts(Authentication authentication) {
-        String tenantId = authentication.getName();
-        List<CheckoutEvent> abandonedCheckouts = checkoutEventRepository.findByTenantIdAndAbandoned(tenantId, true);
-        return ResponseEntity.ok(abandonedCheckouts);
+    public ResponseEntity<Map<String, Object>> getAbandonedCheckouts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return checkoutSessions(from, to, CheckoutSession.ABANDONED, cursor, limit);
     }
     
     @GetMapping("/checkouts/completed")
-    public ResponseEntity<List<CheckoutEvent>> getCompletedCheckouts(Authentication authentication) {
-        String tenantId = authentication.getName();
-        List<CheckoutEvent> completedCheckouts = checkoutEventRepository.findByTenantIdAndCompleted(tenantId, true);
-        return ResponseEntity.ok(completedCheckouts);
+    public ResponseEntity<Map<String, Object>> getCompletedCheckouts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return checkoutSessions(from, to, CheckoutSession.COMPLETED, cursor, limit);
+    }
+    
+    @GetMapping("/checkouts/sessions")
+    public ResponseEntity<Map<String, Object>> getCheckoutSessions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        String sessionState = null;
+        if (state != null && !state.isBlank()) {
+            sessionState = state.toUpperCase();
+            if (!SESSION_STATES.contains(sessionState)) {
+                throw new IllegalArgumentException("state must be one of " + SESSION_STATES);
+            }
+        }
+        return checkoutSessions(from, to, sessionState, cursor, limit);
+    }
+    
+    @GetMapping(value = "/checkouts/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCheckoutEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = resolveFrom(from, end);
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(eventQueryService.exportCheckoutEvents(tenantId, start, end));
+    }
+    
+    private ResponseEntity<Map<String, Object>> cartEvents(LocalDateTime from, LocalDateTime to, Boolean abandoned,
+                                                           String cursor, int limit) {
+        validateLimit(limit);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = resolveFrom(from, end);
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok(eventQueryService.getCartEvents(tenantId, start, end, abandoned, cursor, limit));
+    }
+    
+    private ResponseEntity<Map<String, Object>> checkoutEvents(LocalDateTime from, LocalDateTime to,
+                                                               String cursor, int limit) {
+        validateLimit(limit);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = resolveFrom(from, end);
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok(eventQueryService.getCheckoutEvents(tenantId, start, end, cursor, limit));
+    }
+    
+    private ResponseEntity<Map<String, Object>> checkoutSessions(LocalDateTime from, LocalDateTime to, String state,
+                                                                 String cursor, int limit) {
+        validateLimit(limit);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = resolveFrom(from, end);
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok(eventQueryService.getCheckoutSessions(tenantId, start, end, state, cursor, limit));
+    }
+    
+    private static LocalDateTime resolveFrom(LocalDateTime from, LocalDateTime end) {
+        LocalDateTime start = from != null ? from : end.minusDays(DEFAULT_WINDOW_DAYS);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return start;
+    }
+    
+    private static void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.xeno.controller;
+
+import com.xeno.dto.FunnelReportDTO;
+import com.xeno.service.AuthService;
+import com.xeno.service.FunnelService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/dashboard/funnel")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class FunnelController {
+
+    private static final int MAX_RANGE_DAYS = 731;
+
+    private final FunnelService funnelService;
+    private final AuthService authService;
+
+    @GetMapping
+    public ResponseEntity<FunnelReportDTO> getFunnel(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end.minusDays(29);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        if (start.plusDays(MAX_RANGE_DAYS).isBefore(end)) {
+            throw new IllegalArgumentException("Date range must not exceed two years");
+        }
+        String tenantId = authService.getCurrentTenant().getTenantId();
+        return ResponseEntity.ok(funnelService.getFunnel(tenantId, start, end));
+    }
+}
@@ -1,22 +1,35 @@
 package com.xeno.controller;
 
-import com.xeno.model.Product;
+import com.xeno.dto.ProductInventoryStats;
+import com.xeno.dto.ProductSummaryDTO;
 import com.xeno.model.Tenant;
 import com.xeno.repository.ProductRepository;
 import com.xeno.service.AuthService;
+import com.xeno.service.ProductInventoryService;
+import com.xeno.service.TopProductsService;
+import com.xeno.util.Money;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/products")
@@ -31,6 +44,28 @@ public class ProductController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private ProductInventoryService productInventoryService;
+
+    @Autowired
+    private TopProductsService topProductsService;
+
+    // Selectable fields for sparse listings, in response order
+    private static final Map<String, Function<ProductSummaryDTO, Object>> LISTING_FIELDS = new LinkedHashMap<>();
+
+    static {
+        LISTING_FIELDS.put("id", ProductSummaryDTO::getId);
+        LISTING_FIELDS.put("shopifyProductId", ProductSummaryDTO::getShopifyProductId);
+        LISTING_FIELDS.put("title", ProductSummaryDTO::getTitle);
+        LISTING_FIELDS.put("vendor", ProductSummaryDTO::getVendor);
+        LISTING_FIELDS.put("productType", ProductSummaryDTO::getProductType);
+        LISTING_FIELDS.put("price", ProductSummaryDTO::getPrice);
+        LISTING_FIELDS.put("status", ProductSummaryDTO::getStatus);
+        LISTING_FIELDS.put("inventoryQuantity", ProductSummaryDTO::getInventoryQuantity);
+        LISTING_FIELDS.put("imageUrl", ProductSummaryDTO::getImageUrl);
+        LISTING_FIELDS.put("updatedAt", ProductSummaryDTO::getUpdatedAt);
+    }
+
     /**
      * Get product analytics statistics
      */
@@ -47,68 +82,124 @@ public class ProductController {
     public ResponseEntity<Map<String, Object>> getProductStats() {
 
         Tenant tenant = authService.getCurrentTenant();
-
-        long totalProducts = productRepository.countByTenant(tenant);
-        long activeProducts = productRepository.countByTenantAndStatus(tenant, "active");
-        
-        List<Product> allProducts = productRepository.findByTenant(tenant);
-        double totalInventoryValue = allProducts.stream()
-                .mapToDouble(p -> {
-                    if (p.getPrice() != null && p.getInventoryQuantity() != null) {
-                        return p.getPrice().doubleValue() * p.getInventoryQuantity();
-                    }
-                    return 0.0;
-                })
-                .sum();
-
-        long lowStockItems = allProducts.stream()
-                .filter(p -> p.getInventoryQuantity() != null && p.getInventoryQuantity() < 10)
-                .count();
+        ProductInventoryStats stats = productInventoryService.getInventoryStats(tenant);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("totalProducts", totalProducts);
-        response.put("activeProducts", activeProducts);
-        response.put("lowStockItems", lowStockItems);
-        response.put("totalInventoryValue", String.format("%.2f", totalInventoryValue));
+        response.put("totalProducts", stats.getTotalProducts());
+        response.put("activeProducts", stats.getActiveProducts());
+        response.put("lowStockItems", stats.getBelowThreshold());
+        response.put("totalInventoryValue", Money.format(Money.toMinorUnits(stats.getInventoryValue())));
 
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Get top products by revenue (calculated from orders)
+     * Get top products by revenue or units sold over a date window
      */
     @GetMapping("/top")
     @Operation(
             summary = "Get top products by sales",
-            description = "Returns list of top-selling products ordered by revenue"
+            description = "Returns top-selling products ranked by revenue (default) or units sold within an optional date window"
     )
     @ApiResponse(responseCode = "200", description = "Successfully retrieved top products")
     public ResponseEntity<List<Map<String, Object>>> getTopProducts(
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "Ranking: revenue or units")
+            @RequestParam(defaultValue = "revenue") String rankBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("limit must be between 1 and 100");
+        }
+        TopProductsService.RankBy ranking = switch (rankBy.toLowerCase()) {
+            case "units" -> TopProductsService.RankBy.UNITS;
+            case "revenue" -> TopProductsService.RankBy.REVENUE;
+            default -> throw new IllegalArgumentException("rankBy must be revenue or units");
+        };
+
+        Tenant tenant = authService.getCurrentTenant();
+        LocalDate windowEnd = endDate != null ? endDate : LocalDate.now();
+        LocalDate windowStart = startDate != null ? startDate : LocalDate.EPOCH;
+
+        return ResponseEntity.ok(topProductsService.getTopProducts(tenant, ranking, windowStart, windowEnd, limit));
+    }
+
+    /**
+     * Rebuild the daily product sales rollup from stored order items
+     */
+    @PostMapping("/top/rebuild")
+    @Operation(
+            summary = "Rebuild product sales rollup",
+            description = "Recomputes the per-day product sales rollup behind /top from stored order items"
+    )
+    @ApiResponse(responseCode = "200", description = "Rollup rebuilt")
+    public ResponseEntity<Map<String, Object>> rebuildTopProducts() {
 
         Tenant tenant = authService.getCurrentTenant();
+        int rows = topProductsService.rebuild(tenant);
 
-        // Get top products by order count with full details
-        List<Object[]> results = productRepository.findTopProductsByOrderCount(tenant.getId());
-
-        List<Map<String, Object>> topProducts = results.stream()
-                .limit(limit)
-                .map(row -> {
-                    Map<String, Object> productMap = new HashMap<>();
-                    productMap.put("id", row[0]);
-                    productMap.put("shopifyProductId", row[1]);
-                    productMap.put("title", row[2]);
-                    productMap.put("vendor", row[3]);
-                    productMap.put("productType", row[4]);
-                    productMap.put("price", row[5]);
-                    productMap.put("inventoryQuantity", row[6]);
-                    productMap.put("orderCount", ((Number) row[7]).longValue());
-                    
-                    return productMap;
-                })
-                .toList();
-
-        return ResponseEntity.ok(topProducts);
+        return ResponseEntity.ok(Map.of("status", "success", "rows", rows));
+    }
+
+    /**
+     * List products page by page using a keyset cursor
+     */
+    @GetMapping("/list")
+    @Operation(
+            summary = "List products with cursor pagination",
+            description = "Returns one page of product summaries (no description) ordered by id. Pass nextCursor from the " +
+                    "previous response as cursor to continue. Optional filters: status, vendor, productType and lowStock " +
+                    "(inventory below the low-stock threshold). fields=id,title,price limits the returned attributes."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved product page"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, limit or field name", content = @Content)
+    })
+    public ResponseEntity<Map<String, Object>> listProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String vendor,
+            @RequestParam(required = false) String productType,
+            @RequestParam(defaultValue = "false") boolean lowStock,
+            @Parameter(description = "Comma-separated subset of fields to return")
+            @RequestParam(required = false) String fields) {
+
+        if (limit < 1 || limit > 500) {
+            throw new IllegalArgumentException("limit must be between 1 and 500");
+        }
+        List<String> selectedFields = parseFields(fields);
+        Tenant tenant = authService.getCurrentTenant();
+
+        // Fetch one extra row to learn whether another page exists without a count query
+        Integer stockBelow = lowStock ? productInventoryService.getLowStockThreshold() : null;
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<ProductSummaryDTO> rows = "active".equals(status)
+                ? productRepository.findActiveSummariesAfter(tenant.getId(), decodeCursor(cursor),
+                        blankToNull(vendor), blankToNull(productType), stockBelow, pageRequest)
+                : productRepository.findSummariesAfter(tenant.getId(), decodeCursor(cursor),
+                        blankToNull(status), blankToNull(vendor), blankToNull(productType), stockBelow, pageRequest);
+
+        boolean hasMore = rows.size() > limit;
+        List<ProductSummaryDTO> page = hasMore ? rows.subList(0, limit) : rows;
+
+        List<Map<String, Object>> products = new ArrayList<>(page.size());
+        for (ProductSummaryDTO product : page) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            for (String field : selectedFields) {
+                item.put(field, LISTING_FIELDS.get(field).apply(product));
+            }
+            products.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", products);
+        response.put("count", products.size());
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", hasMore ? encodeCursor(page.get(page.size() - 1).getId()) : null);
+
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -120,11 +211,11 @@ public class ProductController {
             description = "Get paginated list of all products for the tenant"
     )
     @ApiResponse(responseCode = "200", description = "Successfully retrieved products")
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<ProductSummaryDTO>> getAllProducts() {
 
         Tenant tenant = authService.getCurrentTenant();
 
-        List<Product> products = productRepository.findByTenant(tenant);
+        List<ProductSummaryDTO> products = productRepository.findSummariesByTenant(tenant.getId());
         return ResponseEntity.ok(products);
     }
 
@@ -140,27 +231,52 @@ public class ProductController {
     public ResponseEntity<Map<String, Object>> getInventorySummary() {
 
         Tenant tenant = authService.getCurrentTenant();
+        ProductInventoryStats stats = productInventoryService.getInventoryStats(tenant);
 
-        List<Product> products = productRepository.findByTenant(tenant);
+        Map<String, Object> response = new HashMap<>();
+        response.put("inStock", stats.getInStock());
+        response.put("lowStock", stats.getLowStock());
+        response.put("outOfStock", stats.getOutOfStock());
+        response.put("total", stats.getTotalProducts());
+        response.put("lowStockThreshold", productInventoryService.getLowStockThreshold());
 
-        long inStock = products.stream()
-                .filter(p -> p.getInventoryQuantity() != null && p.getInventoryQuantity() >= 10)
-                .count();
+        return ResponseEntity.ok(response);
+    }
 
-        long lowStock = products.stream()
-                .filter(p -> p.getInventoryQuantity() != null && p.getInventoryQuantity() > 0 && p.getInventoryQuantity() < 10)
-                .count();
+    private static List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return new ArrayList<>(LISTING_FIELDS.keySet());
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!LISTING_FIELDS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            if (!selected.contains(name)) {
+                selected.add(name);
+            }
+        }
+        return selected;
+    }
 
-        long outOfStock = products.stream()
-                .filter(p -> p.getInventoryQuantity() == null || p.getInventoryQuantity() == 0)
-                .count();
+    private static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("inStock", inStock);
-        response.put("lowStock", lowStock);
-        response.put("outOfStock", outOfStock);
-        response.put("total", products.size());
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
 
-        return ResponseEntity.ok(response);
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 }
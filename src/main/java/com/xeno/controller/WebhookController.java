@@ -2,18 +2,27 @@ package com.xeno.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xeno.event.CustomerIngestedEvent;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.event.ProductIngestedEvent;
 import com.xeno.model.Customer;
 import com.xeno.model.Order;
+import com.xeno.model.OrderItem;
 import com.xeno.model.Product;
 import com.xeno.model.Tenant;
 import com.xeno.repository.CustomerRepository;
 import com.xeno.repository.OrderRepository;
 import com.xeno.repository.ProductRepository;
 import com.xeno.repository.TenantRepository;
+import com.xeno.service.CustomerIdResolver;
+import com.xeno.service.ProductInventoryService;
 import com.xeno.service.WebhookService;
+import com.xeno.shard.TenantContext;
+import com.xeno.util.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -50,6 +59,15 @@ public class WebhookController {
     @Autowired
     private WebhookService webhookService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductInventoryService productInventoryService;
+
+    @Autowired
+    private CustomerIdResolver customerIdResolver;
+
     /**
      * Webhook endpoint for Shopify order creation/update
      */
@@ -79,10 +97,33 @@ public class WebhookController {
 
             // Parse order data
             JsonNode orderJson = objectMapper.readTree(payload);
-            Order order = parseOrder(orderJson, tenant);
+            // Shopify redelivers webhooks, so update the existing row instead of inserting a duplicate
+            Order order = orderRepository.findByTenantIdAndShopifyOrderId(tenant.getId(), orderJson.get("id").asText())
+                    .orElseGet(Order::new);
+            boolean newOrder = order.getId() == null;
+            Long previousCustomerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+            LocalDateTime previousOrderDate = order.getOrderDate();
+            parseOrder(orderJson, tenant, order);
             
             // Save or update order
             orderRepository.save(order);
+            eventPublisher.publishEvent(OrderIngestedEvent.builder()
+                    .tenantId(tenant.getTenantId())
+                    .orderId(order.getId())
+                    .customerId(order.getCustomer() != null ? order.getCustomer().getId() : null)
+                    .orderDate(order.getOrderDate())
+                    .receivedAt(LocalDateTime.now())
+                    .totalMinorUnits(Money.toMinorUnits(order.getTotalPrice()))
+                    .currency(order.getCurrency())
+                    .financialStatus(order.getFinancialStatus())
+                    .newOrder(newOrder)
+                    .previousCustomerId(previousCustomerId)
+                    .previousOrderDate(previousOrderDate)
+                    .tenantPk(tenant.getId())
+                    .lineItems(newOrder
+                            ? order.getOrderItems().stream().map(OrderIngestedEvent.LineItem::of).toList()
+                            : List.of())
+                    .build());
             logger.info("Order {} saved successfully for tenant {}", order.getShopifyOrderId(), tenant.getId());
 
             return ResponseEntity.ok(Map.of("status", "success", "message", "Order processed"));
@@ -119,8 +160,14 @@ public class WebhookController {
 
             JsonNode customerJson = objectMapper.readTree(payload);
             Customer customer = parseCustomer(customerJson, tenant);
+            boolean newCustomer = customer.getId() == null;
             
             customerRepository.save(customer);
+            eventPublisher.publishEvent(CustomerIngestedEvent.builder()
+                    .tenantId(tenant.getTenantId())
+                    .customerId(customer.getId())
+                    .newCustomer(newCustomer)
+                    .build());
             logger.info("Customer {} saved successfully", customer.getShopifyCustomerId());
 
             return ResponseEntity.ok(Map.of("status", "success", "message", "Customer processed"));
@@ -159,6 +206,11 @@ public class WebhookController {
             Product product = parseProduct(productJson, tenant);
             
             productRepository.save(product);
+            productInventoryService.evict(tenant.getId());
+            eventPublisher.publishEvent(ProductIngestedEvent.builder()
+                    .tenantId(tenant.getTenantId())
+                    .productId(product.getId())
+                    .build());
             logger.info("Product {} saved successfully", product.getShopifyProductId());
 
             return ResponseEntity.ok(Map.of("status", "success", "message", "Product processed"));
@@ -194,30 +246,35 @@ public class WebhookController {
     }
 
     /**
-     * Find tenant by Shopify shop domain
+     * Find tenant by Shopify shop domain, and route the rest of the request to the tenant's shard
      */
     private Tenant findTenantByShopDomain(String shopDomain) {
         if (shopDomain == null) {
             return null;
         }
-        return tenantRepository.findByShopifyDomain(shopDomain).orElse(null);
+        Tenant tenant = tenantRepository.findByShopifyDomain(shopDomain).orElse(null);
+        if (tenant != null) {
+            TenantContext.set(tenant.getTenantId());
+        }
+        return tenant;
     }
 
     /**
-     * Parse order from Shopify webhook JSON
+     * Apply order fields from Shopify webhook JSON to a new or already stored order
      */
-    private Order parseOrder(JsonNode orderJson, Tenant tenant) {
-        Order order = new Order();
+    private void parseOrder(JsonNode orderJson, Tenant tenant, Order order) {
+        String shopifyOrderId = orderJson.get("id").asText();
         order.setTenant(tenant);
-        order.setShopifyOrderId(orderJson.get("id").asText());
+        order.setShopifyOrderId(shopifyOrderId);
         order.setOrderNumber(orderJson.has("order_number") ? orderJson.get("order_number").asText() : null);
         
         // Parse customer
         if (orderJson.has("customer") && !orderJson.get("customer").isNull()) {
             JsonNode customerJson = orderJson.get("customer");
-            String customerId = customerJson.get("id").asText();
-            Optional<Customer> existingCustomer = customerRepository.findByTenantTenantIdAndShopifyCustomerId(tenant.getTenantId(), customerId);
-            existingCustomer.ifPresent(order::setCustomer);
+            Long customerId = customerIdResolver.resolve(tenant.getId(), customerJson.get("id").asText());
+            if (customerId != null) {
+                order.setCustomer(customerRepository.getReferenceById(customerId));
+            }
         }
 
         // Parse financial status
@@ -260,19 +317,48 @@ public class WebhookController {
         } else {
             order.setCreatedAt(LocalDateTime.now());
         }
+        // order_date is NOT NULL and drives all date-based analytics
+        if (order.getOrderDate() == null) {
+            order.setOrderDate(order.getCreatedAt());
+        }
+
+        // Line items are stored once, when the order is first seen
+        if (order.getId() == null && orderJson.has("line_items") && orderJson.get("line_items").isArray()) {
+            for (JsonNode lineItem : orderJson.get("line_items")) {
+                order.getOrderItems().add(parseOrderItem(lineItem, order));
+            }
+        }
 
         order.setUpdatedAt(LocalDateTime.now());
-        
-        return order;
+    }
+
+    /**
+     * Parse order line item from Shopify webhook JSON
+     */
+    private OrderItem parseOrderItem(JsonNode lineItemJson, Order order) {
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setShopifyProductId(lineItemJson.path("product_id").asText());
+        item.setProductTitle(lineItemJson.path("title").asText(null));
+        if (lineItemJson.hasNonNull("variant_title")) {
+            item.setVariantTitle(lineItemJson.get("variant_title").asText());
+        }
+        item.setQuantity(lineItemJson.path("quantity").asInt(0));
+        item.setPrice(new BigDecimal(lineItemJson.path("price").asText("0")));
+        item.setTotalDiscount(new BigDecimal(lineItemJson.path("total_discount").asText("0")));
+        return item;
     }
 
     /**
      * Parse customer from Shopify webhook JSON
      */
     private Customer parseCustomer(JsonNode customerJson, Tenant tenant) {
-        Customer customer = new Customer();
+        String shopifyCustomerId = customerJson.get("id").asText();
+        // Update the stored customer; (tenant, Shopify id) is unique
+        Customer customer = customerRepository.findByTenantTenantIdAndShopifyCustomerId(tenant.getTenantId(), shopifyCustomerId)
+                .orElseGet(Customer::new);
         customer.setTenant(tenant);
-        customer.setShopifyCustomerId(customerJson.get("id").asText());
+        customer.setShopifyCustomerId(shopifyCustomerId);
         
         if (customerJson.has("email") && !customerJson.get("email").isNull()) {
             customer.setEmail(customerJson.get("email").asText());
@@ -318,9 +404,14 @@ public class WebhookController {
      * Parse product from Shopify webhook JSON
      */
     private Product parseProduct(JsonNode productJson, Tenant tenant) {
-        Product product = new Product();
-        product.setTenant(tenant);
-        product.setShopifyProductId(productJson.get("id").asText());
+        String shopifyProductId = productJson.get("id").asText();
+        // Update the stored product; (tenant, Shopify id) is its natural id and never reassigned
+        Product product = productRepository.findByShopifyId(tenant, shopifyProductId)
+                .orElseGet(Product::new);
+        if (product.getId() == null) {
+            product.setTenant(tenant);
+            product.setShopifyProductId(shopifyProductId);
+        }
         
         if (productJson.has("title")) {
             product.setTitle(productJson.get("title").asText());
@@ -370,13 +461,14 @@ public class WebhookController {
     public ResponseEntity<String> handleCartCreate(
             @RequestBody Map<String, Object> payload,
             @RequestHeader(value = "X-Shopify-Shop-Domain", required = false) String shopDomain,
-            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmacHeader) {
+            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmacHeader,
+            @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId) {
         
         try {
             logger.info("Received cart_create webhook from domain: {}", shopDomain);
             
             // Process the webhook
-            webhookService.processCartCreate(payload, shopDomain);
+            webhookService.processCartCreate(payload, shopDomain, webhookId);
             
             return ResponseEntity.ok("Cart webhook processed successfully");
         } catch (Exception e) {
@@ -392,13 +484,14 @@ public class WebhookController {
     public ResponseEntity<String> handleCheckoutCreate(
             @RequestBody Map<String, Object> payload,
             @RequestHeader(value = "X-Shopify-Shop-Domain", required = false) String shopDomain,
-            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmacHeader) {
+            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmacHeader,
+            @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId) {
         
         try {
             logger.info("Received checkout_create webhook from domain: {}", shopDomain);
             
             // Process the webhook
-            webhookService.processCheckoutCreate(payload, shopDomain);
+            webhookService.processCheckoutCreate(payload, shopDomain, webhookId);
             
             return ResponseEntity.ok("Checkout webhook processed successfully");
         } catch (Exception e) {
@@ -414,13 +507,14 @@ public class WebhookController {
     public ResponseEntity<String> handleCheckoutUpdate(
             @RequestBody Map<String, Object> payload,
             @RequestHeader(value = "X-Shopify-Shop-Domain", required = false) String shopDomain,
-            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmacHeader) {
+            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmacHeader,
+            @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId) {
         
         try {
             logger.info("Received checkout_update webhook from domain: {}", shopDomain);
             
             // Process the webhook
-            webhookService.processCheckoutUpdate(payload, shopDomain);
+            webhookService.processCheckoutUpdate(payload, shopDomain, webhookId);
             
             return ResponseEntity.ok("Checkout update webhook processed successfully");
         } catch (Exception e) {
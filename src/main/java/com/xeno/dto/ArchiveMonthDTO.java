@@ -0,0 +1,19 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveMonthDTO {
+    private YearMonth month;
+    private Long rows;
+    private BigDecimal totalValue;
+}
@@ -0,0 +1,23 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveSummaryDTO {
+    private String dataset;
+    private YearMonth from;
+    private YearMonth to;
+    private Long rows;
+    private BigDecimal totalValue;
+    private List<ArchiveMonthDTO> months;
+}
@@ -0,0 +1,20 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CohortRetentionDTO {
+    private YearMonth cohortMonth;
+    private Integer cohortSize;
+    private List<Integer> activeCustomers;
+    private List<Double> retentionRates;
+}
@@ -0,0 +1,33 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read view of a customer, selected directly by JPQL constructor projection.
+ * Carries no tenant or order relations, so serializing it never triggers a lazy load.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerDTO {
+    private Long id;
+    private String shopifyCustomerId;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private Integer ordersCount;
+    private BigDecimal totalSpent;
+    private String state;
+    private String tags;
+    private LocalDateTime lastOrderDate;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.xeno.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardOverviewDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private DashboardStats stats;
+    private List<TopCustomerDTO> topCustomers;
+    private List<OrderStatsDTO> ordersByDate;
+    // Sections that failed or missed the deadline; they are null above
+    private List<String> incomplete;
+    // Sent as a Server-Timing header so equal data serializes to equal bytes under one ETag
+    @JsonIgnore
+    private Long elapsedMs;
+}
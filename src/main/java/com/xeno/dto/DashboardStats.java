@@ -17,4 +17,8 @@ public class DashboardStats {
     private Double averageOrderValue;
     private Integer ordersToday;
     private Double revenueToday;
+    private Long uniqueBuyers;
+    private Double orderValueP50;
+    private Double orderValueP90;
+    private Double orderValueP99;
 }
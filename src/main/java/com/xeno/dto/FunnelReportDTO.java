@@ -0,0 +1,20 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FunnelReportDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private FunnelStatsDTO total;
+    private List<FunnelStatsDTO> days;
+}
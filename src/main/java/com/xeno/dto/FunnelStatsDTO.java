@@ -0,0 +1,26 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FunnelStatsDTO {
+    private LocalDate date; // null for range totals
+    private Long cartsCreated;
+    private Long checkoutsStarted;
+    private Long checkoutsCompleted;
+    private Long orders;
+    // Stage-to-stage conversion; null when the earlier stage is empty
+    private Double cartToCheckoutRate;
+    private Double checkoutCompletionRate;
+    private Double completionToOrderRate;
+    private Long medianCartToCheckoutSeconds;
+    private Long medianCheckoutToCompletionSeconds;
+}
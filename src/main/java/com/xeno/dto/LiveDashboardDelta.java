@@ -0,0 +1,30 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Changes committed for one tenant during {@code [windowStart, windowEnd)}, pushed on the live feed.
+ * Counters are increments to add to the figures the dashboard already shows.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveDashboardDelta {
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+    private Long newOrders;
+    private Long updatedOrders;
+    /** Revenue of the new orders, in major units like {@link DashboardStats#getTotalRevenue()}. */
+    private Double revenue;
+    private Long newCustomers;
+    private Long cartEvents;
+    private Long cartsCreated;
+    private Long checkoutEvents;
+    private Long checkoutsStarted;
+}
@@ -15,4 +15,8 @@ public class OrderStatsDTO {
     private LocalDate date;
     private Double revenue;
     private Long orderCount;
+    private Long uniqueBuyers;
+    private Double orderValueP50;
+    private Double orderValueP90;
+    private Double orderValueP99;
 }
@@ -0,0 +1,16 @@
+package com.xeno.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection for the single-pass product inventory aggregate in {@code ProductRepository}.
+ */
+public interface ProductInventoryStats {
+    long getTotalProducts();
+    long getActiveProducts();
+    long getInStock();
+    long getLowStock();
+    long getOutOfStock();
+    long getBelowThreshold();
+    BigDecimal getInventoryValue();
+}
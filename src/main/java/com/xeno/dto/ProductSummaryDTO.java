@@ -0,0 +1,30 @@
+package com.xeno.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Listing view of a product, selected directly by JPQL constructor projection.
+ * Omits the long {@code description} and never materializes a managed entity.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryDTO {
+    private Long id;
+    private String shopifyProductId;
+    private String title;
+    private String vendor;
+    private String productType;
+    private BigDecimal price;
+    private String status;
+    private Integer inventoryQuantity;
+    private String imageUrl;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,17 @@
+package com.xeno.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Published after a customer is persisted by the Shopify sync or the customer webhook.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class CustomerIngestedEvent {
+    private String tenantId;
+    private Long customerId;
+    private boolean newCustomer;
+}
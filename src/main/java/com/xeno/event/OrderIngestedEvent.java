@@ -0,0 +1,53 @@
+package com.xeno.event;
+
+import com.xeno.model.OrderItem;
+import com.xeno.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published after an order is persisted by the Shopify sync or the order webhook.
+ * Analytics components listen for it to update their in-memory state incrementally.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class OrderIngestedEvent {
+    private String tenantId;
+    private Long orderId;
+    private Long customerId;
+    private LocalDateTime orderDate;
+    /** When the order webhook was received, on the server clock; null for orders read by the Shopify sync. */
+    private LocalDateTime receivedAt;
+    /** Order total in hundredths of {@link #currency}, see {@link com.xeno.util.Money#toMinorUnits}. */
+    private long totalMinorUnits;
+    private String currency;
+    private String financialStatus;
+    private boolean newOrder;
+    /** Customer the stored order had before this update; null for new orders. */
+    private Long previousCustomerId;
+    /** Order date the stored order had before this update; null for new orders. */
+    private LocalDateTime previousOrderDate;
+    private Long tenantPk;
+    /** Line items of a newly inserted order; empty for updates. */
+    private List<LineItem> lineItems;
+
+    @Data
+    @AllArgsConstructor
+    public static class LineItem {
+        private String shopifyProductId;
+        private int quantity;
+        /** Line revenue after discounts in hundredths of the order currency. */
+        private long revenueMinorUnits;
+
+        public static LineItem of(OrderItem item) {
+            long gross = Money.toMinorUnits(item.getPrice()) * item.getQuantity();
+            return new LineItem(item.getShopifyProductId(), item.getQuantity(),
+                    gross - Money.toMinorUnits(item.getTotalDiscount()));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.xeno.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Published after a product is persisted by the Shopify sync or the product webhook.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class ProductIngestedEvent {
+    private String tenantId;
+    private Long productId;
+}
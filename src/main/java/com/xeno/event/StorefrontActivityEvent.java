@@ -0,0 +1,26 @@
+package com.xeno.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Published once per tenant for every committed batch of cart and checkout webhooks, checkout
+ * completion and abandonment sweep, with counts rather than the events themselves.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class StorefrontActivityEvent {
+    private String tenantId;
+    private int cartEvents;
+    /** Cart tokens seen for the first time. */
+    private int cartsCreated;
+    private int checkoutEvents;
+    /** Checkout sessions opened by this batch. */
+    private int checkoutsStarted;
+    /** Checkout sessions completed by an order. */
+    private int checkoutsCompleted;
+    /** Carts and checkout sessions marked abandoned. */
+    private int abandoned;
+}
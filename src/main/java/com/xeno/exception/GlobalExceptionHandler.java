@@ -1,6 +1,8 @@
 package com.xeno.exception;
 
+import com.xeno.shard.TenantMovingException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -33,6 +35,10 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalState(
             IllegalStateException ex, WebRequest request) {
+        TenantMovingException moving = TenantMovingException.find(ex);
+        if (moving != null) {
+            return tenantMoving(moving, request);
+        }
         log.error("IllegalStateException: {}", ex.getMessage());
         
         Map<String, Object> body = new HashMap<>();
@@ -48,6 +54,10 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGlobalException(
             Exception ex, WebRequest request) {
+        TenantMovingException moving = TenantMovingException.find(ex);
+        if (moving != null) {
+            return tenantMoving(moving, request);
+        }
         log.error("Unexpected exception: ", ex);
         
         Map<String, Object> body = new HashMap<>();
@@ -59,4 +69,21 @@ public class GlobalExceptionHandler {
         
         return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    // Writes are refused only while a shard move finishes its catch-up, arriving wrapped in whatever
+    // data access or transaction exception the connection was requested from
+    private ResponseEntity<Map<String, Object>> tenantMoving(TenantMovingException ex, WebRequest request) {
+        log.warn("Refused write: {}", ex.getMessage());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Service Unavailable");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(body);
+    }
 }
@@ -0,0 +1,141 @@
+package com.xeno.migration;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds and drops indexes without blocking writes, for migrations that run outside a transaction.
+ * <p>
+ * Plain tables get {@code CREATE INDEX CONCURRENTLY}. Postgres cannot build an index concurrently on a
+ * partitioned table (orders, order_items and the event tables once their partitioning scripts have
+ * run), so there the index is declared on the parent only, built concurrently on each partition and
+ * attached; the parent index becomes valid once every partition has its copy. Every step can be
+ * re-run: a valid index is left alone, and an invalid one left by an interrupted build is rebuilt.
+ */
+@Slf4j
+final class OnlineIndexBuilder {
+
+    private final Connection connection;
+
+    OnlineIndexBuilder(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @param definition everything after the table name, e.g. {@code (tenant_id, status)} or
+     *                   {@code USING brin (order_date)}
+     */
+    void create(String name, String table, String definition) throws SQLException {
+        build(name, table, definition, false);
+    }
+
+    /**
+     * Fails with the number of duplicated keys instead of leaving an invalid index behind; the
+     * duplicates have to be merged by hand first.
+     */
+    void createUnique(String name, String table, String columns) throws SQLException {
+        if (Boolean.TRUE.equals(indexValid(name))) {
+            return;
+        }
+        long duplicated = queryLong("SELECT count(*) FROM (SELECT 1 FROM " + table +
+                " GROUP BY " + columns + " HAVING count(*) > 1) duplicates");
+        if (duplicated > 0) {
+            throw new IllegalStateException(table + " has " + duplicated + " duplicated (" + columns +
+                    ") keys; merge them before " + name + " can be built");
+        }
+        build(name, table, "(" + columns + ")", true);
+    }
+
+    void drop(String name) throws SQLException {
+        String kind = relkind(name);
+        if (kind == null) {
+            return;
+        }
+        // A partitioned index cannot be dropped concurrently; dropping it only locks the table briefly
+        execute("p".equals(kind) || "I".equals(kind)
+                ? "DROP INDEX IF EXISTS " + name
+                : "DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        log.info("Dropped index {}", name);
+    }
+
+    private void build(String name, String table, String definition, boolean unique) throws SQLException {
+        String create = unique ? "CREATE UNIQUE INDEX " : "CREATE INDEX ";
+        if ("p".equals(relkind(table))) {
+            execute(create + "IF NOT EXISTS " + name + " ON ONLY " + table + " " + definition);
+            for (String partition : partitions(table)) {
+                String partitionIndex = partition + "_" + name;
+                buildConcurrently(create, partitionIndex, partition, definition);
+                // Does nothing when the partition's index is already attached
+                execute("ALTER INDEX " + name + " ATTACH PARTITION " + partitionIndex);
+            }
+        } else {
+            buildConcurrently(create, name, table, definition);
+        }
+        log.info("Index {} on {} is ready", name, table);
+    }
+
+    private void buildConcurrently(String create, String name, String table, String definition) throws SQLException {
+        Boolean valid = indexValid(name);
+        if (Boolean.TRUE.equals(valid)) {
+            return;
+        }
+        if (valid != null) {
+            execute("DROP INDEX CONCURRENTLY " + name);
+        }
+        execute(create + "CONCURRENTLY " + name + " ON " + table + " " + definition);
+    }
+
+    private Boolean indexValid(String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getBoolean(1) : null;
+            }
+        }
+    }
+
+    private String relkind(String relation) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass(?)")) {
+            statement.setString(1, relation);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private List<String> partitions(String table) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = to_regclass(?) ORDER BY 1")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(rs.getString(1));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -9,7 +9,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_events")
+@Table(name = "cart_events", indexes = {
+    @Index(name = "idx_cart_event_tenant_created", columnList = "tenant_id,created_at"),
+    @Index(name = "idx_cart_event_tenant_token", columnList = "tenant_id,cart_token")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
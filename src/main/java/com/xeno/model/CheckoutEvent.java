@@ -9,7 +9,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "checkout_events")
+@Table(name = "checkout_events", indexes = {
+    @Index(name = "idx_checkout_event_tenant_created", columnList = "tenant_id,created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,6 +27,9 @@ public class CheckoutEvent {
     @Column(name = "checkout_token")
     private String checkoutToken;
     
+    @Column(name = "cart_token")
+    private String cartToken; // cart this checkout was started from
+    
     @Column(name = "customer_email")
     private String customerEmail;
     
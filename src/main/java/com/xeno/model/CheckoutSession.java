@@ -0,0 +1,76 @@
+package com.xeno.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row per checkout, upserted on {@code (tenant_id, checkout_token)} by every checkout webhook.
+ * Holds the current lifecycle state and the timestamp of each transition, so funnel and
+ * abandonment queries read a single row instead of joining {@code checkout_events} on the token.
+ */
+@Entity
+@Table(name = "checkout_sessions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_checkout_session_tenant_token", columnNames = {"tenant_id", "checkout_token"})
+}, indexes = {
+    @Index(name = "idx_checkout_session_tenant_started", columnList = "tenant_id,started_at"),
+    @Index(name = "idx_checkout_session_tenant_state", columnList = "tenant_id,state,started_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutSession {
+
+    public static final String STARTED = "STARTED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String ABANDONED = "ABANDONED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "checkout_token", nullable = false)
+    private String checkoutToken;
+
+    @Column(name = "cart_token")
+    private String cartToken;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "customer_id")
+    private String customerId;
+
+    @Column(name = "checkout_value")
+    private BigDecimal checkoutValue;
+
+    @Column(name = "item_count")
+    private Integer itemCount;
+
+    @Column(name = "state", nullable = false, length = 16)
+    private String state; // STARTED, COMPLETED, ABANDONED
+
+    @Column(name = "shopify_order_id")
+    private String shopifyOrderId;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "abandoned_at")
+    private LocalDateTime abandonedAt;
+}
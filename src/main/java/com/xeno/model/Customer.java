@@ -1,10 +1,13 @@
 package com.xeno.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,8 +17,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "customers", indexes = {
-    @Index(name = "idx_tenant_customer", columnList = "tenant_id,shopify_customer_id"),
+@Table(name = "customers", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_customer_tenant_shopify_id", columnNames = {"tenant_id", "shopify_customer_id"})
+}, indexes = {
+    @Index(name = "idx_customer_tenant_spent", columnList = "tenant_id,total_spent"),
     @Index(name = "idx_email", columnList = "email")
 })
 @Data
@@ -28,6 +33,9 @@ public class Customer {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tenant_id", nullable = false)
     private Tenant tenant;
@@ -70,6 +78,9 @@ public class Customer {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL)
     private Set<Order> orders = new HashSet<>();
 }
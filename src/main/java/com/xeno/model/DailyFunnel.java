@@ -0,0 +1,52 @@
+package com.xeno.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Per-tenant, per-day conversion funnel: counts for each stage, bumped by atomic upserts as
+ * webhooks and orders arrive, plus quantile sketches of the seconds spent between stages.
+ */
+@Entity
+@Table(name = "daily_funnel", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_funnel_tenant_date", columnNames = {"tenant_id", "funnel_date"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyFunnel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "funnel_date", nullable = false)
+    private LocalDate funnelDate;
+
+    @Column(name = "carts_created", nullable = false)
+    private Long cartsCreated;
+
+    @Column(name = "checkouts_started", nullable = false)
+    private Long checkoutsStarted;
+
+    @Column(name = "checkouts_completed", nullable = false)
+    private Long checkoutsCompleted;
+
+    @Column(name = "orders", nullable = false)
+    private Long orders;
+
+    @Column(name = "cart_to_checkout_seconds")
+    private byte[] cartToCheckoutSeconds;
+
+    @Column(name = "checkout_to_completion_seconds")
+    private byte[] checkoutToCompletionSeconds;
+}
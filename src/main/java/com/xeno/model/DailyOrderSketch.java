@@ -0,0 +1,49 @@
+package com.xeno.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Per-tenant, per-day order sketches: a HyperLogLog of buyers and a quantile sketch of order
+ * values in minor units. Date-range KPIs are answered by merging these rows.
+ */
+@Entity
+@Table(name = "daily_order_sketches", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_sketch_tenant_date", columnNames = {"tenant_id", "sketch_date"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyOrderSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "sketch_date", nullable = false)
+    private LocalDate sketchDate;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "buyers_hll")
+    private byte[] buyersHll;
+
+    @Column(name = "order_value_quantiles")
+    private byte[] orderValueQuantiles;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
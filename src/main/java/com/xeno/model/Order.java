@@ -1,11 +1,15 @@
 package com.xeno.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -14,9 +18,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "orders", indexes = {
-    @Index(name = "idx_tenant_order", columnList = "tenant_id,shopify_order_id"),
-    @Index(name = "idx_order_date", columnList = "order_date"),
+@Table(name = "orders", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_order_tenant_shopify_id", columnNames = {"tenant_id", "shopify_order_id"})
+}, indexes = {
+    @Index(name = "idx_order_tenant_date", columnList = "tenant_id,order_date"),
     @Index(name = "idx_customer_id", columnList = "customer_id")
 })
 @Data
@@ -29,10 +34,23 @@ public class Order {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tenant_id", nullable = false)
     private Tenant tenant;
 
+    // Read-only copy of the tenant's key: lets repository queries filter on the column without a join,
+    // and adds "tenant_id = ?" to updates so they touch one partition of a partitioned orders table
+    @JsonIgnore
+    @PartitionKey
+    @Column(name = "tenant_id", insertable = false, updatable = false)
+    private Long tenantId;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
@@ -70,6 +88,9 @@ public class Order {
     @Column
     private Integer itemCount = 0;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<OrderItem> orderItems = new HashSet<>();
 
@@ -80,4 +101,9 @@ public class Order {
     @UpdateTimestamp
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        tenantId = tenant.getId();
+    }
 }
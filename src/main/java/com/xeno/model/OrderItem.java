@@ -1,15 +1,21 @@
 package com.xeno.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.PartitionKey;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+    @Index(name = "idx_order_item_order_product", columnList = "order_id,shopify_product_id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,10 +26,19 @@ public class OrderItem {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
+    // The order's tenant, copied so order_items can be hash-partitioned like orders
+    @JsonIgnore
+    @PartitionKey
+    @Column(name = "tenant_id", nullable = false)
+    private Long tenantId;
+
     @Column(nullable = false)
     private String shopifyProductId;
 
@@ -41,4 +56,9 @@ public class OrderItem {
 
     @Column(precision = 10, scale = 2)
     private BigDecimal totalDiscount = BigDecimal.ZERO;
+
+    @PrePersist
+    protected void onCreate() {
+        tenantId = order.getTenant().getId();
+    }
 }
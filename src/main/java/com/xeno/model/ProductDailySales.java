@@ -0,0 +1,47 @@
+package com.xeno.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Per-tenant daily sales rollup per product, maintained on order ingest so top-product rankings
+ * never rescan {@code order_items}. Revenue is net of line discounts, in minor units.
+ */
+@Entity
+@Table(name = "product_daily_sales", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_product_sales_tenant_date_product",
+            columnNames = {"tenant_id", "sales_date", "shopify_product_id"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDailySales {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private Long tenantId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "shopify_product_id", nullable = false)
+    private String shopifyProductId;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(name = "revenue_cents", nullable = false)
+    private Long revenueCents;
+
+    @Column(name = "order_lines", nullable = false)
+    private Long orderLines;
+}
@@ -1,13 +1,58 @@
 package com.xeno.repository;
 
 import com.xeno.model.CartEvent;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CartEventRepository extends JpaRepository<CartEvent, Long> {
-    List<CartEvent> findByTenantId(String tenantId);
-    List<CartEvent> findByTenantIdAndIsAbandoned(String tenantId, Boolean isAbandoned);
+    // Newest first; the (createdAt, id) cursor continues strictly after the last row of the previous page
+    @Query("SELECT e FROM CartEvent e WHERE e.tenantId = :tenantId " +
+           "AND e.createdAt >= :from AND e.createdAt < :to " +
+           "AND (e.createdAt < :cursorAt OR (e.createdAt = :cursorAt AND e.id < :cursorId)) " +
+           "AND (:abandoned IS NULL OR e.isAbandoned = :abandoned) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<CartEvent> findPage(@Param("tenantId") String tenantId,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to,
+                             @Param("cursorAt") LocalDateTime cursorAt,
+                             @Param("cursorId") Long cursorId,
+                             @Param("abandoned") Boolean abandoned,
+                             Pageable pageable);
+    
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT e FROM CartEvent e WHERE e.tenantId = :tenantId " +
+           "AND e.createdAt >= :from AND e.createdAt < :to ORDER BY e.createdAt, e.id")
+    Stream<CartEvent> streamByTenantIdAndCreatedAt(@Param("tenantId") String tenantId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+    
+    @Modifying
+    @Query("UPDATE CartEvent e SET e.isAbandoned = true, e.abandonedAt = :abandonedAt " +
+           "WHERE e.tenantId = :tenantId AND e.cartToken IN :tokens AND COALESCE(e.isAbandoned, false) = false")
+    int markAbandoned(@Param("tenantId") String tenantId,
+                      @Param("tokens") Collection<String> tokens,
+                      @Param("abandonedAt") LocalDateTime abandonedAt);
+    
+    // Carts neither abandoned nor turned into a checkout: (tenantId, cartToken, latest createdAt)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query("SELECT e.tenantId, e.cartToken, MAX(e.createdAt) FROM CartEvent e " +
+           "WHERE e.cartToken IS NOT NULL AND COALESCE(e.isAbandoned, false) = false " +
+           "AND NOT EXISTS (SELECT 1 FROM CheckoutSession c WHERE c.tenantId = e.tenantId AND c.cartToken = e.cartToken) " +
+           "GROUP BY e.tenantId, e.cartToken")
+    Stream<Object[]> streamOpenCarts();
 }
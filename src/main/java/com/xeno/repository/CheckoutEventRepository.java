@@ -1,14 +1,39 @@
 package com.xeno.repository;
 
 import com.xeno.model.CheckoutEvent;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CheckoutEventRepository extends JpaRepository<CheckoutEvent, Long> {
-    List<CheckoutEvent> findByTenantId(String tenantId);
-    List<CheckoutEvent> findByTenantIdAndAbandoned(String tenantId, Boolean abandoned);
-    List<CheckoutEvent> findByTenantIdAndCompleted(String tenantId, Boolean completed);
+    // Newest first; the (createdAt, id) cursor continues strictly after the last row of the previous page
+    @Query("SELECT e FROM CheckoutEvent e WHERE e.tenantId = :tenantId " +
+           "AND e.createdAt >= :from AND e.createdAt < :to " +
+           "AND (e.createdAt < :cursorAt OR (e.createdAt = :cursorAt AND e.id < :cursorId)) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<CheckoutEvent> findPage(@Param("tenantId") String tenantId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to,
+                                 @Param("cursorAt") LocalDateTime cursorAt,
+                                 @Param("cursorId") Long cursorId,
+                                 Pageable pageable);
+    
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT e FROM CheckoutEvent e WHERE e.tenantId = :tenantId " +
+           "AND e.createdAt >= :from AND e.createdAt < :to ORDER BY e.createdAt, e.id")
+    Stream<CheckoutEvent> streamByTenantIdAndCreatedAt(@Param("tenantId") String tenantId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to);
 }
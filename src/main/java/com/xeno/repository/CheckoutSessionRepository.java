@@ -0,0 +1,68 @@
+package com.xeno.repository;
+
+import com.xeno.model.CheckoutSession;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface CheckoutSessionRepository extends JpaRepository<CheckoutSession, Long> {
+    
+    // Returns (started_at, inserted) only when this call moved the session into COMPLETED;
+    // a repeated completion for an already completed session returns no row
+    @Query(value = "INSERT INTO checkout_sessions (tenant_id, checkout_token, customer_email, checkout_value, " +
+           "state, shopify_order_id, started_at, last_activity_at, completed_at) " +
+           "VALUES (:tenantId, :checkoutToken, :customerEmail, :checkoutValue, 'COMPLETED', :orderId, :at, :at, :at) " +
+           "ON CONFLICT (tenant_id, checkout_token) DO UPDATE SET " +
+           "customer_email = COALESCE(EXCLUDED.customer_email, checkout_sessions.customer_email), " +
+           "checkout_value = COALESCE(EXCLUDED.checkout_value, checkout_sessions.checkout_value), " +
+           "state = 'COMPLETED', " +
+           "shopify_order_id = EXCLUDED.shopify_order_id, " +
+           "last_activity_at = EXCLUDED.last_activity_at, " +
+           "completed_at = EXCLUDED.completed_at " +
+           "WHERE checkout_sessions.state <> 'COMPLETED' " +
+           "RETURNING started_at, (xmax = 0)", nativeQuery = true)
+    List<Object[]> upsertCompleted(@Param("tenantId") String tenantId,
+                                   @Param("checkoutToken") String checkoutToken,
+                                   @Param("customerEmail") String customerEmail,
+                                   @Param("checkoutValue") BigDecimal checkoutValue,
+                                   @Param("orderId") String orderId,
+                                   @Param("at") LocalDateTime at);
+    
+    @Modifying
+    @Query("UPDATE CheckoutSession s SET s.state = 'ABANDONED', s.abandonedAt = :abandonedAt " +
+           "WHERE s.tenantId = :tenantId AND s.checkoutToken IN :tokens AND s.state = 'STARTED'")
+    int markAbandoned(@Param("tenantId") String tenantId,
+                      @Param("tokens") Collection<String> tokens,
+                      @Param("abandonedAt") LocalDateTime abandonedAt);
+    
+    // Newest first; the (startedAt, id) cursor continues strictly after the last row of the previous page
+    @Query("SELECT s FROM CheckoutSession s WHERE s.tenantId = :tenantId " +
+           "AND s.startedAt >= :from AND s.startedAt < :to " +
+           "AND (s.startedAt < :cursorAt OR (s.startedAt = :cursorAt AND s.id < :cursorId)) " +
+           "AND (:state IS NULL OR s.state = :state) " +
+           "ORDER BY s.startedAt DESC, s.id DESC")
+    List<CheckoutSession> findPage(@Param("tenantId") String tenantId,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("cursorAt") LocalDateTime cursorAt,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("state") String state,
+                                   Pageable pageable);
+    
+    // Sessions still waiting to complete: (tenantId, checkoutToken, lastActivityAt)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query("SELECT s.tenantId, s.checkoutToken, s.lastActivityAt FROM CheckoutSession s WHERE s.state = 'STARTED'")
+    Stream<Object[]> streamOpenSessions();
+}
@@ -1,5 +1,6 @@
 package com.xeno.repository;
 
+import com.xeno.dto.CustomerDTO;
 import com.xeno.model.Customer;
 import com.xeno.model.Tenant;
 import org.springframework.data.domain.Page;
@@ -10,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +23,16 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     Optional<Customer> findByShopifyCustomerIdAndTenant(String shopifyCustomerId, Tenant tenant);
     
-    Optional<Customer> findByIdAndTenant(Long id, Tenant tenant);
+    // Row ids only, for linking orders to customers (CustomerIdResolver)
+    @Query("SELECT c.id FROM Customer c WHERE c.tenant.id = :tenantId AND c.shopifyCustomerId = :shopifyCustomerId")
+    Optional<Long> findIdByShopifyCustomerId(@Param("tenantId") Long tenantId,
+                                             @Param("shopifyCustomerId") String shopifyCustomerId);
+    
+    // (shopifyCustomerId, id) for the given Shopify ids that exist
+    @Query("SELECT c.shopifyCustomerId, c.id FROM Customer c WHERE c.tenant.id = :tenantId " +
+           "AND c.shopifyCustomerId IN :shopifyCustomerIds")
+    List<Object[]> findIdsByShopifyCustomerIds(@Param("tenantId") Long tenantId,
+                                               @Param("shopifyCustomerIds") Collection<String> shopifyCustomerIds);
     
     @Query("SELECT c FROM Customer c WHERE c.tenant.tenantId = :tenantId ORDER BY c.totalSpent DESC")
     List<Customer> findTopCustomersBySpend(@Param("tenantId") String tenantId);
@@ -37,30 +48,54 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     long countByTenantAndTotalSpentLessThan(Tenant tenant, BigDecimal amount);
     
     @Query("SELECT SUM(c.totalSpent) FROM Customer c WHERE c.tenant.tenantId = :tenantId")
-    Double getTotalRevenueByTenant(@Param("tenantId") String tenantId);
-    
-    // Pagination and filtering
-    Page<Customer> findByTenant(Tenant tenant, Pageable pageable);
+    BigDecimal getTotalRevenueByTenant(@Param("tenantId") String tenantId);
     
+    // Full entities for the CSV export
     List<Customer> findByTenant(Tenant tenant);
     
-    Page<Customer> findByTenantAndTotalSpentGreaterThan(Tenant tenant, BigDecimal amount, Pageable pageable);
-    
     List<Customer> findByTenantAndTotalSpentGreaterThan(Tenant tenant, BigDecimal amount);
     
-    Page<Customer> findByTenantAndTotalSpentBetween(Tenant tenant, BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable);
-    
     List<Customer> findByTenantAndTotalSpentBetween(Tenant tenant, BigDecimal minAmount, BigDecimal maxAmount);
     
-    Page<Customer> findByTenantAndTotalSpentLessThan(Tenant tenant, BigDecimal amount, Pageable pageable);
-    
     List<Customer> findByTenantAndTotalSpentLessThan(Tenant tenant, BigDecimal amount);
     
     @Query("SELECT c FROM Customer c WHERE c.tenant = :tenant AND " +
            "(LOWER(c.firstName) LIKE :search OR LOWER(c.lastName) LIKE :search OR LOWER(c.email) LIKE :search)")
-    Page<Customer> searchCustomers(@Param("search") String search, @Param("tenant") Tenant tenant, Pageable pageable);
+    List<Customer> searchCustomersAll(@Param("search") String search, @Param("tenant") Tenant tenant);
     
-    @Query("SELECT c FROM Customer c WHERE c.tenant = :tenant AND " +
+    // Read views for the customer API: scalar columns only, filtered on the tenant key without a join
+    String CUSTOMER_VIEW = "SELECT new com.xeno.dto.CustomerDTO(c.id, c.shopifyCustomerId, c.email, c.firstName, " +
+            "c.lastName, c.phone, c.ordersCount, c.totalSpent, c.state, c.tags, c.lastOrderDate, c.createdAt, " +
+            "c.updatedAt) FROM Customer c ";
+    
+    @Query(value = CUSTOMER_VIEW + "WHERE c.tenant.id = :tenantId",
+           countQuery = "SELECT COUNT(c) FROM Customer c WHERE c.tenant.id = :tenantId")
+    Page<CustomerDTO> findViewsByTenant(@Param("tenantId") Long tenantId, Pageable pageable);
+    
+    @Query(value = CUSTOMER_VIEW + "WHERE c.tenant.id = :tenantId AND c.totalSpent > :amount",
+           countQuery = "SELECT COUNT(c) FROM Customer c WHERE c.tenant.id = :tenantId AND c.totalSpent > :amount")
+    Page<CustomerDTO> findViewsByTenantAndTotalSpentGreaterThan(@Param("tenantId") Long tenantId,
+                                                                @Param("amount") BigDecimal amount, Pageable pageable);
+    
+    @Query(value = CUSTOMER_VIEW + "WHERE c.tenant.id = :tenantId AND c.totalSpent BETWEEN :minAmount AND :maxAmount",
+           countQuery = "SELECT COUNT(c) FROM Customer c WHERE c.tenant.id = :tenantId " +
+                   "AND c.totalSpent BETWEEN :minAmount AND :maxAmount")
+    Page<CustomerDTO> findViewsByTenantAndTotalSpentBetween(@Param("tenantId") Long tenantId,
+                                                            @Param("minAmount") BigDecimal minAmount,
+                                                            @Param("maxAmount") BigDecimal maxAmount, Pageable pageable);
+    
+    @Query(value = CUSTOMER_VIEW + "WHERE c.tenant.id = :tenantId AND c.totalSpent < :amount",
+           countQuery = "SELECT COUNT(c) FROM Customer c WHERE c.tenant.id = :tenantId AND c.totalSpent < :amount")
+    Page<CustomerDTO> findViewsByTenantAndTotalSpentLessThan(@Param("tenantId") Long tenantId,
+                                                             @Param("amount") BigDecimal amount, Pageable pageable);
+    
+    @Query(value = CUSTOMER_VIEW + "WHERE c.tenant.id = :tenantId AND " +
+           "(LOWER(c.firstName) LIKE :search OR LOWER(c.lastName) LIKE :search OR LOWER(c.email) LIKE :search)",
+           countQuery = "SELECT COUNT(c) FROM Customer c WHERE c.tenant.id = :tenantId AND " +
            "(LOWER(c.firstName) LIKE :search OR LOWER(c.lastName) LIKE :search OR LOWER(c.email) LIKE :search)")
-    List<Customer> searchCustomersAll(@Param("search") String search, @Param("tenant") Tenant tenant);
+    Page<CustomerDTO> searchCustomerViews(@Param("search") String search, @Param("tenantId") Long tenantId,
+                                          Pageable pageable);
+    
+    @Query(CUSTOMER_VIEW + "WHERE c.id = :id AND c.tenant.id = :tenantId")
+    Optional<CustomerDTO> findViewByIdAndTenant(@Param("id") Long id, @Param("tenantId") Long tenantId);
 }
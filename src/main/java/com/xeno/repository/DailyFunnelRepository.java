@@ -0,0 +1,44 @@
+package com.xeno.repository;
+
+import com.xeno.model.DailyFunnel;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyFunnelRepository extends JpaRepository<DailyFunnel, Long> {
+    
+    // Native writes name the table they touch; otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "daily_funnel"))
+    @Query(value = "INSERT INTO daily_funnel (tenant_id, funnel_date, carts_created, checkouts_started, " +
+           "checkouts_completed, orders) " +
+           "VALUES (:tenantId, :funnelDate, :carts, :checkouts, :completed, :orders) " +
+           "ON CONFLICT (tenant_id, funnel_date) DO UPDATE SET " +
+           "carts_created = daily_funnel.carts_created + EXCLUDED.carts_created, " +
+           "checkouts_started = daily_funnel.checkouts_started + EXCLUDED.checkouts_started, " +
+           "checkouts_completed = daily_funnel.checkouts_completed + EXCLUDED.checkouts_completed, " +
+           "orders = daily_funnel.orders + EXCLUDED.orders", nativeQuery = true)
+    void increment(@Param("tenantId") String tenantId,
+                   @Param("funnelDate") LocalDate funnelDate,
+                   @Param("carts") long carts,
+                   @Param("checkouts") long checkouts,
+                   @Param("completed") long completed,
+                   @Param("orders") long orders);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM DailyFunnel f WHERE f.tenantId = :tenantId AND f.funnelDate = :funnelDate")
+    Optional<DailyFunnel> findForUpdate(@Param("tenantId") String tenantId, @Param("funnelDate") LocalDate funnelDate);
+    
+    List<DailyFunnel> findByTenantIdAndFunnelDateBetweenOrderByFunnelDate(String tenantId, LocalDate startDate, LocalDate endDate);
+}
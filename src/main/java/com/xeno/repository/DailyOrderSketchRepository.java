@@ -0,0 +1,34 @@
+package com.xeno.repository;
+
+import com.xeno.model.DailyOrderSketch;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyOrderSketchRepository extends JpaRepository<DailyOrderSketch, Long> {
+    
+    // Creates the day's empty row so it can be locked and merged into; a no-op when it exists
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "daily_order_sketches"))
+    @Query(value = "INSERT INTO daily_order_sketches (tenant_id, sketch_date, order_count, updated_at) " +
+           "VALUES (:tenantId, :sketchDate, 0, now()) " +
+           "ON CONFLICT (tenant_id, sketch_date) DO NOTHING", nativeQuery = true)
+    void insertIfAbsent(@Param("tenantId") String tenantId, @Param("sketchDate") LocalDate sketchDate);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DailyOrderSketch s WHERE s.tenantId = :tenantId AND s.sketchDate = :sketchDate")
+    Optional<DailyOrderSketch> findForUpdate(@Param("tenantId") String tenantId, @Param("sketchDate") LocalDate sketchDate);
+    
+    List<DailyOrderSketch> findByTenantIdAndSketchDateBetween(String tenantId, LocalDate startDate, LocalDate endDate);
+}
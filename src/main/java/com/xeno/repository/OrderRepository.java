@@ -1,33 +1,54 @@
 package com.xeno.repository;
 
 import com.xeno.model.Order;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByTenantTenantId(String tenantId);
+    // Tenant-scoped queries filter on orders.tenant_id itself (the tenant's primary key), never through a
+    // join to tenants, so Postgres can prune the hash partitions of a partitioned orders table
+    List<Order> findByTenantId(Long tenantId);
     
-    Optional<Order> findByTenantTenantIdAndShopifyOrderId(String tenantId, String shopifyOrderId);
+    Optional<Order> findByTenantIdAndShopifyOrderId(Long tenantId, String shopifyOrderId);
     
-    List<Order> findByTenantTenantIdAndOrderDateBetween(String tenantId, LocalDateTime startDate, LocalDateTime endDate);
+    List<Order> findByTenantIdAndOrderDateBetween(Long tenantId, LocalDateTime startDate, LocalDateTime endDate);
     
-    long countByTenantTenantId(String tenantId);
+    long countByTenantId(Long tenantId);
     
-    @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE o.tenant.tenantId = :tenantId")
-    Double getTotalRevenueByTenant(@Param("tenantId") String tenantId);
+    @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE o.tenant.id = :tenantId")
+    BigDecimal getTotalRevenueByTenant(@Param("tenantId") Long tenantId);
     
     @Query("SELECT DATE(o.orderDate) as date, SUM(o.totalPrice) as revenue, COUNT(o) as orderCount " +
-           "FROM Order o WHERE o.tenant.tenantId = :tenantId " +
+           "FROM Order o WHERE o.tenant.id = :tenantId " +
            "AND o.orderDate BETWEEN :startDate AND :endDate " +
            "GROUP BY DATE(o.orderDate) ORDER BY DATE(o.orderDate)")
-    List<Object[]> getOrderStatsByDateRange(@Param("tenantId") String tenantId, 
+    List<Object[]> getOrderStatsByDateRange(@Param("tenantId") Long tenantId, 
                                             @Param("startDate") LocalDateTime startDate, 
                                             @Param("endDate") LocalDateTime endDate);
+    
+    // Cache seeds are keyed by the string tenant id; the scalar subquery is evaluated before the
+    // partitions are scanned, so these prune at execution time
+    @Query("SELECT DISTINCT o.customer.id, YEAR(o.orderDate), MONTH(o.orderDate) FROM Order o " +
+           "WHERE o.tenant.id = (SELECT t.id FROM Tenant t WHERE t.tenantId = :tenantId) AND o.customer IS NOT NULL")
+    List<Object[]> findCustomerOrderMonths(@Param("tenantId") String tenantId);
+    
+    @Query("SELECT DISTINCT YEAR(o.orderDate), MONTH(o.orderDate) FROM Order o " +
+           "WHERE o.tenant.id = (SELECT t.id FROM Tenant t WHERE t.tenantId = :tenantId) AND o.customer.id = :customerId")
+    List<Object[]> findOrderMonthsByCustomer(@Param("tenantId") String tenantId, @Param("customerId") Long customerId);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query("SELECT o.id, o.orderDate, o.totalPrice, o.financialStatus FROM Order o " +
+           "WHERE o.tenant.id = (SELECT t.id FROM Tenant t WHERE t.tenantId = :tenantId)")
+    Stream<Object[]> streamOrderColumns(@Param("tenantId") String tenantId);
 }
@@ -0,0 +1,91 @@
+package com.xeno.repository;
+
+import com.xeno.model.ProductDailySales;
+import com.xeno.util.Money;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProductDailySalesRepository extends JpaRepository<ProductDailySales, Long> {
+    
+    // Native writes name the table they touch; otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_daily_sales"))
+    @Query(value = "INSERT INTO product_daily_sales (tenant_id, sales_date, shopify_product_id, units_sold, revenue_cents, order_lines) " +
+           "VALUES (:tenantId, :salesDate, :productId, :units, :revenueCents, 1) " +
+           "ON CONFLICT (tenant_id, sales_date, shopify_product_id) DO UPDATE SET " +
+           "units_sold = product_daily_sales.units_sold + EXCLUDED.units_sold, " +
+           "revenue_cents = product_daily_sales.revenue_cents + EXCLUDED.revenue_cents, " +
+           "order_lines = product_daily_sales.order_lines + 1", nativeQuery = true)
+    void addSale(@Param("tenantId") Long tenantId,
+                 @Param("salesDate") LocalDate salesDate,
+                 @Param("productId") String productId,
+                 @Param("units") long units,
+                 @Param("revenueCents") long revenueCents);
+    
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_daily_sales"))
+    @Query(value = "DELETE FROM product_daily_sales WHERE tenant_id = :tenantId", nativeQuery = true)
+    int deleteByTenant(@Param("tenantId") Long tenantId);
+    
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_daily_sales"))
+    @Query(value = "INSERT INTO product_daily_sales (tenant_id, sales_date, shopify_product_id, units_sold, revenue_cents, order_lines) " +
+           "SELECT o.tenant_id, CAST(o.order_date AS date), oi.shopify_product_id, SUM(oi.quantity), " +
+           "SUM(ROUND((oi.price * oi.quantity - COALESCE(oi.total_discount, 0)) * " + Money.MINOR_UNITS_PER_MAJOR + ")), COUNT(*) " +
+           "FROM orders o JOIN order_items oi ON oi.order_id = o.id AND oi.tenant_id = o.tenant_id " +
+           "WHERE o.tenant_id = :tenantId AND oi.tenant_id = :tenantId " +
+           "GROUP BY o.tenant_id, CAST(o.order_date AS date), oi.shopify_product_id", nativeQuery = true)
+    int rebuildForTenant(@Param("tenantId") Long tenantId);
+    
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_daily_sales"))
+    @Query(value = "DELETE FROM product_daily_sales WHERE tenant_id = :tenantId AND sales_date = :salesDate", nativeQuery = true)
+    int deleteDay(@Param("tenantId") Long tenantId, @Param("salesDate") LocalDate salesDate);
+    
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_daily_sales"))
+    @Query(value = "INSERT INTO product_daily_sales (tenant_id, sales_date, shopify_product_id, units_sold, revenue_cents, order_lines) " +
+           "SELECT o.tenant_id, CAST(o.order_date AS date), oi.shopify_product_id, SUM(oi.quantity), " +
+           "SUM(ROUND((oi.price * oi.quantity - COALESCE(oi.total_discount, 0)) * " + Money.MINOR_UNITS_PER_MAJOR + ")), COUNT(*) " +
+           "FROM orders o JOIN order_items oi ON oi.order_id = o.id AND oi.tenant_id = o.tenant_id " +
+           "WHERE o.tenant_id = :tenantId AND oi.tenant_id = :tenantId " +
+           "AND o.order_date >= CAST(:salesDate AS timestamp) AND o.order_date < CAST(:salesDate AS timestamp) + INTERVAL '1 day' " +
+           "GROUP BY o.tenant_id, CAST(o.order_date AS date), oi.shopify_product_id", nativeQuery = true)
+    int rebuildDay(@Param("tenantId") Long tenantId, @Param("salesDate") LocalDate salesDate);
+    
+    // Rank within the window first, then join products for the LIMIT rows only
+    @Query(value = "SELECT s.shopify_product_id, s.units, s.revenue_cents, s.order_lines, " +
+           "p.id, p.title, p.vendor, p.product_type, p.price, p.inventory_quantity " +
+           "FROM (SELECT shopify_product_id, SUM(units_sold) AS units, SUM(revenue_cents) AS revenue_cents, " +
+           "SUM(order_lines) AS order_lines FROM product_daily_sales " +
+           "WHERE tenant_id = :tenantId AND sales_date BETWEEN :startDate AND :endDate " +
+           "GROUP BY shopify_product_id ORDER BY revenue_cents DESC LIMIT :limit) s " +
+           "LEFT JOIN products p ON p.tenant_id = :tenantId AND p.shopify_product_id = s.shopify_product_id " +
+           "ORDER BY s.revenue_cents DESC", nativeQuery = true)
+    List<Object[]> findTopByRevenue(@Param("tenantId") Long tenantId,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate,
+                                    @Param("limit") int limit);
+    
+    @Query(value = "SELECT s.shopify_product_id, s.units, s.revenue_cents, s.order_lines, " +
+           "p.id, p.title, p.vendor, p.product_type, p.price, p.inventory_quantity " +
+           "FROM (SELECT shopify_product_id, SUM(units_sold) AS units, SUM(revenue_cents) AS revenue_cents, " +
+           "SUM(order_lines) AS order_lines FROM product_daily_sales " +
+           "WHERE tenant_id = :tenantId AND sales_date BETWEEN :startDate AND :endDate " +
+           "GROUP BY shopify_product_id ORDER BY units DESC LIMIT :limit) s " +
+           "LEFT JOIN products p ON p.tenant_id = :tenantId AND p.shopify_product_id = s.shopify_product_id " +
+           "ORDER BY s.units DESC", nativeQuery = true)
+    List<Object[]> findTopByUnits(@Param("tenantId") Long tenantId,
+                                  @Param("startDate") LocalDate startDate,
+                                  @Param("endDate") LocalDate endDate,
+                                  @Param("limit") int limit);
+}
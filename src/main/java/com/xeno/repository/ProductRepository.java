@@ -1,17 +1,19 @@
 package com.xeno.repository;
 
+import com.xeno.dto.ProductInventoryStats;
+import com.xeno.dto.ProductSummaryDTO;
 import com.xeno.model.Product;
 import com.xeno.model.Tenant;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     List<Product> findByTenantTenantId(String tenantId);
     
     List<Product> findByTenant(Tenant tenant);
@@ -20,19 +22,55 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     long countByTenantAndStatus(Tenant tenant, String status);
     
-    Optional<Product> findByTenantTenantIdAndShopifyProductId(String tenantId, String shopifyProductId);
-    
     long countByTenantTenantId(String tenantId);
     
     @Query("SELECT p FROM Product p WHERE p.tenant.tenantId = :tenantId ORDER BY p.id DESC")
     List<Product> findByTenantTenantIdOrderByIdDesc(@Param("tenantId") String tenantId);
     
-    @Query("SELECT p.id, p.shopifyProductId, p.title, p.vendor, p.productType, p.price, p.inventoryQuantity, COUNT(oi.id) as orderCount " +
-           "FROM Product p " +
-           "LEFT JOIN OrderItem oi ON oi.shopifyProductId = p.shopifyProductId " +
-           "LEFT JOIN Order o ON o.id = oi.order.id " +
-           "WHERE p.tenant.id = :tenantId AND (o.tenant.id = :tenantId OR o.tenant.id IS NULL) " +
-           "GROUP BY p.id, p.shopifyProductId, p.title, p.vendor, p.productType, p.price, p.inventoryQuantity " +
-           "ORDER BY orderCount DESC")
-    List<Object[]> findTopProductsByOrderCount(@Param("tenantId") Long tenantId);
+    @Query(value = "SELECT COUNT(*) AS \"totalProducts\", " +
+           "COUNT(*) FILTER (WHERE status = 'active') AS \"activeProducts\", " +
+           "COUNT(*) FILTER (WHERE inventory_quantity >= :threshold) AS \"inStock\", " +
+           "COUNT(*) FILTER (WHERE inventory_quantity > 0 AND inventory_quantity < :threshold) AS \"lowStock\", " +
+           "COUNT(*) FILTER (WHERE inventory_quantity IS NULL OR inventory_quantity <= 0) AS \"outOfStock\", " +
+           "COUNT(*) FILTER (WHERE inventory_quantity < :threshold) AS \"belowThreshold\", " +
+           "COALESCE(SUM(price * inventory_quantity), 0) AS \"inventoryValue\" " +
+           "FROM products WHERE tenant_id = :tenantId", nativeQuery = true)
+    ProductInventoryStats getInventoryStats(@Param("tenantId") Long tenantId, @Param("threshold") int threshold);
+    
+    @Query("SELECT new com.xeno.dto.ProductSummaryDTO(p.id, p.shopifyProductId, p.title, p.vendor, p.productType, " +
+           "p.price, p.status, p.inventoryQuantity, p.imageUrl, p.updatedAt) " +
+           "FROM Product p WHERE p.tenant.id = :tenantId ORDER BY p.id ASC")
+    List<ProductSummaryDTO> findSummariesByTenant(@Param("tenantId") Long tenantId);
+    
+    // Keyset page: rows after the cursor id, optional filters, limit taken from the Pageable
+    @Query("SELECT new com.xeno.dto.ProductSummaryDTO(p.id, p.shopifyProductId, p.title, p.vendor, p.productType, " +
+           "p.price, p.status, p.inventoryQuantity, p.imageUrl, p.updatedAt) " +
+           "FROM Product p WHERE p.tenant.id = :tenantId AND p.id > :afterId " +
+           "AND (:status IS NULL OR p.status = :status) " +
+           "AND (:vendor IS NULL OR p.vendor = :vendor) " +
+           "AND (:productType IS NULL OR p.productType = :productType) " +
+           "AND (:stockBelow IS NULL OR p.inventoryQuantity < :stockBelow) " +
+           "ORDER BY p.id ASC")
+    List<ProductSummaryDTO> findSummariesAfter(@Param("tenantId") Long tenantId,
+                                               @Param("afterId") Long afterId,
+                                               @Param("status") String status,
+                                               @Param("vendor") String vendor,
+                                               @Param("productType") String productType,
+                                               @Param("stockBelow") Integer stockBelow,
+                                               Pageable pageable);
+
+    // Same page for status=active; the literal predicate lets Postgres use the partial active-products index
+    @Query("SELECT new com.xeno.dto.ProductSummaryDTO(p.id, p.shopifyProductId, p.title, p.vendor, p.productType, " +
+           "p.price, p.status, p.inventoryQuantity, p.imageUrl, p.updatedAt) " +
+           "FROM Product p WHERE p.tenant.id = :tenantId AND p.id > :afterId AND p.status = 'active' " +
+           "AND (:vendor IS NULL OR p.vendor = :vendor) " +
+           "AND (:productType IS NULL OR p.productType = :productType) " +
+           "AND (:stockBelow IS NULL OR p.inventoryQuantity < :stockBelow) " +
+           "ORDER BY p.id ASC")
+    List<ProductSummaryDTO> findActiveSummariesAfter(@Param("tenantId") Long tenantId,
+                                                     @Param("afterId") Long afterId,
+                                                     @Param("vendor") String vendor,
+                                                     @Param("productType") String productType,
+                                                     @Param("stockBelow") Integer stockBelow,
+                                                     Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package com.xeno.repository;
+
+import com.xeno.model.Product;
+import com.xeno.model.Tenant;
+
+import java.util.Optional;
+
+public interface ProductRepositoryCustom {
+
+    // Resolved through the natural-id cache, so repeat syncs and webhooks for a product skip the query
+    Optional<Product> findByShopifyId(Tenant tenant, String shopifyProductId);
+}
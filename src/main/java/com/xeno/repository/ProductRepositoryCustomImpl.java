@@ -0,0 +1,30 @@
+package com.xeno.repository;
+
+import com.xeno.model.Product;
+import com.xeno.model.Tenant;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    ProductRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // The Session must stay open for the whole load; not read-only, so a lagging replica never hides a
+    // product the caller is about to write
+    @Override
+    @Transactional
+    public Optional<Product> findByShopifyId(Tenant tenant, String shopifyProductId) {
+        return entityManager.unwrap(Session.class)
+                .byNaturalId(Product.class)
+                .using("tenant", tenant)
+                .using("shopifyProductId", shopifyProductId)
+                .loadOptional();
+    }
+}
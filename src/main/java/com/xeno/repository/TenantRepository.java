@@ -1,16 +1,32 @@
 package com.xeno.repository;
 
 import com.xeno.model.Tenant;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TenantRepository extends JpaRepository<Tenant, Long> {
+    // Lookups by key are query-cached: the cached result is the tenant's id, its row comes from the entity cache
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Tenant> findByTenantId(String tenantId);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Tenant> findByEmail(String email);
+
+    @Query("SELECT t.tenantId FROM Tenant t WHERE t.email = :email")
+    Optional<String> findTenantIdByEmail(@Param("email") String email);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Tenant> findByShopifyDomain(String shopifyDomain);
     boolean existsByEmail(String email);
     boolean existsByShopifyDomain(String shopifyDomain);
+    
+    // (tenantId, eventRetentionMonths) for every tenant
+    @Query("SELECT t.tenantId, t.eventRetentionMonths FROM Tenant t")
+    List<Object[]> findEventRetention();
 }
@@ -0,0 +1,261 @@
+package com.xeno.service;
+
+import com.xeno.event.StorefrontActivityEvent;
+import com.xeno.repository.CartEventRepository;
+import com.xeno.repository.CheckoutSessionRepository;
+import com.xeno.shard.ShardDirectory;
+import com.xeno.shard.TenantContext;
+import com.xeno.util.HierarchicalTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Marks carts and checkouts abandoned once they stay open past their timeout.
+ * <p>
+ * Every open cart/checkout token holds one timer in a {@link HierarchicalTimingWheel}; webhooks
+ * schedule and cancel timers in O(1), and {@link #tick()} collects whatever expired and flags those
+ * rows with one UPDATE per tenant and batch. Checkouts are tracked on {@code checkout_sessions},
+ * whose UPDATE only touches sessions still {@code STARTED}, so a timer that missed its cancel never
+ * marks a completed checkout. The wheel lives only in memory; pending timers are rebuilt from open
+ * rows of every shard on startup.
+ */
+@Service
+@Slf4j
+public class AbandonmentDetectorService {
+
+    // 64 slots per level over 4 levels: 2^24 ticks, about 194 days at one-second ticks
+    private static final int WHEEL_BITS_PER_LEVEL = 6;
+    private static final int WHEEL_LEVELS = 4;
+    private static final int REBUILD_CHUNK = 10_000;
+
+    private enum Kind { CART, CHECKOUT }
+
+    private record TimerKey(Kind kind, String tenantId, String token) {}
+
+    private final CartEventRepository cartEventRepository;
+    private final CheckoutSessionRepository checkoutSessionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardDirectory shardDirectory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration cartTimeout;
+    private final Duration checkoutTimeout;
+    private final int batchSize;
+
+    private final HierarchicalTimingWheel<TimerKey> wheel;
+    private final ReentrantLock wheelLock = new ReentrantLock();
+
+    public AbandonmentDetectorService(CartEventRepository cartEventRepository,
+                                      CheckoutSessionRepository checkoutSessionRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      ShardDirectory shardDirectory,
+                                      ApplicationEventPublisher eventPublisher,
+                                      @Value("${abandonment.enabled:true}") boolean enabled,
+                                      @Value("${abandonment.cart-timeout-minutes:60}") long cartTimeoutMinutes,
+                                      @Value("${abandonment.checkout-timeout-minutes:60}") long checkoutTimeoutMinutes,
+                                      @Value("${abandonment.tick-ms:1000}") long tickMillis,
+                                      @Value("${abandonment.batch-size:500}") int batchSize) {
+        this.cartEventRepository = cartEventRepository;
+        this.checkoutSessionRepository = checkoutSessionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardDirectory = shardDirectory;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.cartTimeout = Duration.ofMinutes(cartTimeoutMinutes);
+        this.checkoutTimeout = Duration.ofMinutes(checkoutTimeoutMinutes);
+        this.batchSize = batchSize;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_BITS_PER_LEVEL, WHEEL_LEVELS,
+                System.currentTimeMillis());
+    }
+
+    public void scheduleCart(String tenantId, String cartToken, LocalDateTime createdAt) {
+        schedule(new TimerKey(Kind.CART, tenantId, cartToken), createdAt, cartTimeout);
+    }
+
+    /**
+     * (Re)starts the checkout's timer from its latest activity.
+     */
+    public void scheduleCheckout(String tenantId, String checkoutToken, LocalDateTime lastActivityAt) {
+        schedule(new TimerKey(Kind.CHECKOUT, tenantId, checkoutToken), lastActivityAt, checkoutTimeout);
+    }
+
+    /**
+     * Cart moved on to checkout; from here on abandonment is tracked on the checkout.
+     */
+    public void cancelCart(String tenantId, String cartToken) {
+        cancel(new TimerKey(Kind.CART, tenantId, cartToken));
+    }
+
+    public void cancelCheckout(String tenantId, String checkoutToken) {
+        cancel(new TimerKey(Kind.CHECKOUT, tenantId, checkoutToken));
+    }
+
+    public int getPendingTimers() {
+        wheelLock.lock();
+        try {
+            return wheel.size();
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${abandonment.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        List<TimerKey> expired = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            wheel.advanceTo(System.currentTimeMillis(), expired::add);
+        } finally {
+            wheelLock.unlock();
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        Map<TimerKey, List<String>> byTenant = new HashMap<>();
+        for (TimerKey key : expired) {
+            byTenant.computeIfAbsent(new TimerKey(key.kind(), key.tenantId(), null), k -> new ArrayList<>())
+                    .add(key.token());
+        }
+
+        LocalDateTime abandonedAt = LocalDateTime.now();
+        int marked = 0;
+        for (Map.Entry<TimerKey, List<String>> entry : byTenant.entrySet()) {
+            TimerKey group = entry.getKey();
+            List<String> tokens = entry.getValue();
+            for (int from = 0; from < tokens.size(); from += batchSize) {
+                List<String> batch = tokens.subList(from, Math.min(from + batchSize, tokens.size()));
+                try {
+                    marked += markAbandoned(group.kind(), group.tenantId(), batch, abandonedAt);
+                } catch (Exception e) {
+                    // Tokens are picked up again by the startup rebuild
+                    log.error("Failed to mark {} {} tokens abandoned for tenant {}",
+                            batch.size(), group.kind(), group.tenantId(), e);
+                }
+            }
+        }
+        log.debug("Abandonment tick: {} timers expired, {} rows marked abandoned", expired.size(), marked);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildPendingTimers() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int[] carts = {0};
+        int[] checkouts = {0};
+        for (String shard : shardDirectory.shardIds()) {
+            TenantContext.runOnShard(shard, () -> {
+                // Read-write template so the scan reads the primary, never a lagging replica
+                carts[0] += transactionTemplate.execute(status -> {
+                    try (Stream<Object[]> rows = cartEventRepository.streamOpenCarts()) {
+                        return load(Kind.CART, rows, cartTimeout);
+                    }
+                });
+                checkouts[0] += transactionTemplate.execute(status -> {
+                    try (Stream<Object[]> rows = checkoutSessionRepository.streamOpenSessions()) {
+                        return load(Kind.CHECKOUT, rows, checkoutTimeout);
+                    }
+                });
+            });
+        }
+        log.info("Rebuilt abandonment timers for {} carts and {} checkouts in {} ms",
+                carts[0], checkouts[0], System.currentTimeMillis() - started);
+    }
+
+    private int markAbandoned(Kind kind, String tenantId, List<String> tokens, LocalDateTime abandonedAt) {
+        return TenantContext.call(tenantId, () -> transactionTemplate.execute(status -> {
+            int marked = kind == Kind.CART
+                    ? cartEventRepository.markAbandoned(tenantId, tokens, abandonedAt)
+                    : checkoutSessionRepository.markAbandoned(tenantId, tokens, abandonedAt);
+            if (marked > 0) {
+                eventPublisher.publishEvent(StorefrontActivityEvent.builder()
+                        .tenantId(tenantId)
+                        .abandoned(marked)
+                        .build());
+            }
+            return marked;
+        }));
+    }
+
+    // Schedules in chunks so webhook threads are not locked out for the whole scan
+    private int load(Kind kind, Stream<Object[]> rows, Duration timeout) {
+        int loaded = 0;
+        List<Object[]> chunk = new ArrayList<>(REBUILD_CHUNK);
+        for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+            chunk.add(row);
+            if (chunk.size() == REBUILD_CHUNK) {
+                loaded += scheduleAll(kind, chunk, timeout);
+                chunk.clear();
+            }
+        }
+        return loaded + scheduleAll(kind, chunk, timeout);
+    }
+
+    private int scheduleAll(Kind kind, List<Object[]> rows, Duration timeout) {
+        wheelLock.lock();
+        try {
+            for (Object[] row : rows) {
+                TimerKey key = new TimerKey(kind, (String) row[0], (String) row[1]);
+                // A webhook may have scheduled this token already with a fresher deadline
+                if (!wheel.contains(key)) {
+                    wheel.schedule(key, deadline((LocalDateTime) row[2], timeout));
+                }
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+        return rows.size();
+    }
+
+    private void schedule(TimerKey key, LocalDateTime createdAt, Duration timeout) {
+        if (!enabled || key.tenantId() == null || key.token() == null) {
+            return;
+        }
+        long deadline = deadline(createdAt, timeout);
+        wheelLock.lock();
+        try {
+            wheel.schedule(key, deadline);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private void cancel(TimerKey key) {
+        if (!enabled || key.tenantId() == null || key.token() == null) {
+            return;
+        }
+        wheelLock.lock();
+        try {
+            wheel.cancel(key);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private static long deadline(LocalDateTime createdAt, Duration timeout) {
+        LocalDateTime start = createdAt != null ? createdAt : LocalDateTime.now();
+        return start.atZone(ZoneId.systemDefault()).toInstant().plus(timeout).toEpochMilli();
+    }
+}
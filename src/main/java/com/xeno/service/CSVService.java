@@ -1,6 +1,7 @@
 package com.xeno.service;
 
 import com.xeno.model.Customer;
+import com.xeno.util.Money;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.springframework.stereotype.Service;
@@ -60,7 +61,7 @@ public class CSVService {
                         customer.getEmail(),
                         customer.getPhone() != null ? customer.getPhone() : "",
                         customer.getOrdersCount(),
-                        String.format("%.2f", customer.getTotalSpent()),
+                        Money.format(Money.toMinorUnits(customer.getTotalSpent())),
                         customer.getCreatedAt() != null ? customer.getCreatedAt().format(DATE_FORMATTER) : "",
                         customer.getLastOrderDate() != null ? customer.getLastOrderDate().format(DATE_FORMATTER) : "",
                         customer.getState() != null ? customer.getState() : "",
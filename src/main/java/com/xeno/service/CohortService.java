@@ -0,0 +1,171 @@
+package com.xeno.service;
+
+import com.xeno.analytics.CohortMatrix;
+import com.xeno.dto.CohortRetentionDTO;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.model.Tenant;
+import com.xeno.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains per-tenant cohort retention matrices in memory.
+ * <p>
+ * A tenant's matrix is built once from distinct (customer, month) pairs on first access and
+ * then kept current from {@link OrderIngestedEvent}s, so requests never rescan the orders table.
+ * When an update moves an order to another customer or month, the months of the customers involved
+ * are read back from the database and replace what the matrix held for them.
+ * <p>
+ * Matrices only follow the orders ingested by this instance and are not invalidated across
+ * instances, so this assumes a single instance ingests and serves each tenant; with several, each
+ * returns the retention it has seen until it restarts.
+ */
+@Service
+@Slf4j
+public class CohortService {
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate seedTransaction;
+
+    private final Map<String, CohortMatrix> matrices = new ConcurrentHashMap<>();
+
+    public CohortService(OrderRepository orderRepository, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        // Read-write so the one-off build reads the primary, never a lagging replica
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(TenantDataVersionService.DATA_LISTENER_ORDER)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        // Tenants that were never queried are built from the database on first access instead
+        CohortMatrix matrix = matrices.get(event.getTenantId());
+        if (matrix == null) {
+            return;
+        }
+        matrix.lock().lock();
+        try {
+            if (!event.isNewOrder() && moved(event)) {
+                // Held across the reads so an order recorded meanwhile is not lost to the replace
+                reload(matrix, event.getTenantId(), event.getPreviousCustomerId());
+                reload(matrix, event.getTenantId(), event.getCustomerId());
+            } else if (event.getCustomerId() != null && event.getOrderDate() != null) {
+                matrix.record(event.getCustomerId(), CohortMatrix.toEpochMonth(event.getOrderDate()));
+            }
+        } catch (RuntimeException e) {
+            // Left as is, the matrix would keep counting the old cell; rebuild it on next access
+            log.warn("Could not update cohort matrix for tenant {}; dropping it", event.getTenantId(), e);
+            matrices.remove(event.getTenantId(), matrix);
+        } finally {
+            matrix.lock().unlock();
+        }
+    }
+
+    /**
+     * Retention for the most recent {@code months} cohorts, oldest first. Each row reports how many
+     * customers of the cohort ordered again at month offsets 0..n, where offset 0 is the cohort size.
+     */
+    public List<CohortRetentionDTO> getCohortRetention(Tenant tenant, int months) {
+        CohortMatrix matrix = matrixFor(tenant.getTenantId());
+        int currentMonth = CohortMatrix.toEpochMonth(LocalDateTime.now());
+        List<CohortRetentionDTO> result = new ArrayList<>();
+
+        matrix.lock().lock();
+        try {
+            if (matrix.getCohortCount() == 0) {
+                return result;
+            }
+            int lastCohort = Math.max(currentMonth, matrix.getBaseMonth() + matrix.getCohortCount() - 1);
+            int firstCohort = Math.max(matrix.getBaseMonth(), lastCohort - months + 1);
+
+            for (int cohortMonth = firstCohort; cohortMonth <= lastCohort; cohortMonth++) {
+                int[] row = matrix.row(cohortMonth);
+                if (row.length == 0 || row[0] == 0) {
+                    continue;
+                }
+                int maxOffset = Math.min(row.length - 1, Math.max(0, lastCohort - cohortMonth));
+                List<Integer> active = new ArrayList<>(maxOffset + 1);
+                List<Double> rates = new ArrayList<>(maxOffset + 1);
+                for (int offset = 0; offset <= maxOffset; offset++) {
+                    active.add(row[offset]);
+                    rates.add((double) row[offset] / row[0]);
+                }
+                result.add(CohortRetentionDTO.builder()
+                        .cohortMonth(CohortMatrix.fromEpochMonth(cohortMonth))
+                        .cohortSize(row[0])
+                        .activeCustomers(active)
+                        .retentionRates(rates)
+                        .build());
+            }
+        } finally {
+            matrix.lock().unlock();
+        }
+        return result;
+    }
+
+    private static boolean moved(OrderIngestedEvent event) {
+        return !Objects.equals(event.getPreviousCustomerId(), event.getCustomerId())
+                || !Objects.equals(epochMonth(event.getPreviousOrderDate()), epochMonth(event.getOrderDate()));
+    }
+
+    private static Integer epochMonth(LocalDateTime dateTime) {
+        return dateTime != null ? CohortMatrix.toEpochMonth(dateTime) : null;
+    }
+
+    private void reload(CohortMatrix matrix, String tenantId, Long customerId) {
+        if (customerId == null) {
+            return;
+        }
+        List<Object[]> rows = seedTransaction.execute(status -> orderRepository.findOrderMonthsByCustomer(tenantId, customerId));
+        int[] months = new int[rows.size()];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = CohortMatrix.toEpochMonth(((Number) rows.get(i)[0]).intValue(), ((Number) rows.get(i)[1]).intValue());
+        }
+        matrix.replace(customerId, months);
+    }
+
+    private CohortMatrix matrixFor(String tenantId) {
+        CohortMatrix matrix = matrices.get(tenantId);
+        if (matrix != null) {
+            return matrix;
+        }
+
+        CohortMatrix fresh = new CohortMatrix();
+        // Hold the lock while bootstrapping so concurrent events and readers wait for the full matrix
+        fresh.lock().lock();
+        try {
+            matrix = matrices.putIfAbsent(tenantId, fresh);
+            if (matrix != null) {
+                return matrix;
+            }
+            try {
+                List<Object[]> rows = seedTransaction.execute(status -> orderRepository.findCustomerOrderMonths(tenantId));
+                for (Object[] row : rows) {
+                    long customerId = ((Number) row[0]).longValue();
+                    int epochMonth = CohortMatrix.toEpochMonth(((Number) row[1]).intValue(), ((Number) row[2]).intValue());
+                    fresh.record(customerId, epochMonth);
+                }
+                log.info("Built cohort matrix for tenant {} from {} customer-months", tenantId, rows.size());
+            } catch (RuntimeException e) {
+                matrices.remove(tenantId, fresh);
+                throw e;
+            }
+            return fresh;
+        } finally {
+            fresh.lock().unlock();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.xeno.service;
+
+import com.xeno.analytics.OrderColumns;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.repository.OrderRepository;
+import com.xeno.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-process columnar cache of order data, one {@link OrderColumns} per tenant.
+ * <p>
+ * Enabled with {@code analytics.columnar.enabled=true}. A tenant's columns are loaded with a
+ * single streaming scan on first use and then appended to from {@link OrderIngestedEvent}s, so
+ * dashboard range aggregations run against primitive arrays instead of Postgres rows.
+ */
+@Service
+@Slf4j
+public class ColumnarOrderStore {
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate seedTransaction;
+    private final boolean enabled;
+
+    private final Map<String, OrderColumns> tenants = new ConcurrentHashMap<>();
+
+    public ColumnarOrderStore(OrderRepository orderRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${analytics.columnar.enabled:false}") boolean enabled) {
+        this.orderRepository = orderRepository;
+        // Not read-only: the seed must see every order committed before ingest events take over,
+        // so it reads the primary even when read-only work is routed to a replica
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(TenantDataVersionService.DATA_LISTENER_ORDER)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        if (!enabled || event.getOrderId() == null || event.getOrderDate() == null) {
+            return;
+        }
+        // Unloaded tenants pick the order up from the database when first queried
+        OrderColumns columns = tenants.get(event.getTenantId());
+        if (columns == null) {
+            return;
+        }
+        Lock lock = columns.writeLock();
+        lock.lock();
+        try {
+            columns.upsert(event.getOrderId(), (int) event.getOrderDate().toLocalDate().toEpochDay(),
+                    event.getTotalMinorUnits(), event.getFinancialStatus());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public OrderColumns columnsFor(String tenantId) {
+        if (!enabled) {
+            throw new IllegalStateException("Columnar order store is disabled");
+        }
+        OrderColumns columns = tenants.get(tenantId);
+        if (columns != null) {
+            return columns;
+        }
+
+        OrderColumns fresh = new OrderColumns();
+        Lock lock = fresh.writeLock();
+        // Readers and ingest events for this tenant block until the initial load completes
+        lock.lock();
+        try {
+            columns = tenants.putIfAbsent(tenantId, fresh);
+            if (columns != null) {
+                return columns;
+            }
+            long started = System.nanoTime();
+            try {
+                seedTransaction.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = orderRepository.streamOrderColumns(tenantId)) {
+                        rows.forEach(row -> append(fresh, ((Number) row[0]).longValue(), (LocalDateTime) row[1],
+                                (BigDecimal) row[2], (String) row[3]));
+                    }
+                });
+            } catch (RuntimeException e) {
+                tenants.remove(tenantId, fresh);
+                throw e;
+            }
+            log.info("Loaded {} orders into columnar store for tenant {} in {} ms",
+                    fresh.size(), tenantId, (System.nanoTime() - started) / 1_000_000);
+            return fresh;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void append(OrderColumns columns, long orderId, LocalDateTime orderDate,
+                               BigDecimal totalPrice, String status) {
+        columns.upsert(orderId, (int) orderDate.toLocalDate().toEpochDay(),
+                Money.toMinorUnits(totalPrice), status);
+    }
+}
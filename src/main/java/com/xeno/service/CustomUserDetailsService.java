@@ -2,7 +2,7 @@ package com.xeno.service;
 
 import com.xeno.model.Tenant;
 import com.xeno.repository.TenantRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -10,12 +10,22 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final TenantRepository tenantRepository;
+    private final long tenantCacheTtlMillis;
+
+    private final Map<String, CachedTenant> tenantsByEmail = new ConcurrentHashMap<>();
+
+    public CustomUserDetailsService(TenantRepository tenantRepository,
+                                    @Value("${security.tenant-cache-ttl-ms:60000}") long tenantCacheTtlMillis) {
+        this.tenantRepository = tenantRepository;
+        this.tenantCacheTtlMillis = tenantCacheTtlMillis;
+    }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
@@ -24,4 +34,31 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return new User(tenant.getEmail(), tenant.getPassword(), new ArrayList<>());
     }
+
+    /**
+     * Principal for a request whose JWT has already been verified. The token proves the password,
+     * so only the account's existence is checked, through a short-lived cache instead of a query per request.
+     */
+    public UserDetails loadTokenUser(String email) throws UsernameNotFoundException {
+        tenantIdFor(email);
+        return new User(email, "", new ArrayList<>());
+    }
+
+    /**
+     * Tenant id of the account with this email, cached for {@code security.tenant-cache-ttl-ms}.
+     */
+    public String tenantIdFor(String email) throws UsernameNotFoundException {
+        long now = System.currentTimeMillis();
+        CachedTenant cached = tenantsByEmail.get(email);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.tenantId;
+        }
+        String tenantId = tenantRepository.findTenantIdByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        tenantsByEmail.put(email, new CachedTenant(tenantId, now + tenantCacheTtlMillis));
+        return tenantId;
+    }
+
+    private record CachedTenant(String tenantId, long expiresAt) {
+    }
 }
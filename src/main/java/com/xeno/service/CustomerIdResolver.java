@@ -0,0 +1,115 @@
+package com.xeno.service;
+
+import com.xeno.repository.CustomerRepository;
+import com.xeno.util.LongLongHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves Shopify customer ids to customer row ids while orders are ingested, so linking an order
+ * to its customer needs no query once the customer has been seen.
+ * <p>
+ * Ids are kept per tenant in a {@link LongLongHashMap} of at most {@code max-entries-per-tenant}
+ * entries; a full map is cleared and refills from later lookups. Only ids read from the database are
+ * kept, and a customer's row id never changes (moved tenants keep their ids), so entries are never
+ * stale. Non-numeric Shopify ids are always looked up.
+ */
+@Service
+@Slf4j
+public class CustomerIdResolver {
+
+    // Shopify ids per IN list when warming
+    private static final int WARM_CHUNK = 1000;
+
+    private final CustomerRepository customerRepository;
+    private final int maxEntriesPerTenant;
+
+    private final Map<Long, LongLongHashMap> idsByTenant = new ConcurrentHashMap<>();
+
+    public CustomerIdResolver(CustomerRepository customerRepository,
+                              @Value("${ingestion.customer-ids.max-entries-per-tenant:100000}") int maxEntriesPerTenant) {
+        this.customerRepository = customerRepository;
+        this.maxEntriesPerTenant = maxEntriesPerTenant;
+    }
+
+    /**
+     * Loads the ids of every known customer among {@code shopifyCustomerIds} with one query per chunk.
+     * Call before saving a page of orders.
+     */
+    @Transactional
+    public void warm(Long tenantId, Collection<String> shopifyCustomerIds) {
+        List<String> missing = new ArrayList<>();
+        LongLongHashMap ids = ids(tenantId);
+        synchronized (ids) {
+            for (String shopifyCustomerId : shopifyCustomerIds) {
+                long key = parse(shopifyCustomerId);
+                if (key != LongLongHashMap.MISSING && ids.get(key) == LongLongHashMap.MISSING) {
+                    missing.add(shopifyCustomerId);
+                }
+            }
+        }
+        for (int from = 0; from < missing.size(); from += WARM_CHUNK) {
+            List<Object[]> rows = customerRepository.findIdsByShopifyCustomerIds(tenantId,
+                    missing.subList(from, Math.min(from + WARM_CHUNK, missing.size())));
+            synchronized (ids) {
+                for (Object[] row : rows) {
+                    put(tenantId, ids, parse((String) row[0]), (Long) row[1]);
+                }
+            }
+        }
+        log.debug("Warmed {} customer ids for tenant {}", missing.size(), tenantId);
+    }
+
+    /**
+     * Returns the row id of the tenant's customer with this Shopify id, or null if there is none yet.
+     */
+    @Transactional
+    public Long resolve(Long tenantId, String shopifyCustomerId) {
+        long key = parse(shopifyCustomerId);
+        if (key == LongLongHashMap.MISSING) {
+            return customerRepository.findIdByShopifyCustomerId(tenantId, shopifyCustomerId).orElse(null);
+        }
+        LongLongHashMap ids = ids(tenantId);
+        synchronized (ids) {
+            long id = ids.get(key);
+            if (id != LongLongHashMap.MISSING) {
+                return id;
+            }
+        }
+        Long id = customerRepository.findIdByShopifyCustomerId(tenantId, shopifyCustomerId).orElse(null);
+        if (id != null) {
+            synchronized (ids) {
+                put(tenantId, ids, key, id);
+            }
+        }
+        return id;
+    }
+
+    private LongLongHashMap ids(Long tenantId) {
+        return idsByTenant.computeIfAbsent(tenantId, id -> new LongLongHashMap());
+    }
+
+    private void put(Long tenantId, LongLongHashMap ids, long key, long id) {
+        if (ids.size() >= maxEntriesPerTenant) {
+            log.debug("Customer id map for tenant {} is full; clearing it", tenantId);
+            ids.clear();
+        }
+        ids.put(key, id);
+    }
+
+    private static long parse(String shopifyCustomerId) {
+        try {
+            return Long.parseLong(shopifyCustomerId);
+        } catch (NumberFormatException e) {
+            return LongLongHashMap.MISSING;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.xeno.service;
+
+import com.xeno.dto.DashboardOverviewDTO;
+import com.xeno.dto.DashboardStats;
+import com.xeno.dto.OrderStatsDTO;
+import com.xeno.dto.TopCustomerDTO;
+import com.xeno.model.Tenant;
+import com.xeno.shard.TenantContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Builds the whole dashboard page in one call.
+ * <p>
+ * KPIs, top customers and the daily series don't depend on each other, so they run in parallel on
+ * a small bounded pool and the response takes about as long as the slowest of them. Whatever has not
+ * finished by {@code dashboard.overview.timeout-ms} is left out and named in
+ * {@link DashboardOverviewDTO#getIncomplete()}. The page then renders partially instead of waiting.
+ * When the queue is full a section runs on the request thread, so overload degrades to the old
+ * sequential behaviour rather than failing.
+ */
+@Service
+@Slf4j
+public class DashboardOverviewService {
+
+    private final DashboardService dashboardService;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor executor;
+
+    public DashboardOverviewService(DashboardService dashboardService,
+                                    @Value("${dashboard.overview.threads:8}") int threads,
+                                    @Value("${dashboard.overview.queue-capacity:200}") int queueCapacity,
+                                    @Value("${dashboard.overview.timeout-ms:3000}") long timeoutMs) {
+        this.dashboardService = dashboardService;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-overview-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public DashboardOverviewDTO getOverview(Tenant tenant, LocalDate startDate, LocalDate endDate, int limit) {
+        long started = System.nanoTime();
+
+        CompletableFuture<DashboardStats> stats =
+                submit(() -> dashboardService.getDashboardStats(tenant, startDate, endDate));
+        CompletableFuture<List<TopCustomerDTO>> topCustomers =
+                submit(() -> dashboardService.getTopCustomers(tenant, limit));
+        CompletableFuture<List<OrderStatsDTO>> ordersByDate =
+                submit(() -> dashboardService.getOrderStatsByDateRange(tenant, startDate, endDate));
+
+        try {
+            CompletableFuture.allOf(stats, topCustomers, ordersByDate).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Dashboard overview for tenant {} hit its {} ms deadline", tenant.getTenantId(), timeoutMs);
+        } catch (ExecutionException e) {
+            // Reported per section below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<String> incomplete = new ArrayList<>();
+        DashboardOverviewDTO overview = DashboardOverviewDTO.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .stats(result("stats", stats, tenant, incomplete))
+                .topCustomers(result("topCustomers", topCustomers, tenant, incomplete))
+                .ordersByDate(result("ordersByDate", ordersByDate, tenant, incomplete))
+                .incomplete(incomplete)
+                .build();
+        overview.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return overview;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> section) {
+        // Sections query the caller's shard
+        return CompletableFuture.supplyAsync(TenantContext.propagate(section), executor);
+    }
+
+    private static <T> T result(String section, CompletableFuture<T> future, Tenant tenant, List<String> incomplete) {
+        if (!future.isDone()) {
+            // The query keeps its pool thread until it returns; the pool size bounds how many can linger
+            future.cancel(false);
+            incomplete.add(section);
+            return null;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalArgumentException invalid) {
+                throw invalid;
+            }
+            log.error("Dashboard overview section {} failed for tenant {}", section, tenant.getTenantId(), e.getCause());
+            incomplete.add(section);
+            return null;
+        }
+    }
+}
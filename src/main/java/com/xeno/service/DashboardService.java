@@ -1,63 +1,94 @@
 package com.xeno.service;
 
+import com.xeno.analytics.OrderColumns;
 import com.xeno.dto.*;
 import com.xeno.model.Customer;
 import com.xeno.model.Tenant;
 import com.xeno.repository.CustomerRepository;
 import com.xeno.repository.OrderRepository;
 import com.xeno.repository.ProductRepository;
+import com.xeno.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Transactional(readOnly = true)
 public class DashboardService {
 
     private final CustomerRepository customerRepository;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final OrderSketchService orderSketchService;
+    private final ColumnarOrderStore columnarOrderStore;
 
-    public DashboardStats getDashboardStats(Tenant tenant) {
+    /**
+     * Overall KPIs. Unique buyers and order-value percentiles cover {@code [rangeStart, rangeEnd]}
+     * and are merged from daily sketches rather than computed over the orders table.
+     */
+    public DashboardStats getDashboardStats(Tenant tenant, LocalDate rangeStart, LocalDate rangeEnd) {
         String tenantId = tenant.getTenantId();
         
         Long totalCustomers = customerRepository.countByTenantTenantId(tenantId);
-        Long totalOrders = orderRepository.countByTenantTenantId(tenantId);
         Long totalProducts = productRepository.countByTenantTenantId(tenantId);
-        Double totalRevenue = orderRepository.getTotalRevenueByTenant(tenantId);
-        
-        if (totalRevenue == null) totalRevenue = 0.0;
-        
-        Double averageOrderValue = totalOrders > 0 ? totalRevenue / totalOrders : 0.0;
-        
-        LocalDateTime startOfDay = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
-        LocalDateTime endOfDay = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
-        
-        List<Object[]> todayStats = orderRepository.getOrderStatsByDateRange(tenantId, startOfDay, endOfDay);
-        Integer ordersToday = 0;
-        Double revenueToday = 0.0;
-        
-        if (!todayStats.isEmpty()) {
-            Object[] stats = todayStats.get(0);
-            revenueToday = stats[1] != null ? ((Number) stats[1]).doubleValue() : 0.0;
-            ordersToday = stats[2] != null ? ((Number) stats[2]).intValue() : 0;
+        // Money is aggregated as long minor units and only converted for the response
+        long totalOrders;
+        long totalRevenueCents;
+        long ordersToday = 0;
+        long revenueTodayCents = 0;
+
+        if (columnarOrderStore.isEnabled()) {
+            OrderColumns columns = columnarOrderStore.columnsFor(tenantId);
+            int today = (int) LocalDate.now().toEpochDay();
+            OrderColumns.RangeAggregate all = columns.sumRange(Integer.MIN_VALUE, Integer.MAX_VALUE, OrderColumns.ANY_STATUS);
+            OrderColumns.RangeAggregate todays = columns.sumRange(today, today, OrderColumns.ANY_STATUS);
+            totalOrders = all.count();
+            totalRevenueCents = all.sumCents();
+            ordersToday = todays.count();
+            revenueTodayCents = todays.sumCents();
+        } else {
+            totalOrders = orderRepository.countByTenantId(tenant.getId());
+            totalRevenueCents = Money.toMinorUnits(orderRepository.getTotalRevenueByTenant(tenant.getId()));
+
+            LocalDateTime startOfDay = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
+            LocalDateTime endOfDay = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
+
+            List<Object[]> todayStats = orderRepository.getOrderStatsByDateRange(tenant.getId(), startOfDay, endOfDay);
+            if (!todayStats.isEmpty()) {
+                Object[] stats = todayStats.get(0);
+                revenueTodayCents = Money.toMinorUnits((BigDecimal) stats[1]);
+                ordersToday = stats[2] != null ? ((Number) stats[2]).longValue() : 0L;
+            }
         }
+        
+        long averageOrderValueCents = totalOrders > 0 ? Math.round((double) totalRevenueCents / totalOrders) : 0L;
+
+        OrderSketchService.SketchSummary sketches = orderSketchService.summarize(tenantId, rangeStart, rangeEnd);
 
         return DashboardStats.builder()
                 .totalCustomers(totalCustomers)
                 .totalOrders(totalOrders)
                 .totalProducts(totalProducts)
-                .totalRevenue(totalRevenue)
-                .averageOrderValue(averageOrderValue)
-                .ordersToday(ordersToday)
-                .revenueToday(revenueToday)
+                .totalRevenue(Money.toMajorUnits(totalRevenueCents))
+                .averageOrderValue(Money.toMajorUnits(averageOrderValueCents))
+                .ordersToday((int) ordersToday)
+                .revenueToday(Money.toMajorUnits(revenueTodayCents))
+                .uniqueBuyers(sketches.getUniqueBuyers())
+                .orderValueP50(sketches.getP50())
+                .orderValueP90(sketches.getP90())
+                .orderValueP99(sketches.getP99())
                 .build();
     }
 
@@ -80,10 +111,17 @@ public class DashboardService {
 
     public List<OrderStatsDTO> getOrderStatsByDateRange(Tenant tenant, LocalDate startDate, LocalDate endDate) {
         String tenantId = tenant.getTenantId();
+        Map<LocalDate, OrderSketchService.SketchSummary> dailySketches =
+                orderSketchService.summarizeByDay(tenantId, startDate, endDate);
+
+        if (columnarOrderStore.isEnabled()) {
+            return getOrderStatsFromColumns(tenantId, startDate, endDate, dailySketches);
+        }
+
         LocalDateTime startDateTime = LocalDateTime.of(startDate, LocalTime.MIN);
         LocalDateTime endDateTime = LocalDateTime.of(endDate, LocalTime.MAX);
         
-        List<Object[]> stats = orderRepository.getOrderStatsByDateRange(tenantId, startDateTime, endDateTime);
+        List<Object[]> stats = orderRepository.getOrderStatsByDateRange(tenant.getId(), startDateTime, endDateTime);
         
         return stats.stream()
                 .map(stat -> {
@@ -93,12 +131,40 @@ public class DashboardService {
                     } else {
                         date = (LocalDate) stat[0];
                     }
-                    return OrderStatsDTO.builder()
-                        .date(date)
-                        .revenue(stat[1] != null ? ((Number) stat[1]).doubleValue() : 0.0)
-                        .orderCount(stat[2] != null ? ((Number) stat[2]).longValue() : 0L)
-                        .build();
+                    return toOrderStats(date,
+                            Money.toMinorUnits((BigDecimal) stat[1]),
+                            stat[2] != null ? ((Number) stat[2]).longValue() : 0L,
+                            dailySketches.get(date));
                 })
                 .collect(Collectors.toList());
     }
+
+    private List<OrderStatsDTO> getOrderStatsFromColumns(String tenantId, LocalDate startDate, LocalDate endDate,
+                                                         Map<LocalDate, OrderSketchService.SketchSummary> dailySketches) {
+        OrderColumns.DailyAggregate daily = columnarOrderStore.columnsFor(tenantId)
+                .groupByDay((int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+
+        List<OrderStatsDTO> result = new ArrayList<>();
+        for (int i = 0; i < daily.counts().length; i++) {
+            if (daily.counts()[i] == 0) {
+                continue;
+            }
+            LocalDate date = LocalDate.ofEpochDay(daily.fromDay() + i);
+            result.add(toOrderStats(date, daily.sumCents()[i], daily.counts()[i], dailySketches.get(date)));
+        }
+        return result;
+    }
+
+    private static OrderStatsDTO toOrderStats(LocalDate date, long revenueCents, long orderCount,
+                                              OrderSketchService.SketchSummary sketch) {
+        return OrderStatsDTO.builder()
+                .date(date)
+                .revenue(Money.toMajorUnits(revenueCents))
+                .orderCount(orderCount)
+                .uniqueBuyers(sketch != null ? sketch.getUniqueBuyers() : null)
+                .orderValueP50(sketch != null ? sketch.getP50() : null)
+                .orderValueP90(sketch != null ? sketch.getP90() : null)
+                .orderValueP99(sketch != null ? sketch.getP99() : null)
+                .build();
+    }
 }
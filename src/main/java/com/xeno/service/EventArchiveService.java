@@ -0,0 +1,328 @@
+package com.xeno.service;
+
+import com.xeno.archive.ArchiveColumn;
+import com.xeno.archive.ColumnarArchiveReader;
+import com.xeno.archive.ColumnarArchiveWriter;
+import com.xeno.dto.ArchiveMonthDTO;
+import com.xeno.dto.ArchiveSummaryDTO;
+import com.xeno.model.Tenant;
+import com.xeno.repository.TenantRepository;
+import com.xeno.shard.ShardDirectory;
+import com.xeno.shard.TenantContext;
+import com.xeno.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.xeno.archive.ArchiveColumn.booleanColumn;
+import static com.xeno.archive.ArchiveColumn.longColumn;
+import static com.xeno.archive.ArchiveColumn.stringColumn;
+
+/**
+ * Cold storage for aged cart events, checkout events and orders.
+ * <p>
+ * {@link #archive()} exports every month older than {@code archive.after-months} into one columnar
+ * file per dataset, tenant and month under {@code archive.dir}
+ * ({@code <dataset>/<tenantId>/<yyyy-MM>.xca}, see {@link ColumnarArchiveWriter}). Months already on
+ * disk are skipped, and the rows stay in the database until retention removes them. Event partitions
+ * that retention detached ({@code events.retention.mode=detach}) are exported again from the detached
+ * table and then dropped. {@link #summarize} answers yearly reports from the files, reading only the
+ * value column. Each shard exports the tenants placed on it, so rows left behind by a shard move that
+ * has not been purged yet are never archived.
+ */
+@Service
+@Slf4j
+public class EventArchiveService {
+
+    private static final String FILE_SUFFIX = ".xca";
+
+    private record Field(ArchiveColumn column, String expression) {}
+
+    public enum Dataset {
+        CARTS("cart_events", "created_at", "cart_value", true, List.of(
+                new Field(longColumn("id"), "id"),
+                new Field(stringColumn("cart_token"), "cart_token"),
+                new Field(stringColumn("customer_email"), "customer_email"),
+                new Field(stringColumn("customer_id"), "customer_id"),
+                new Field(longColumn("cart_value"), Money.toMinorUnitsSql("cart_value")),
+                new Field(longColumn("item_count"), "item_count"),
+                new Field(stringColumn("event_type"), "event_type"),
+                new Field(longColumn("created_at"), epochMillis("created_at")),
+                new Field(booleanColumn("abandoned"), "is_abandoned"),
+                new Field(longColumn("abandoned_at"), epochMillis("abandoned_at")))),
+        CHECKOUTS("checkout_events", "created_at", "checkout_value", true, List.of(
+                new Field(longColumn("id"), "id"),
+                new Field(stringColumn("checkout_token"), "checkout_token"),
+                new Field(stringColumn("cart_token"), "cart_token"),
+                new Field(stringColumn("customer_email"), "customer_email"),
+                new Field(stringColumn("customer_id"), "customer_id"),
+                new Field(longColumn("checkout_value"), Money.toMinorUnitsSql("checkout_value")),
+                new Field(longColumn("item_count"), "item_count"),
+                new Field(stringColumn("event_type"), "event_type"),
+                new Field(booleanColumn("completed"), "completed"),
+                new Field(booleanColumn("abandoned"), "abandoned"),
+                new Field(longColumn("created_at"), epochMillis("created_at")),
+                new Field(longColumn("completed_at"), epochMillis("completed_at")),
+                new Field(longColumn("abandoned_at"), epochMillis("abandoned_at")))),
+        ORDERS("orders", "order_date", "total_price", false, List.of(
+                new Field(longColumn("id"), "id"),
+                new Field(stringColumn("shopify_order_id"), "shopify_order_id"),
+                new Field(stringColumn("order_number"), "order_number"),
+                new Field(longColumn("customer_id"), "customer_id"),
+                new Field(longColumn("order_date"), epochMillis("order_date")),
+                new Field(longColumn("total_price"), Money.toMinorUnitsSql("total_price")),
+                new Field(longColumn("subtotal_price"), Money.toMinorUnitsSql("subtotal_price")),
+                new Field(longColumn("total_tax"), Money.toMinorUnitsSql("total_tax")),
+                new Field(longColumn("total_shipping"), Money.toMinorUnitsSql("total_shipping")),
+                new Field(stringColumn("financial_status"), "financial_status"),
+                new Field(stringColumn("fulfillment_status"), "fulfillment_status"),
+                new Field(stringColumn("currency"), "currency"),
+                new Field(longColumn("item_count"), "item_count")));
+
+        private final String table;
+        private final String timeColumn;
+        private final String valueColumn;
+        // Event tables key rows by the tenant's string id, orders by tenants.id
+        private final boolean keyedByTenantId;
+        private final List<Field> fields;
+
+        Dataset(String table, String timeColumn, String valueColumn, boolean keyedByTenantId, List<Field> fields) {
+            this.table = table;
+            this.timeColumn = timeColumn;
+            this.valueColumn = valueColumn;
+            this.keyedByTenantId = keyedByTenantId;
+            this.fields = fields;
+        }
+
+        public static Dataset parse(String name) {
+            for (Dataset dataset : values()) {
+                if (dataset.name().equalsIgnoreCase(name)) {
+                    return dataset;
+                }
+            }
+            throw new IllegalArgumentException("dataset must be one of carts, checkouts, orders");
+        }
+
+        public String directory() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        private List<ArchiveColumn> columns() {
+            return fields.stream().map(Field::column).toList();
+        }
+
+        private String select(String source) {
+            return "SELECT " + String.join(", ", fields.stream().map(Field::expression).toList()) +
+                    " FROM " + source + " WHERE tenant_id = ? AND " + timeColumn + " >= ? AND " + timeColumn + " < ?" +
+                    " ORDER BY " + timeColumn + ", id";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TenantRepository tenantRepository;
+    private final ShardDirectory shardDirectory;
+    private final boolean enabled;
+    private final Path directory;
+    private final int afterMonths;
+
+    public EventArchiveService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               TenantRepository tenantRepository,
+                               ShardDirectory shardDirectory,
+                               @Value("${archive.enabled:false}") boolean enabled,
+                               @Value("${archive.dir:./archive}") String directory,
+                               @Value("${archive.after-months:3}") int afterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.tenantRepository = tenantRepository;
+        this.shardDirectory = shardDirectory;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.afterMonths = Math.max(1, afterMonths);
+    }
+
+    @Scheduled(cron = "${archive.cron:0 45 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth before = YearMonth.now().minusMonths(afterMonths);
+        for (String shard : shardDirectory.shardIds()) {
+            TenantContext.runOnShard(shard, () -> archive(shard, before));
+        }
+    }
+
+    private void archive(String shard, YearMonth before) {
+        for (Dataset dataset : Dataset.values()) {
+            try {
+                if (dataset.keyedByTenantId) {
+                    archiveDetachedPartitions(shard, dataset);
+                }
+                archiveAgedMonths(shard, dataset, before);
+            } catch (IOException | DataAccessException e) {
+                log.error("Archiving {} failed on shard {}", dataset.table, shard, e);
+            }
+        }
+    }
+
+    /**
+     * Per-month row counts and value totals for {@code [from, to]}, read from the archive files.
+     * Months without a file are left out.
+     */
+    public ArchiveSummaryDTO summarize(String tenantId, Dataset dataset, YearMonth from, YearMonth to) {
+        List<ArchiveMonthDTO> months = new ArrayList<>();
+        long rows = 0;
+        long totalCents = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            Path file = file(dataset, tenantId, month);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try (ColumnarArchiveReader reader = ColumnarArchiveReader.open(file)) {
+                long[] monthCents = new long[1];
+                reader.scan(List.of(dataset.valueColumn), batch -> {
+                    // Null values decode as 0
+                    for (long cents : batch.longs(dataset.valueColumn)) {
+                        monthCents[0] += cents;
+                    }
+                });
+                months.add(ArchiveMonthDTO.builder()
+                        .month(month)
+                        .rows(reader.rowCount())
+                        .totalValue(Money.toDecimal(monthCents[0]))
+                        .build());
+                rows += reader.rowCount();
+                totalCents += monthCents[0];
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archive " + file, e);
+            }
+        }
+        return ArchiveSummaryDTO.builder()
+                .dataset(dataset.directory())
+                .from(from)
+                .to(to)
+                .rows(rows)
+                .totalValue(Money.toDecimal(totalCents))
+                .months(months)
+                .build();
+    }
+
+    private void archiveDetachedPartitions(String shard, Dataset dataset) throws IOException {
+        List<String> tables = jdbcTemplate.queryForList("SELECT c.relname FROM pg_class c " +
+                "WHERE c.relkind = 'r' AND NOT c.relispartition AND pg_table_is_visible(c.oid) " +
+                "AND starts_with(c.relname, ?)", String.class, dataset.table + "_p");
+        for (String table : tables) {
+            YearMonth month = EventPartitionService.partitionMonth(table);
+            if (month == null || !table.equals(EventPartitionService.partitionName(dataset.table, month))) {
+                continue;
+            }
+            for (String tenantId : jdbcTemplate.queryForList("SELECT DISTINCT tenant_id FROM " + table, String.class)) {
+                if (shard.equals(shardDirectory.shardFor(tenantId))) {
+                    export(dataset, table, tenantId, tenantId, month);
+                }
+            }
+            jdbcTemplate.execute("DROP TABLE " + table);
+            log.info("Archived and dropped detached partition {}", table);
+        }
+    }
+
+    private void archiveAgedMonths(String shard, Dataset dataset, YearMonth before) throws IOException {
+        for (Tenant tenant : tenantRepository.findAll()) {
+            if (!shard.equals(shardDirectory.shardFor(tenant.getTenantId()))) {
+                continue;
+            }
+            Object tenantKey = dataset.keyedByTenantId ? tenant.getTenantId() : tenant.getId();
+            Timestamp earliest = jdbcTemplate.queryForObject("SELECT MIN(" + dataset.timeColumn + ") FROM " +
+                    dataset.table + " WHERE tenant_id = ?", Timestamp.class, tenantKey);
+            if (earliest == null) {
+                continue;
+            }
+            for (YearMonth month = YearMonth.from(earliest.toLocalDateTime()); month.isBefore(before);
+                 month = month.plusMonths(1)) {
+                if (!Files.exists(file(dataset, tenant.getTenantId(), month))) {
+                    export(dataset, dataset.table, tenant.getTenantId(), tenantKey, month);
+                }
+            }
+        }
+    }
+
+    // Writes to a temporary file and moves it into place, so readers never see a partial archive
+    private void export(Dataset dataset, String source, String tenantId, Object tenantKey, YearMonth month)
+            throws IOException {
+        Path target = file(dataset, tenantId, month);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<ArchiveColumn> columns = dataset.columns();
+        ColumnarArchiveWriter writer = new ColumnarArchiveWriter(temp, columns);
+        try (writer) {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(dataset.select(source));
+                ps.setFetchSize(5000);
+                ps.setObject(1, tenantKey);
+                ps.setTimestamp(2, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+                ps.setTimestamp(3, Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+                return ps;
+            }, rs -> {
+                try {
+                    writer.addRow(readRow(rs, columns));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (writer.rowCount() == 0) {
+            Files.delete(temp);
+            return;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Archived {} {} rows of tenant {} for {} ({} bytes)",
+                writer.rowCount(), dataset.directory(), tenantId, month, Files.size(target));
+    }
+
+    private static Object[] readRow(ResultSet rs, List<ArchiveColumn> columns) throws SQLException {
+        Object[] row = new Object[columns.size()];
+        for (int c = 0; c < row.length; c++) {
+            Object value = switch (columns.get(c).type()) {
+                case LONG -> rs.getLong(c + 1);
+                case BOOLEAN -> rs.getBoolean(c + 1);
+                case STRING -> rs.getString(c + 1);
+            };
+            row[c] = rs.wasNull() ? null : value;
+        }
+        return row;
+    }
+
+    private Path file(Dataset dataset, String tenantId, YearMonth month) {
+        return directory.resolve(dataset.directory()).resolve(tenantId).resolve(month + FILE_SUFFIX);
+    }
+
+    // Local timestamps are archived as epoch milliseconds read at UTC
+    private static String epochMillis(String column) {
+        return "(EXTRACT(EPOCH FROM " + column + ") * 1000)::bigint";
+    }
+}
@@ -0,0 +1,183 @@
+package com.xeno.service;
+
+import com.xeno.repository.TenantRepository;
+import com.xeno.shard.ShardDirectory;
+import com.xeno.shard.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitions of {@code cart_events} and {@code checkout_events}, and their retention.
+ * <p>
+ * Once the tables have been converted with {@code db/partitioning/partition_event_tables.sql}, each
+ * month's partition is created {@code events.partitioning.months-ahead} months in advance, so inserts
+ * never fall through to the default partition and {@code created_at} range queries prune to the months
+ * they cover. Retention works on whole partitions: a month older than every tenant's retention is
+ * detached and then dropped, or left detached for archiving with {@code events.retention.mode=detach}.
+ * Tenants with a shorter retention have their rows deleted from the months still attached, one
+ * partition at a time. Tables that are not partitioned are left alone. Every shard is maintained
+ * in turn, against the tenants it holds.
+ */
+@Service
+@Slf4j
+public class EventPartitionService {
+
+    public static final List<String> TABLES = List.of("cart_events", "checkout_events");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TenantRepository tenantRepository;
+    private final ShardDirectory shardDirectory;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final boolean retentionEnabled;
+    private final int defaultRetentionMonths;
+    private final boolean dropExpired;
+
+    public EventPartitionService(JdbcTemplate jdbcTemplate,
+                                 TenantRepository tenantRepository,
+                                 ShardDirectory shardDirectory,
+                                 @Value("${events.partitioning.enabled:false}") boolean enabled,
+                                 @Value("${events.partitioning.months-ahead:3}") int monthsAhead,
+                                 @Value("${events.retention.enabled:false}") boolean retentionEnabled,
+                                 @Value("${events.retention.default-months:13}") int defaultRetentionMonths,
+                                 @Value("${events.retention.mode:drop}") String retentionMode) {
+        if (!"drop".equals(retentionMode) && !"detach".equals(retentionMode)) {
+            throw new IllegalArgumentException("events.retention.mode must be drop or detach");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.tenantRepository = tenantRepository;
+        this.shardDirectory = shardDirectory;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionEnabled = retentionEnabled;
+        this.defaultRetentionMonths = Math.max(1, defaultRetentionMonths);
+        this.dropExpired = "drop".equals(retentionMode);
+    }
+
+    public static String partitionName(String table, YearMonth month) {
+        return table + "_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Month covered by a partition named by {@link #partitionName}, or null for any other table.
+     */
+    public static YearMonth partitionMonth(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.find()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${events.partitioning.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (String shard : shardDirectory.shardIds()) {
+            TenantContext.runOnShard(shard, () -> maintain(shard, current));
+        }
+    }
+
+    private void maintain(String shard, YearMonth current) {
+        for (String table : TABLES) {
+            try {
+                if (!isPartitioned(table)) {
+                    log.warn("{} is not partitioned on shard {}; run db/partitioning/partition_event_tables.sql first",
+                            table, shard);
+                    continue;
+                }
+                createPartitions(table, current);
+                if (retentionEnabled) {
+                    applyRetention(table, current);
+                }
+            } catch (DataAccessException e) {
+                log.error("Partition maintenance failed for {} on shard {}", table, shard, e);
+            }
+        }
+    }
+
+    private boolean isPartitioned(String table) {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid " +
+                "WHERE c.relname = ? AND pg_table_is_visible(c.oid))", Boolean.class, table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private void createPartitions(String table, YearMonth current) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(table, month) +
+                    " PARTITION OF " + table + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" +
+                    month.plusMonths(1).atDay(1) + "')");
+        }
+    }
+
+    // Monthly partitions currently attached to the table, oldest first
+    private TreeMap<YearMonth, String> attachedPartitions(String table) {
+        TreeMap<YearMonth, String> partitions = new TreeMap<>();
+        jdbcTemplate.query("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = ?::regclass", rs -> {
+            String name = rs.getString(1);
+            YearMonth month = partitionMonth(name);
+            if (month != null) {
+                partitions.put(month, name);
+            }
+        }, table);
+        return partitions;
+    }
+
+    private void applyRetention(String table, YearMonth current) {
+        Map<String, Integer> retentionByTenant = new HashMap<>();
+        for (Object[] row : tenantRepository.findEventRetention()) {
+            Integer months = (Integer) row[1];
+            retentionByTenant.put((String) row[0], months != null ? Math.max(1, months) : defaultRetentionMonths);
+        }
+        int longest = retentionByTenant.values().stream().max(Integer::compare).orElse(defaultRetentionMonths);
+
+        // A month is kept while it is within the longest retention of any tenant
+        YearMonth keepFrom = current.minusMonths(longest);
+        TreeMap<YearMonth, String> partitions = attachedPartitions(table);
+        for (Map.Entry<YearMonth, String> partition : partitions.headMap(keepFrom).entrySet()) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition.getValue());
+            if (dropExpired) {
+                jdbcTemplate.execute("DROP TABLE " + partition.getValue());
+            }
+            log.info("{} partition {} expired and was {}", table, partition.getValue(),
+                    dropExpired ? "dropped" : "detached");
+        }
+
+        for (Map.Entry<String, Integer> tenant : retentionByTenant.entrySet()) {
+            if (tenant.getValue() >= longest) {
+                continue;
+            }
+            YearMonth tenantKeepFrom = current.minusMonths(tenant.getValue());
+            for (String partition : partitions.subMap(keepFrom, tenantKeepFrom).values()) {
+                int deleted = jdbcTemplate.update("DELETE FROM " + partition + " WHERE tenant_id = ?", tenant.getKey());
+                if (deleted > 0) {
+                    log.info("Deleted {} expired rows of tenant {} from {}", deleted, tenant.getKey(), partition);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.xeno.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xeno.model.CartEvent;
+import com.xeno.model.CheckoutEvent;
+import com.xeno.model.CheckoutSession;
+import com.xeno.repository.CartEventRepository;
+import com.xeno.repository.CheckoutEventRepository;
+import com.xeno.repository.CheckoutSessionRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Time-bounded reads over the cart/checkout event tables and checkout sessions.
+ * <p>
+ * Pages are ordered newest first and continued with an opaque {@code (timestamp, id)} keyset
+ * cursor, so every page is an index range scan on {@code (tenant_id, <timestamp>)} no matter how deep
+ * the caller goes. Bulk pulls use {@link #exportCartEvents}/{@link #exportCheckoutEvents}, which stream
+ * rows as NDJSON from a server-side cursor instead of building a list.
+ */
+@Service
+@Slf4j
+public class EventQueryService {
+
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
+    private final CartEventRepository cartEventRepository;
+    private final CheckoutEventRepository checkoutEventRepository;
+    private final CheckoutSessionRepository checkoutSessionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public EventQueryService(CartEventRepository cartEventRepository,
+                             CheckoutEventRepository checkoutEventRepository,
+                             CheckoutSessionRepository checkoutSessionRepository,
+                             EntityManager entityManager,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.cartEventRepository = cartEventRepository;
+        this.checkoutEventRepository = checkoutEventRepository;
+        this.checkoutSessionRepository = checkoutSessionRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public Map<String, Object> getCartEvents(String tenantId, LocalDateTime from, LocalDateTime to,
+                                             Boolean abandoned, String cursor, int limit) {
+        Cursor position = Cursor.decode(cursor, to);
+        List<CartEvent> rows = cartEventRepository.findPage(tenantId, from, to,
+                position.at(), position.id(), abandoned, PageRequest.of(0, limit + 1));
+        return toPage(rows, limit, from, to, CartEvent::getCreatedAt, CartEvent::getId);
+    }
+
+    public Map<String, Object> getCheckoutEvents(String tenantId, LocalDateTime from, LocalDateTime to,
+                                                 String cursor, int limit) {
+        Cursor position = Cursor.decode(cursor, to);
+        List<CheckoutEvent> rows = checkoutEventRepository.findPage(tenantId, from, to,
+                position.at(), position.id(), PageRequest.of(0, limit + 1));
+        return toPage(rows, limit, from, to, CheckoutEvent::getCreatedAt, CheckoutEvent::getId);
+    }
+
+    /**
+     * Checkout sessions started within {@code [from, to)}, optionally in one {@code state}.
+     */
+    public Map<String, Object> getCheckoutSessions(String tenantId, LocalDateTime from, LocalDateTime to,
+                                                   String state, String cursor, int limit) {
+        Cursor position = Cursor.decode(cursor, to);
+        List<CheckoutSession> rows = checkoutSessionRepository.findPage(tenantId, from, to,
+                position.at(), position.id(), state, PageRequest.of(0, limit + 1));
+        return toPage(rows, limit, from, to, CheckoutSession::getStartedAt, CheckoutSession::getId);
+    }
+
+    public StreamingResponseBody exportCartEvents(String tenantId, LocalDateTime from, LocalDateTime to) {
+        return out -> writeNdjson(out, () -> cartEventRepository.streamByTenantIdAndCreatedAt(tenantId, from, to));
+    }
+
+    public StreamingResponseBody exportCheckoutEvents(String tenantId, LocalDateTime from, LocalDateTime to) {
+        return out -> writeNdjson(out, () -> checkoutEventRepository.streamByTenantIdAndCreatedAt(tenantId, from, to));
+    }
+
+    private <T> Map<String, Object> toPage(List<T> rows, int limit, LocalDateTime from, LocalDateTime to,
+                                           Function<T, LocalDateTime> at, Function<T, Long> id) {
+        boolean hasMore = rows.size() > limit;
+        List<T> page = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            T last = page.get(page.size() - 1);
+            nextCursor = new Cursor(at.apply(last), id.apply(last)).encode();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("events", page);
+        response.put("count", page.size());
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", nextCursor);
+        response.put("from", from);
+        response.put("to", to);
+        return response;
+    }
+
+    /**
+     * Writes one JSON document per line. Rows are detached as they are written so the persistence
+     * context stays empty however large the range is.
+     */
+    private <T> void writeNdjson(OutputStream out, Supplier<Stream<T>> rows) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<T> stream = rows.get()) {
+                int written = 0;
+                for (T row : (Iterable<T>) stream::iterator) {
+                    out.write(objectMapper.writeValueAsBytes(row));
+                    out.write('\n');
+                    entityManager.detach(row);
+                    if (++written % EXPORT_FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private record Cursor(LocalDateTime at, Long id) {
+
+        static Cursor decode(String cursor, LocalDateTime to) {
+            if (cursor == null || cursor.isBlank()) {
+                // Upper bound is already enforced by createdAt < to; this just admits every row below it
+                return new Cursor(to, Long.MAX_VALUE);
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((at + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.xeno.service;
+
+import com.xeno.analytics.QuantileSketch;
+import com.xeno.dto.FunnelReportDTO;
+import com.xeno.dto.FunnelStatsDTO;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.model.DailyFunnel;
+import com.xeno.repository.DailyFunnelRepository;
+import com.xeno.shard.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cart → checkout → completed checkout → order funnel, kept as a per-tenant daily rollup.
+ * <p>
+ * Stage counts are added to {@code daily_funnel} with atomic upserts in the caller's transaction.
+ * Stage durations go into in-memory quantile sketches once that transaction commits, so a rolled-back
+ * batch that is retried event by event records them once; {@link #flush()} merges them into the day's
+ * row under a row lock, so several instances can add to the same day. Reads load at most one row
+ * per day in range and never touch the event tables.
+ * <p>
+ * Every stage is bucketed by when its webhook was received on the server clock, so a day's stages
+ * line up. Orders read by the Shopify sync have no receipt time and stay out of the funnel.
+ */
+@Service
+@Slf4j
+public class FunnelService {
+
+    private final DailyFunnelRepository dailyFunnelRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<DayKey, Durations> pending = new ConcurrentHashMap<>();
+
+    private record DayKey(String tenantId, LocalDate day) {}
+
+    private static final class Durations {
+        private final QuantileSketch cartToCheckout = new QuantileSketch();
+        private final QuantileSketch checkoutToCompletion = new QuantileSketch();
+
+        private void merge(Durations other) {
+            cartToCheckout.merge(other.cartToCheckout);
+            checkoutToCompletion.merge(other.checkoutToCompletion);
+        }
+    }
+
+    public FunnelService(DailyFunnelRepository dailyFunnelRepository, PlatformTransactionManager transactionManager) {
+        this.dailyFunnelRepository = dailyFunnelRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void recordCartsCreated(String tenantId, LocalDate day, int count) {
+        dailyFunnelRepository.increment(tenantId, day, count, 0, 0, 0);
+    }
+
+    /**
+     * @param cartCreatedAt when the checkout's cart was created, or null if unknown
+     */
+    public void recordCheckoutStarted(String tenantId, LocalDateTime at, LocalDateTime cartCreatedAt) {
+        List<Long> durations = cartCreatedAt != null
+                ? List.of(Math.max(0, Duration.between(cartCreatedAt, at).toSeconds()))
+                : List.of();
+        recordCheckoutsStarted(tenantId, at.toLocalDate(), 1, durations);
+    }
+
+    /**
+     * Batched {@link #recordCheckoutStarted}: {@code count} checkouts started on {@code day}, with the
+     * cart → checkout durations of those whose cart was seen.
+     */
+    public void recordCheckoutsStarted(String tenantId, LocalDate day, int count, Collection<Long> cartToCheckoutSeconds) {
+        dailyFunnelRepository.increment(tenantId, day, 0, count, 0, 0);
+        if (!cartToCheckoutSeconds.isEmpty()) {
+            List<Long> seconds = List.copyOf(cartToCheckoutSeconds);
+            addAfterCommit(new DayKey(tenantId, day), d -> seconds.forEach(d.cartToCheckout::add));
+        }
+    }
+
+    /**
+     * @param startedAt when the checkout started, or null if its start was never seen
+     */
+    public void recordCheckoutCompleted(String tenantId, LocalDateTime at, LocalDateTime startedAt) {
+        dailyFunnelRepository.increment(tenantId, at.toLocalDate(), 0, 0, 1, 0);
+        if (startedAt != null) {
+            long seconds = Math.max(0, Duration.between(startedAt, at).toSeconds());
+            addAfterCommit(new DayKey(tenantId, at.toLocalDate()), d -> d.checkoutToCompletion.add(seconds));
+        }
+    }
+
+    // Durations of a transaction that rolls back are dropped; without a transaction they count at once
+    private void addAfterCommit(DayKey key, Consumer<Durations> add) {
+        Runnable record = () -> pending.compute(key, (k, durations) -> {
+            Durations d = durations != null ? durations : new Durations();
+            add.accept(d);
+            return d;
+        });
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return TenantDataVersionService.DATA_LISTENER_ORDER;
+            }
+
+            @Override
+            public void afterCommit() {
+                record.run();
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(TenantDataVersionService.DATA_LISTENER_ORDER)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        if (!event.isNewOrder() || event.getReceivedAt() == null) {
+            return;
+        }
+        dailyFunnelRepository.increment(event.getTenantId(), event.getReceivedAt().toLocalDate(), 0, 0, 0, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.funnel.flush-interval-ms:5000}")
+    public void flush() {
+        for (DayKey key : pending.keySet()) {
+            Durations durations = pending.remove(key);
+            if (durations == null) {
+                continue;
+            }
+            try {
+                TenantContext.run(key.tenantId(), () -> transactionTemplate.executeWithoutResult(status -> {
+                    // Counts are upserted before durations are recorded, but make sure the row exists
+                    dailyFunnelRepository.increment(key.tenantId(), key.day(), 0, 0, 0, 0);
+                    DailyFunnel row = dailyFunnelRepository.findForUpdate(key.tenantId(), key.day()).orElseThrow();
+                    QuantileSketch cartToCheckout = QuantileSketch.fromBytes(row.getCartToCheckoutSeconds());
+                    cartToCheckout.merge(durations.cartToCheckout);
+                    QuantileSketch checkoutToCompletion = QuantileSketch.fromBytes(row.getCheckoutToCompletionSeconds());
+                    checkoutToCompletion.merge(durations.checkoutToCompletion);
+                    row.setCartToCheckoutSeconds(cartToCheckout.toBytes());
+                    row.setCheckoutToCompletionSeconds(checkoutToCompletion.toBytes());
+                }));
+            } catch (RuntimeException e) {
+                log.error("Failed to flush funnel durations for {} {}", key.tenantId(), key.day(), e);
+                pending.merge(key, durations, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                });
+            }
+        }
+    }
+
+    /**
+     * Funnel for {@code [startDate, endDate]}: range totals plus one entry per day with activity.
+     */
+    @Transactional(readOnly = true)
+    public FunnelReportDTO getFunnel(String tenantId, LocalDate startDate, LocalDate endDate) {
+        List<DailyFunnel> rows = dailyFunnelRepository
+                .findByTenantIdAndFunnelDateBetweenOrderByFunnelDate(tenantId, startDate, endDate);
+
+        List<FunnelStatsDTO> days = new ArrayList<>(rows.size());
+        Durations rangeDurations = new Durations();
+        long carts = 0;
+        long checkouts = 0;
+        long completed = 0;
+        long orders = 0;
+        for (DailyFunnel row : rows) {
+            Durations durations = new Durations();
+            durations.cartToCheckout.merge(QuantileSketch.fromBytes(row.getCartToCheckoutSeconds()));
+            durations.checkoutToCompletion.merge(QuantileSketch.fromBytes(row.getCheckoutToCompletionSeconds()));
+            // Durations recorded since the last flush are not in the row yet
+            pending.computeIfPresent(new DayKey(tenantId, row.getFunnelDate()), (key, live) -> {
+                durations.merge(live);
+                return live;
+            });
+            rangeDurations.merge(durations);
+            carts += row.getCartsCreated();
+            checkouts += row.getCheckoutsStarted();
+            completed += row.getCheckoutsCompleted();
+            orders += row.getOrders();
+            days.add(toStats(row.getFunnelDate(), row.getCartsCreated(), row.getCheckoutsStarted(),
+                    row.getCheckoutsCompleted(), row.getOrders(), durations));
+        }
+
+        return FunnelReportDTO.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .total(toStats(null, carts, checkouts, completed, orders, rangeDurations))
+                .days(days)
+                .build();
+    }
+
+    private static FunnelStatsDTO toStats(LocalDate date, long carts, long checkouts, long completed, long orders,
+                                          Durations durations) {
+        return FunnelStatsDTO.builder()
+                .date(date)
+                .cartsCreated(carts)
+                .checkoutsStarted(checkouts)
+                .checkoutsCompleted(completed)
+                .orders(orders)
+                .cartToCheckoutRate(rate(checkouts, carts))
+                .checkoutCompletionRate(rate(completed, checkouts))
+                .completionToOrderRate(rate(orders, completed))
+                .medianCartToCheckoutSeconds(median(durations.cartToCheckout))
+                .medianCheckoutToCompletionSeconds(median(durations.checkoutToCompletion))
+                .build();
+    }
+
+    private static Double rate(long numerator, long denominator) {
+        return denominator > 0 ? (double) numerator / denominator : null;
+    }
+
+    private static Long median(QuantileSketch sketch) {
+        return sketch.count() > 0 ? sketch.quantile(0.5) : null;
+    }
+}
@@ -0,0 +1,284 @@
+package com.xeno.service;
+
+import com.xeno.dto.LiveDashboardDelta;
+import com.xeno.event.CustomerIngestedEvent;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.event.StorefrontActivityEvent;
+import com.xeno.util.Money;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes KPI deltas to dashboards over Server-Sent Events.
+ * <p>
+ * Ingest paths publish events after they commit; this service adds them to a pending delta for the
+ * tenant, and a single ticker sends each tenant at most one {@code delta} event per
+ * {@code dashboard.live.interval-ms}, however many orders or webhooks arrived in between. Tenants
+ * with no open connection are not tracked at all.
+ * <p>
+ * Connections are async requests, so an idle subscriber holds a socket but no request thread. Sends
+ * run on a small fixed pool; a heartbeat comment every {@code heartbeat-ms} keeps proxies from closing
+ * quiet streams and drops connections whose client has gone away.
+ */
+@Service
+@Slf4j
+public class LiveDashboardService {
+
+    private final long intervalMs;
+    private final long heartbeatMs;
+    private final long timeoutMs;
+    private final int maxConnections;
+    private final int sendThreads;
+
+    private final Map<String, TenantFeed> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private ScheduledExecutorService ticker;
+    private ExecutorService senders;
+    private volatile long lastHeartbeat = System.currentTimeMillis();
+
+    public LiveDashboardService(@Value("${dashboard.live.interval-ms:1000}") long intervalMs,
+                                @Value("${dashboard.live.heartbeat-ms:15000}") long heartbeatMs,
+                                @Value("${dashboard.live.timeout-ms:1800000}") long timeoutMs,
+                                @Value("${dashboard.live.max-connections:10000}") int maxConnections,
+                                @Value("${dashboard.live.send-threads:4}") int sendThreads) {
+        this.intervalMs = intervalMs;
+        this.heartbeatMs = heartbeatMs;
+        this.timeoutMs = timeoutMs;
+        this.maxConnections = maxConnections;
+        this.sendThreads = sendThreads;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger senderCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-live-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-live-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+        feeds.values().forEach(feed -> feed.subscribers.forEach(subscriber -> subscriber.emitter().complete()));
+    }
+
+    /**
+     * Opens a live feed for the tenant, or returns null when the connection limit is reached.
+     */
+    public SseEmitter subscribe(String tenantId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new AtomicBoolean());
+        // Added under the map's lock so it cannot race with the last subscriber removing the feed
+        TenantFeed feed = feeds.compute(tenantId, (id, current) -> {
+            TenantFeed target = current != null ? current : new TenantFeed();
+            target.subscribers.add(subscriber);
+            return target;
+        });
+        emitter.onCompletion(() -> release(tenantId, feed, subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> release(tenantId, feed, subscriber));
+        try {
+            emitter.send(SseEmitter.event().name("connected").reconnectTime(intervalMs * 5)
+                    .data(Map.of("intervalMs", intervalMs), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        TenantFeed feed = feeds.get(event.getTenantId());
+        if (feed == null) {
+            return;
+        }
+        feed.lock.lock();
+        try {
+            if (event.isNewOrder()) {
+                feed.newOrders++;
+                feed.revenueMinorUnits += event.getTotalMinorUnits();
+            } else {
+                feed.updatedOrders++;
+            }
+            feed.dirty = true;
+        } finally {
+            feed.lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerIngested(CustomerIngestedEvent event) {
+        TenantFeed feed = feeds.get(event.getTenantId());
+        if (feed == null || !event.isNewCustomer()) {
+            return;
+        }
+        feed.lock.lock();
+        try {
+            feed.newCustomers++;
+            feed.dirty = true;
+        } finally {
+            feed.lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStorefrontActivity(StorefrontActivityEvent event) {
+        TenantFeed feed = feeds.get(event.getTenantId());
+        if (feed == null) {
+            return;
+        }
+        feed.lock.lock();
+        try {
+            feed.cartEvents += event.getCartEvents();
+            feed.cartsCreated += event.getCartsCreated();
+            feed.checkoutEvents += event.getCheckoutEvents();
+            feed.checkoutsStarted += event.getCheckoutsStarted();
+            feed.dirty = true;
+        } finally {
+            feed.lock.unlock();
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            boolean heartbeat = now - lastHeartbeat >= heartbeatMs;
+            if (heartbeat) {
+                lastHeartbeat = now;
+            }
+            feeds.forEach((tenantId, feed) -> {
+                // While the previous send is still going out, changes keep folding into the next delta
+                if (!feed.sending.compareAndSet(false, true)) {
+                    return;
+                }
+                LiveDashboardDelta delta = feed.drain();
+                if (delta != null) {
+                    senders.execute(() -> send(tenantId, feed, SseEmitter.event().name("delta")
+                            .data(delta, MediaType.APPLICATION_JSON).build()));
+                } else if (heartbeat) {
+                    senders.execute(() -> send(tenantId, feed, SseEmitter.event().comment("heartbeat").build()));
+                } else {
+                    feed.sending.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Live dashboard tick failed", e);
+        }
+    }
+
+    private void send(String tenantId, TenantFeed feed, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        try {
+            for (Subscriber subscriber : feed.subscribers) {
+                try {
+                    subscriber.emitter().send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away or the emitter already completed
+                    release(tenantId, feed, subscriber);
+                    subscriber.emitter().completeWithError(e);
+                }
+            }
+        } finally {
+            feed.sending.set(false);
+        }
+    }
+
+    private void release(String tenantId, TenantFeed feed, Subscriber subscriber) {
+        if (!subscriber.released().compareAndSet(false, true)) {
+            return;
+        }
+        connections.decrementAndGet();
+        // Stop tracking the tenant once its last dashboard disconnects
+        feeds.computeIfPresent(tenantId, (id, current) -> {
+            current.subscribers.remove(subscriber);
+            return current.subscribers.isEmpty() ? null : current;
+        });
+        feed.subscribers.remove(subscriber);
+    }
+
+    private record Subscriber(SseEmitter emitter, AtomicBoolean released) {}
+
+    private static final class TenantFeed {
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private LocalDateTime windowStart = LocalDateTime.now();
+        private boolean dirty;
+        private long newOrders;
+        private long updatedOrders;
+        private long revenueMinorUnits;
+        private long newCustomers;
+        private long cartEvents;
+        private long cartsCreated;
+        private long checkoutEvents;
+        private long checkoutsStarted;
+
+        /** Takes the accumulated changes and starts a new window, or returns null if nothing changed. */
+        LiveDashboardDelta drain() {
+            lock.lock();
+            try {
+                if (!dirty) {
+                    return null;
+                }
+                LocalDateTime windowEnd = LocalDateTime.now();
+                LiveDashboardDelta delta = LiveDashboardDelta.builder()
+                        .windowStart(windowStart)
+                        .windowEnd(windowEnd)
+                        .newOrders(newOrders)
+                        .updatedOrders(updatedOrders)
+                        .revenue(Money.toMajorUnits(revenueMinorUnits))
+                        .newCustomers(newCustomers)
+                        .cartEvents(cartEvents)
+                        .cartsCreated(cartsCreated)
+                        .checkoutEvents(checkoutEvents)
+                        .checkoutsStarted(checkoutsStarted)
+                        .build();
+                windowStart = windowEnd;
+                dirty = false;
+                newOrders = updatedOrders = revenueMinorUnits = newCustomers = 0;
+                cartEvents = cartsCreated = checkoutEvents = checkoutsStarted = 0;
+                return delta;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
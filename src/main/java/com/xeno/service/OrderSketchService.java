@@ -0,0 +1,178 @@
+package com.xeno.service;
+
+import com.xeno.analytics.HyperLogLog;
+import com.xeno.analytics.QuantileSketch;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.model.DailyOrderSketch;
+import com.xeno.repository.DailyOrderSketchRepository;
+import com.xeno.shard.TenantContext;
+import com.xeno.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains per-tenant daily distinct-buyer and order-value sketches.
+ * <p>
+ * Ingested orders are added to in-memory sketches holding what arrived since the last flush.
+ * {@link #flush()} merges them into the day's {@code daily_order_sketches} row under a row lock, so
+ * several instances can add to the same day without overwriting each other. Range queries merge the
+ * stored daily rows with the unflushed additions, so they never touch the orders table.
+ */
+@Service
+@Slf4j
+public class OrderSketchService {
+
+    private final DailyOrderSketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<DayKey, DaySketch> pending = new ConcurrentHashMap<>();
+
+    private record DayKey(String tenantId, LocalDate day) {}
+
+    @Getter
+    @AllArgsConstructor
+    public static class SketchSummary {
+        private final long orderCount;
+        private final long uniqueBuyers;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+    }
+
+    public OrderSketchService(DailyOrderSketchRepository sketchRepository, PlatformTransactionManager transactionManager) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(TenantDataVersionService.DATA_LISTENER_ORDER)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        if (event.getOrderDate() == null) {
+            return;
+        }
+        // Re-synced orders only touch the HLL, which is idempotent; counts and values are added once
+        if (!event.isNewOrder() && event.getCustomerId() == null) {
+            return;
+        }
+        pending.compute(new DayKey(event.getTenantId(), event.getOrderDate().toLocalDate()), (key, sketch) -> {
+            DaySketch d = sketch != null ? sketch : new DaySketch();
+            if (event.getCustomerId() != null) {
+                d.buyers.add(event.getCustomerId());
+            }
+            if (event.isNewOrder()) {
+                d.values.add(event.getTotalMinorUnits());
+                d.orderCount++;
+            }
+            return d;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sketch.flush-interval-ms:5000}")
+    public void flush() {
+        for (DayKey key : pending.keySet()) {
+            DaySketch added = pending.remove(key);
+            if (added == null) {
+                continue;
+            }
+            try {
+                TenantContext.run(key.tenantId(), () -> transactionTemplate.executeWithoutResult(status -> {
+                    sketchRepository.insertIfAbsent(key.tenantId(), key.day());
+                    DailyOrderSketch row = sketchRepository.findForUpdate(key.tenantId(), key.day()).orElseThrow();
+                    DaySketch merged = new DaySketch(row);
+                    merged.merge(added);
+                    row.setOrderCount(merged.orderCount);
+                    row.setBuyersHll(merged.buyers.toBytes());
+                    row.setOrderValueQuantiles(merged.values.toBytes());
+                }));
+            } catch (RuntimeException e) {
+                log.error("Failed to flush order sketch for {} {}", key.tenantId(), key.day(), e);
+                pending.merge(key, added, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                });
+            }
+        }
+    }
+
+    /**
+     * Merge the daily sketches for {@code [startDate, endDate]} into a single summary.
+     */
+    public SketchSummary summarize(String tenantId, LocalDate startDate, LocalDate endDate) {
+        DaySketch range = new DaySketch();
+        collect(tenantId, startDate, endDate).values().forEach(range::merge);
+        return toSummary(range);
+    }
+
+    /**
+     * Per-day summaries for {@code [startDate, endDate]}, keyed by date.
+     */
+    public Map<LocalDate, SketchSummary> summarizeByDay(String tenantId, LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, SketchSummary> result = new TreeMap<>();
+        collect(tenantId, startDate, endDate).forEach((date, day) -> result.put(date, toSummary(day)));
+        return result;
+    }
+
+    private Map<LocalDate, DaySketch> collect(String tenantId, LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, DaySketch> days = new HashMap<>();
+        List<DailyOrderSketch> rows = sketchRepository.findByTenantIdAndSketchDateBetween(tenantId, startDate, endDate);
+        for (DailyOrderSketch row : rows) {
+            days.put(row.getSketchDate(), new DaySketch(row));
+        }
+        // Orders added since the last flush are not in the rows yet
+        for (DayKey key : pending.keySet()) {
+            if (key.tenantId().equals(tenantId) && !key.day().isBefore(startDate) && !key.day().isAfter(endDate)) {
+                pending.computeIfPresent(key, (k, live) -> {
+                    days.computeIfAbsent(k.day(), day -> new DaySketch()).merge(live);
+                    return live;
+                });
+            }
+        }
+        return days;
+    }
+
+    private static SketchSummary toSummary(DaySketch sketch) {
+        return new SketchSummary(
+                sketch.orderCount,
+                sketch.buyers.estimate(),
+                Money.toMajorUnits(sketch.values.quantile(0.50)),
+                Money.toMajorUnits(sketch.values.quantile(0.90)),
+                Money.toMajorUnits(sketch.values.quantile(0.99)));
+    }
+
+    private static final class DaySketch {
+        private final HyperLogLog buyers;
+        private final QuantileSketch values;
+        private long orderCount;
+
+        private DaySketch() {
+            this.buyers = new HyperLogLog();
+            this.values = new QuantileSketch();
+        }
+
+        private DaySketch(DailyOrderSketch row) {
+            this.buyers = HyperLogLog.fromBytes(row.getBuyersHll());
+            this.values = QuantileSketch.fromBytes(row.getOrderValueQuantiles());
+            this.orderCount = row.getOrderCount();
+        }
+
+        private void merge(DaySketch other) {
+            buyers.merge(other.buyers);
+            values.merge(other.values);
+            orderCount += other.orderCount;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.xeno.service;
+
+import com.xeno.dto.ProductInventoryStats;
+import com.xeno.model.Tenant;
+import com.xeno.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Product inventory aggregates computed by one SQL pass and cached briefly per tenant.
+ * <p>
+ * Both {@code /api/products/stats} and {@code /api/products/inventory} read from the same cached
+ * row; product writers call {@link #evict(Long)} so the next read after a sync is fresh.
+ */
+@Service
+public class ProductInventoryService {
+
+    private final ProductRepository productRepository;
+    private final int lowStockThreshold;
+    private final long cacheTtlMillis;
+
+    private final Map<Long, CachedStats> cache = new ConcurrentHashMap<>();
+
+    public ProductInventoryService(ProductRepository productRepository,
+                                   @Value("${products.low-stock-threshold:10}") int lowStockThreshold,
+                                   @Value("${products.inventory.cache-ttl-ms:30000}") long cacheTtlMillis) {
+        this.productRepository = productRepository;
+        this.lowStockThreshold = lowStockThreshold;
+        this.cacheTtlMillis = cacheTtlMillis;
+    }
+
+    @Transactional(readOnly = true)
+    public ProductInventoryStats getInventoryStats(Tenant tenant) {
+        long now = System.currentTimeMillis();
+        CachedStats cached = cache.get(tenant.getId());
+        if (cached != null && cached.expiresAt > now) {
+            return cached.stats;
+        }
+        ProductInventoryStats stats = productRepository.getInventoryStats(tenant.getId(), lowStockThreshold);
+        cache.put(tenant.getId(), new CachedStats(stats, now + cacheTtlMillis));
+        return stats;
+    }
+
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public void evict(Long tenantId) {
+        cache.remove(tenantId);
+    }
+
+    private record CachedStats(ProductInventoryStats stats, long expiresAt) {
+    }
+}
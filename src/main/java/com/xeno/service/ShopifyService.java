@@ -1,22 +1,30 @@
 package com.xeno.service;
 
+import com.xeno.event.CustomerIngestedEvent;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.event.ProductIngestedEvent;
 import com.xeno.model.*;
 import com.xeno.repository.*;
-import lombok.RequiredArgsConstructor;
+import com.xeno.shard.TenantContext;
+import com.xeno.util.Money;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ShopifyService {
 
@@ -25,15 +33,50 @@ public class ShopifyService {
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final WebClient.Builder webClientBuilder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductInventoryService productInventoryService;
+    private final CustomerIdResolver customerIdResolver;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    // Shopify responses can be slow; a stuck call must not hold a sync permit forever
+    @Value("${shopify.sync.request-timeout-ms:60000}")
+    private long requestTimeoutMillis;
+
+    public ShopifyService(CustomerRepository customerRepository,
+                          ProductRepository productRepository,
+                          OrderRepository orderRepository,
+                          OrderItemRepository orderItemRepository,
+                          WebClient.Builder webClientBuilder,
+                          ApplicationEventPublisher eventPublisher,
+                          ProductInventoryService productInventoryService,
+                          CustomerIdResolver customerIdResolver,
+                          PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.webClientBuilder = webClientBuilder;
+        this.eventPublisher = eventPublisher;
+        this.productInventoryService = productInventoryService;
+        this.customerIdResolver = customerIdResolver;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Fetches and saves the tenant's customers, products and orders, returning once they are saved.
+     * Each record is saved in its own transaction, so a bad record is logged and rolled back as a
+     * whole while the rest are still saved. Saves run under the tenant's context, so they reach its
+     * shard and are refused while it is moving.
+     */
     public void syncShopifyData(Tenant tenant) {
         log.info("Starting Shopify sync for tenant: {}", tenant.getTenantId());
         
         try {
-            syncCustomers(tenant);
-            syncProducts(tenant);
-            syncOrders(tenant);
+            TenantContext.run(tenant.getTenantId(), () -> {
+                syncCustomers(tenant);
+                syncProducts(tenant);
+                syncOrders(tenant);
+            });
             log.info("Shopify sync completed successfully for tenant: {}", tenant.getTenantId());
         } catch (Exception e) {
             log.error("Error syncing Shopify data for tenant: {}", tenant.getTenantId(), e);
@@ -52,7 +95,14 @@ public class ShopifyService {
                 .retrieve()
                 .bodyToMono(Map.class);
 
-        response.subscribe(data -> {
+        Map data;
+        try {
+            data = response.block(Duration.ofMillis(requestTimeoutMillis));
+        } catch (RuntimeException e) {
+            log.error("Error fetching customers from Shopify", e);
+            return;
+        }
+        if (data != null) {
             List<Map<String, Object>> customers = (List<Map<String, Object>>) data.get("customers");
             if (customers != null) {
                 customers.forEach(customerData -> {
@@ -63,7 +113,7 @@ public class ShopifyService {
                     }
                 });
             }
-        }, error -> log.error("Error fetching customers from Shopify", error));
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -77,7 +127,14 @@ public class ShopifyService {
                 .retrieve()
                 .bodyToMono(Map.class);
 
-        response.subscribe(data -> {
+        Map data;
+        try {
+            data = response.block(Duration.ofMillis(requestTimeoutMillis));
+        } catch (RuntimeException e) {
+            log.error("Error fetching products from Shopify", e);
+            return;
+        }
+        if (data != null) {
             List<Map<String, Object>> products = (List<Map<String, Object>>) data.get("products");
             if (products != null) {
                 products.forEach(productData -> {
@@ -88,7 +145,7 @@ public class ShopifyService {
                     }
                 });
             }
-        }, error -> log.error("Error fetching products from Shopify", error));
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -102,9 +159,23 @@ public class ShopifyService {
                 .retrieve()
                 .bodyToMono(Map.class);
 
-        response.subscribe(data -> {
+        Map data;
+        try {
+            data = response.block(Duration.ofMillis(requestTimeoutMillis));
+        } catch (RuntimeException e) {
+            log.error("Error fetching orders from Shopify", e);
+            return;
+        }
+        if (data != null) {
             List<Map<String, Object>> orders = (List<Map<String, Object>>) data.get("orders");
             if (orders != null) {
+                // Resolve the page's customers in bulk instead of once per order
+                customerIdResolver.warm(tenant.getId(), orders.stream()
+                        .map(orderData -> (Map<String, Object>) orderData.get("customer"))
+                        .filter(customer -> customer != null && customer.get("id") != null)
+                        .map(customer -> String.valueOf(customer.get("id")))
+                        .distinct()
+                        .toList());
                 orders.forEach(orderData -> {
                     try {
                         saveOrder(tenant, orderData);
@@ -113,12 +184,32 @@ public class ShopifyService {
                     }
                 });
             }
-        }, error -> log.error("Error fetching orders from Shopify", error));
+        }
     }
 
-    @Transactional
-    @SuppressWarnings("unchecked")
+    /**
+     * Saves one customer in its own transaction.
+     */
     public void saveCustomer(Tenant tenant, Map<String, Object> customerData) {
+        transactionTemplate.executeWithoutResult(status -> writeCustomer(tenant, customerData));
+    }
+
+    /**
+     * Saves one product in its own transaction.
+     */
+    public void saveProduct(Tenant tenant, Map<String, Object> productData) {
+        transactionTemplate.executeWithoutResult(status -> writeProduct(tenant, productData));
+    }
+
+    /**
+     * Saves one order with its line items in a single transaction, so an order is never committed
+     * without its items.
+     */
+    public void saveOrder(Tenant tenant, Map<String, Object> orderData) {
+        transactionTemplate.executeWithoutResult(status -> writeOrder(tenant, orderData));
+    }
+
+    private void writeCustomer(Tenant tenant, Map<String, Object> customerData) {
         String shopifyCustomerId = String.valueOf(customerData.get("id"));
         
         Customer customer = customerRepository
@@ -137,17 +228,21 @@ public class ShopifyService {
         customer.setState((String) customerData.get("state"));
         customer.setTags((String) customerData.get("tags"));
 
-        customerRepository.save(customer);
+        boolean newCustomer = customer.getId() == null;
+        Customer savedCustomer = customerRepository.save(customer);
+        eventPublisher.publishEvent(CustomerIngestedEvent.builder()
+                .tenantId(tenant.getTenantId())
+                .customerId(savedCustomer.getId())
+                .newCustomer(newCustomer)
+                .build());
         log.debug("Customer saved: {}", shopifyCustomerId);
     }
 
-    @Transactional
     @SuppressWarnings("unchecked")
-    public void saveProduct(Tenant tenant, Map<String, Object> productData) {
+    private void writeProduct(Tenant tenant, Map<String, Object> productData) {
         String shopifyProductId = String.valueOf(productData.get("id"));
         
-        Product product = productRepository
-                .findByTenantTenantIdAndShopifyProductId(tenant.getTenantId(), shopifyProductId)
+        Product product = productRepository.findByShopifyId(tenant, shopifyProductId)
                 .orElse(Product.builder()
                         .tenant(tenant)
                         .shopifyProductId(shopifyProductId)
@@ -171,28 +266,33 @@ public class ShopifyService {
             product.setImageUrl((String) images.get(0).get("src"));
         }
 
-        productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productInventoryService.evict(tenant.getId());
+        eventPublisher.publishEvent(ProductIngestedEvent.builder()
+                .tenantId(tenant.getTenantId())
+                .productId(savedProduct.getId())
+                .build());
         log.debug("Product saved: {}", shopifyProductId);
     }
 
-    @Transactional
     @SuppressWarnings("unchecked")
-    public void saveOrder(Tenant tenant, Map<String, Object> orderData) {
+    private void writeOrder(Tenant tenant, Map<String, Object> orderData) {
         String shopifyOrderId = String.valueOf(orderData.get("id"));
         
         Order order = orderRepository
-                .findByTenantTenantIdAndShopifyOrderId(tenant.getTenantId(), shopifyOrderId)
+                .findByTenantIdAndShopifyOrderId(tenant.getId(), shopifyOrderId)
                 .orElse(Order.builder()
                         .tenant(tenant)
                         .shopifyOrderId(shopifyOrderId)
                         .build());
+        Long previousCustomerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+        LocalDateTime previousOrderDate = order.getOrderDate();
 
         String shopifyCustomerId = String.valueOf(((Map<String, Object>) orderData.get("customer")).get("id"));
-        Customer customer = customerRepository
-                .findByTenantTenantIdAndShopifyCustomerId(tenant.getTenantId(), shopifyCustomerId)
-                .orElse(null);
+        Long customerId = customerIdResolver.resolve(tenant.getId(), shopifyCustomerId);
 
-        order.setCustomer(customer);
+        // A reference is enough to set customer_id; the customer row itself is not loaded
+        order.setCustomer(customerId != null ? customerRepository.getReferenceById(customerId) : null);
         order.setOrderNumber(String.valueOf(orderData.get("order_number")));
         order.setOrderDate(parseDateTime((String) orderData.get("created_at")));
         order.setTotalPrice(new BigDecimal(String.valueOf(orderData.get("total_price"))));
@@ -202,19 +302,36 @@ public class ShopifyService {
         order.setFulfillmentStatus((String) orderData.get("fulfillment_status"));
         order.setCurrency((String) orderData.getOrDefault("currency", "USD"));
 
+        boolean newOrder = order.getId() == null;
         Order savedOrder = orderRepository.save(order);
 
-        // Save order items
+        // Save order items once; re-synced orders already have them
+        List<OrderIngestedEvent.LineItem> ingestedItems = new ArrayList<>();
         List<Map<String, Object>> lineItems = (List<Map<String, Object>>) orderData.get("line_items");
-        if (lineItems != null) {
-            lineItems.forEach(lineItem -> saveOrderItem(savedOrder, lineItem));
+        if (lineItems != null && newOrder) {
+            lineItems.forEach(lineItem -> ingestedItems.add(
+                    OrderIngestedEvent.LineItem.of(saveOrderItem(savedOrder, lineItem))));
         }
 
+        eventPublisher.publishEvent(OrderIngestedEvent.builder()
+                .tenantId(tenant.getTenantId())
+                .orderId(savedOrder.getId())
+                .customerId(customerId)
+                .orderDate(savedOrder.getOrderDate())
+                .totalMinorUnits(Money.toMinorUnits(savedOrder.getTotalPrice()))
+                .currency(savedOrder.getCurrency())
+                .financialStatus(savedOrder.getFinancialStatus())
+                .newOrder(newOrder)
+                .previousCustomerId(previousCustomerId)
+                .previousOrderDate(previousOrderDate)
+                .tenantPk(tenant.getId())
+                .lineItems(ingestedItems)
+                .build());
+
         log.debug("Order saved: {}", shopifyOrderId);
     }
 
-    @Transactional
-    public void saveOrderItem(Order order, Map<String, Object> lineItemData) {
+    private OrderItem saveOrderItem(Order order, Map<String, Object> lineItemData) {
         OrderItem orderItem = OrderItem.builder()
                 .order(order)
                 .shopifyProductId(String.valueOf(lineItemData.get("product_id")))
@@ -225,7 +342,7 @@ public class ShopifyService {
                 .totalDiscount(new BigDecimal(String.valueOf(lineItemData.getOrDefault("total_discount", "0.0"))))
                 .build();
 
-        orderItemRepository.save(orderItem);
+        return orderItemRepository.save(orderItem);
     }
 
     private LocalDateTime parseDateTime(String dateTimeString) {
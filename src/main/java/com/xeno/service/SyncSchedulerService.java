@@ -2,20 +2,35 @@ package com.xeno.service;
 
 import com.xeno.model.Tenant;
 import com.xeno.repository.TenantRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SyncSchedulerService {
 
     private final TenantRepository tenantRepository;
     private final ShopifyService shopifyService;
+    private final AsyncTaskExecutor taskExecutor;
+    private final int syncConcurrency;
+
+    public SyncSchedulerService(TenantRepository tenantRepository,
+                                ShopifyService shopifyService,
+                                @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                                @Value("${shopify.sync.concurrency:1}") int syncConcurrency) {
+        this.tenantRepository = tenantRepository;
+        this.shopifyService = shopifyService;
+        this.taskExecutor = taskExecutor;
+        this.syncConcurrency = Math.max(1, syncConcurrency);
+    }
 
     @Scheduled(cron = "${shopify.sync.cron}")
     public void scheduledSync() {
@@ -25,15 +40,27 @@ public class SyncSchedulerService {
                 .filter(Tenant::getActive)
                 .toList();
         
-        for (Tenant tenant : activeTenants) {
-            try {
-                log.info("Syncing data for tenant: {}", tenant.getTenantId());
-                shopifyService.syncShopifyData(tenant);
-            } catch (Exception e) {
-                log.error("Error syncing tenant: {}", tenant.getTenantId(), e);
-            }
+        // Tenants sync independently, up to shopify.sync.concurrency at a time on the application
+        // task executor (virtual threads in the virtual profile)
+        Semaphore permits = new Semaphore(syncConcurrency);
+        CompletableFuture<?>[] syncs = new CompletableFuture<?>[activeTenants.size()];
+        for (int i = 0; i < activeTenants.size(); i++) {
+            Tenant tenant = activeTenants.get(i);
+            permits.acquireUninterruptibly();
+            syncs[i] = CompletableFuture.runAsync(() -> syncTenant(tenant), taskExecutor)
+                    .whenComplete((result, error) -> permits.release());
         }
+        CompletableFuture.allOf(syncs).join();
         
         log.info("Scheduled sync completed for {} tenants", activeTenants.size());
     }
+    
+    private void syncTenant(Tenant tenant) {
+        try {
+            log.info("Syncing data for tenant: {}", tenant.getTenantId());
+            shopifyService.syncShopifyData(tenant);
+        } catch (Exception e) {
+            log.error("Error syncing tenant: {}", tenant.getTenantId(), e);
+        }
+    }
 }
@@ -0,0 +1,93 @@
+package com.xeno.service;
+
+import com.xeno.event.CustomerIngestedEvent;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.event.ProductIngestedEvent;
+import com.xeno.event.StorefrontActivityEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant counter of committed changes to orders, customers, products and storefront activity
+ * (carts, checkouts, completions and abandonment), used to derive ETags for read endpoints.
+ * <p>
+ * Listeners run after commit, and after every listener ordered at {@link #DATA_LISTENER_ORDER}
+ * (rollups written in their own transactions, in-memory analytics), so a response can never carry a
+ * version newer than the data it was built from. Counters live in memory and restart from a fresh epoch, so tags issued before a
+ * restart simply miss. With several instances behind a load balancer, each only sees the writes it
+ * handled; route webhooks and syncs to the instance serving reads, or don't rely on the tags there.
+ */
+@Service
+public class TenantDataVersionService {
+
+    /**
+     * Order for listeners that update data served by tagged endpoints; they run before the bump.
+     */
+    public static final int DATA_LISTENER_ORDER = 0;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, Long> changedAt = new ConcurrentHashMap<>();
+
+    public long version(String tenantId) {
+        AtomicLong version = versions.get(tenantId);
+        return version != null ? version.get() : 0L;
+    }
+
+    public void bump(String tenantId) {
+        // Stamped before the increment, so a reader that sees the new version sees this time or a later one
+        changedAt.merge(tenantId, System.currentTimeMillis(), Math::max);
+        versions.computeIfAbsent(tenantId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Wall-clock time of the tenant's last bump (which runs after the change committed), or 0 if
+     * nothing has changed since startup.
+     */
+    public long changedAt(String tenantId) {
+        return changedAt.getOrDefault(tenantId, 0L);
+    }
+
+    /**
+     * Strong ETag for {@code resource} as the tenant sees it now. The date is part of the tag because
+     * responses default to windows ending today.
+     */
+    public String etag(String tenantId, String resource) {
+        String key = tenantId + '\n' + resource + '\n' + LocalDate.now();
+        String digest = DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        return "\"" + epoch + "-" + version(tenantId) + "-" + digest + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        bump(event.getTenantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCustomerIngested(CustomerIngestedEvent event) {
+        bump(event.getTenantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductIngested(ProductIngestedEvent event) {
+        bump(event.getTenantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onStorefrontActivity(StorefrontActivityEvent event) {
+        bump(event.getTenantId());
+    }
+}
@@ -0,0 +1,133 @@
+package com.xeno.service;
+
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.model.Tenant;
+import com.xeno.repository.ProductDailySalesRepository;
+import com.xeno.util.Money;
+import com.xeno.shard.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Top-product rankings by units or revenue over a date window, served from the
+ * {@code product_daily_sales} rollup that is kept current as new orders are ingested.
+ * <p>
+ * The rollup is eventually consistent with {@code order_items}: sales are added in their own
+ * transaction after the order commits, and a day whose addition fails is remembered and rebuilt
+ * from its order items by {@link #reconcile()}. Days are remembered in memory, so a failure right
+ * before a restart still needs {@code POST /api/products/top/rebuild}.
+ */
+@Service
+@Slf4j
+public class TopProductsService {
+
+    public enum RankBy { REVENUE, UNITS }
+
+    private final ProductDailySalesRepository productDailySalesRepository;
+    private final TenantDataVersionService dataVersionService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<DayKey> failedDays = ConcurrentHashMap.newKeySet();
+
+    private record DayKey(String tenantId, Long tenantPk, LocalDate day) {}
+
+    public TopProductsService(ProductDailySalesRepository productDailySalesRepository,
+                              TenantDataVersionService dataVersionService,
+                              PlatformTransactionManager transactionManager) {
+        this.productDailySalesRepository = productDailySalesRepository;
+        this.dataVersionService = dataVersionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(TenantDataVersionService.DATA_LISTENER_ORDER)
+    public void onOrderIngested(OrderIngestedEvent event) {
+        if (!event.isNewOrder() || event.getTenantPk() == null || event.getOrderDate() == null
+                || event.getLineItems() == null) {
+            return;
+        }
+        LocalDate salesDate = event.getOrderDate().toLocalDate();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (OrderIngestedEvent.LineItem item : event.getLineItems()) {
+                    productDailySalesRepository.addSale(event.getTenantPk(), salesDate, item.getShopifyProductId(),
+                            item.getQuantity(), item.getRevenueMinorUnits());
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not add order {} to product sales for tenant {} on {}; the day will be rebuilt",
+                    event.getOrderId(), event.getTenantId(), salesDate, e);
+            failedDays.add(new DayKey(event.getTenantId(), event.getTenantPk(), salesDate));
+        }
+    }
+
+    /**
+     * Rebuilds each day whose sales could not be added. A day that fails again is kept for the next run.
+     */
+    @Scheduled(fixedDelayString = "${analytics.top-products.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        for (DayKey key : failedDays) {
+            failedDays.remove(key);
+            try {
+                TenantContext.run(key.tenantId(), () -> transactionTemplate.executeWithoutResult(status -> {
+                    productDailySalesRepository.deleteDay(key.tenantPk(), key.day());
+                    productDailySalesRepository.rebuildDay(key.tenantPk(), key.day());
+                }));
+                dataVersionService.bump(key.tenantId());
+                log.info("Rebuilt product sales for tenant {} on {}", key.tenantId(), key.day());
+            } catch (RuntimeException e) {
+                log.warn("Could not rebuild product sales for tenant {} on {}: {}", key.tenantId(), key.day(), e.getMessage());
+                failedDays.add(key);
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getTopProducts(Tenant tenant, RankBy rankBy,
+                                                    LocalDate startDate, LocalDate endDate, int limit) {
+        List<Object[]> rows = rankBy == RankBy.UNITS
+                ? productDailySalesRepository.findTopByUnits(tenant.getId(), startDate, endDate, limit)
+                : productDailySalesRepository.findTopByRevenue(tenant.getId(), startDate, endDate, limit);
+
+        return rows.stream()
+                .map(row -> {
+                    Map<String, Object> productMap = new HashMap<>();
+                    productMap.put("shopifyProductId", row[0]);
+                    productMap.put("unitsSold", ((Number) row[1]).longValue());
+                    productMap.put("revenue", Money.toDecimal(((Number) row[2]).longValue()));
+                    productMap.put("orderCount", ((Number) row[3]).longValue());
+                    productMap.put("id", row[4]);
+                    productMap.put("title", row[5]);
+                    productMap.put("vendor", row[6]);
+                    productMap.put("productType", row[7]);
+                    productMap.put("price", row[8]);
+                    productMap.put("inventoryQuantity", row[9]);
+                    return productMap;
+                })
+                .toList();
+    }
+
+    /**
+     * Recompute the tenant's rollup from {@code order_items}, e.g. for orders stored before the rollup existed.
+     */
+    @Transactional
+    public int rebuild(Tenant tenant) {
+        productDailySalesRepository.deleteByTenant(tenant.getId());
+        int rows = productDailySalesRepository.rebuildForTenant(tenant.getId());
+        log.info("Rebuilt product sales rollup for tenant {}: {} rows", tenant.getTenantId(), rows);
+        return rows;
+    }
+}
@@ -0,0 +1,96 @@
+package com.xeno.service;
+
+import com.xeno.shard.ShardDirectory;
+import com.xeno.shard.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shopify delivery ids of the cart and checkout webhooks already written.
+ * <p>
+ * A webhook whose write times out answers 5xx, but the write may still commit afterwards; Shopify
+ * then redelivers it with the same {@code X-Shopify-Webhook-Id}. Writers claim the id in the same
+ * transaction as the write and skip the write when it was claimed before, so a redelivery is written
+ * at most once and a rolled-back write leaves its id free. Shopify retries for up to 48 hours; older
+ * ids are deleted on every shard.
+ */
+@Service
+@Slf4j
+public class WebhookDeliveries {
+
+    // 3 parameters per row
+    private static final int CLAIM_CHUNK = 1000;
+
+    private static final String CLAIM_PREFIX =
+            "INSERT INTO webhook_deliveries (tenant_id, webhook_id, received_at) VALUES ";
+    private static final String CLAIM_ROW = "(?, ?, ?)";
+    private static final String CLAIM_SUFFIX =
+            " ON CONFLICT (tenant_id, webhook_id) DO NOTHING RETURNING tenant_id, webhook_id";
+
+    public record Delivery(String tenantId, String webhookId) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardDirectory shardDirectory;
+    private final Duration retention;
+
+    public WebhookDeliveries(JdbcTemplate jdbcTemplate,
+                             ShardDirectory shardDirectory,
+                             @Value("${webhooks.deliveries.retention-hours:72}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardDirectory = shardDirectory;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * Records the deliveries and returns those not seen before. Runs in the caller's transaction, on
+     * the shard it is bound to.
+     */
+    public Set<Delivery> claim(Collection<Delivery> deliveries) {
+        List<Delivery> distinct = new ArrayList<>(new HashSet<>(deliveries));
+        Set<Delivery> claimed = new HashSet<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < distinct.size(); from += CLAIM_CHUNK) {
+            List<Delivery> chunk = distinct.subList(from, Math.min(from + CLAIM_CHUNK, distinct.size()));
+            String sql = CLAIM_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), CLAIM_ROW)) + CLAIM_SUFFIX;
+            jdbcTemplate.query(sql, ps -> {
+                int i = 1;
+                for (Delivery delivery : chunk) {
+                    ps.setString(i++, delivery.tenantId());
+                    ps.setString(i++, delivery.webhookId());
+                    ps.setTimestamp(i++, now);
+                }
+            }, rs -> {
+                claimed.add(new Delivery(rs.getString(1), rs.getString(2)));
+            });
+        }
+        return claimed;
+    }
+
+    @Scheduled(cron = "${webhooks.deliveries.purge-cron:0 30 * * * *}")
+    public void purge() {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        for (String shard : shardDirectory.shardIds()) {
+            try {
+                int deleted = TenantContext.callOnShard(shard, () ->
+                        jdbcTemplate.update("DELETE FROM webhook_deliveries WHERE received_at < ?", before));
+                log.debug("Purged {} webhook delivery ids on shard {}", deleted, shard);
+            } catch (DataAccessException e) {
+                log.error("Failed to purge webhook delivery ids on shard {}", shard, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package com.xeno.service;
+
+import com.xeno.event.StorefrontActivityEvent;
+import com.xeno.model.CartEvent;
+import com.xeno.model.CheckoutEvent;
+import com.xeno.shard.ShardDirectory;
+import com.xeno.shard.TenantContext;
+import com.xeno.shard.TenantMovingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces cart and checkout webhook writes into short batches.
+ * <p>
+ * Webhook threads hand their parsed event to {@link #writeCart} / {@link #writeCheckout} and wait until
+ * it is committed. A single writer thread drains the queue for up to {@code max-delay-ms} or
+ * {@code max-rows} events and writes the whole batch in one transaction: raw events as batched inserts
+ * (sent as multi-row INSERTs with the driver's {@code reWriteBatchedInserts} property), checkout sessions
+ * as one multi-row upsert, and funnel counters once per tenant and day. A burst of webhooks therefore
+ * holds one pooled connection instead of one per request.
+ * <p>
+ * A failed batch is retried one event at a time, so a single bad payload only fails its own webhook.
+ * Each committed batch publishes one {@link StorefrontActivityEvent} per tenant. Events carrying a
+ * Shopify delivery id are claimed in {@link WebhookDeliveries} within the batch's transaction, and a
+ * delivery that was already written is skipped, so redelivering a webhook whose wait timed out after
+ * its batch committed changes nothing.
+ * <p>
+ * With sharding enabled a batch is split by the tenants' shards and each part is written in its own
+ * transaction. Events of a tenant that is being moved fail with {@link TenantMovingException}.
+ */
+@Service
+@Slf4j
+public class WebhookEventWriter {
+
+    // 9 parameters per session row keeps a chunk well under Postgres' 32767 bind parameter limit
+    private static final int SESSION_UPSERT_CHUNK = 1000;
+
+    private static final String INSERT_CART_EVENT =
+            "INSERT INTO cart_events (tenant_id, cart_token, customer_email, customer_id, cart_value, " +
+            "item_count, event_type, created_at, is_abandoned) VALUES (?, ?, ?, ?, ?, ?, ?, ?, false)";
+
+    private static final String INSERT_CHECKOUT_EVENT =
+            "INSERT INTO checkout_events (tenant_id, checkout_token, cart_token, customer_email, customer_id, " +
+            "checkout_value, item_count, event_type, completed, abandoned, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, false, false, ?)";
+
+    // Same semantics as the single-row upsert: a completed session keeps its state, an abandoned one is
+    // reopened, and (xmax = 0) tells a fresh insert from an update
+    private static final String UPSERT_SESSIONS_PREFIX =
+            "INSERT INTO checkout_sessions (tenant_id, checkout_token, cart_token, customer_email, customer_id, " +
+            "checkout_value, item_count, state, started_at, last_activity_at) VALUES ";
+    private static final String UPSERT_SESSIONS_ROW = "(?, ?, ?, ?, ?, ?, ?, 'STARTED', ?, ?)";
+    private static final String UPSERT_SESSIONS_SUFFIX =
+            " ON CONFLICT (tenant_id, checkout_token) DO UPDATE SET " +
+            "cart_token = COALESCE(EXCLUDED.cart_token, checkout_sessions.cart_token), " +
+            "customer_email = COALESCE(EXCLUDED.customer_email, checkout_sessions.customer_email), " +
+            "customer_id = COALESCE(EXCLUDED.customer_id, checkout_sessions.customer_id), " +
+            "checkout_value = COALESCE(EXCLUDED.checkout_value, checkout_sessions.checkout_value), " +
+            "item_count = COALESCE(EXCLUDED.item_count, checkout_sessions.item_count), " +
+            "state = CASE WHEN checkout_sessions.state = 'COMPLETED' THEN 'COMPLETED' ELSE 'STARTED' END, " +
+            "last_activity_at = EXCLUDED.last_activity_at " +
+            "RETURNING tenant_id, cart_token, started_at, (xmax = 0)";
+
+    private record PendingWrite(CartEvent cart, CheckoutEvent checkout, boolean logCheckout, String webhookId,
+                                CompletableFuture<Void> done) {
+
+        String tenantId() {
+            return cart != null ? cart.getTenantId() : checkout.getTenantId();
+        }
+    }
+
+    private record TenantDay(String tenantId, LocalDate day) {}
+
+    private record StartedSession(String cartToken, LocalDateTime startedAt) {}
+
+    private static final class Activity {
+        int cartEvents;
+        int cartsCreated;
+        int checkoutEvents;
+        int checkoutsStarted;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FunnelService funnelService;
+    private final WebhookDeliveries webhookDeliveries;
+    private final ShardDirectory shardDirectory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int maxRows;
+    private final long maxDelayNanos;
+    private final long submitTimeoutMillis;
+    private final BlockingQueue<PendingWrite> queue;
+
+    private final DistributionSummary batchRows;
+    private final Timer flushTimer;
+    private final Counter failedEvents;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public WebhookEventWriter(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              FunnelService funnelService,
+                              WebhookDeliveries webhookDeliveries,
+                              ShardDirectory shardDirectory,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${webhooks.batch.enabled:true}") boolean enabled,
+                              @Value("${webhooks.batch.max-rows:500}") int maxRows,
+                              @Value("${webhooks.batch.max-delay-ms:5}") long maxDelayMillis,
+                              @Value("${webhooks.batch.queue-capacity:20000}") int queueCapacity,
+                              @Value("${webhooks.batch.submit-timeout-ms:5000}") long submitTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.funnelService = funnelService;
+        this.webhookDeliveries = webhookDeliveries;
+        this.shardDirectory = shardDirectory;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxRows = maxRows;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        this.batchRows = DistributionSummary.builder("webhooks.batch.rows")
+                .description("Webhook events written per batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("webhooks.batch.flush")
+                .description("Time to write and commit one batch of webhook events")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.failedEvents = Counter.builder("webhooks.batch.failed")
+                .description("Webhook events that could not be written")
+                .register(meterRegistry);
+        meterRegistry.gauge("webhooks.batch.queued", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::run, "webhook-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            // The loop drains whatever is still queued before it exits
+            writerThread.join(submitTimeoutMillis);
+        }
+    }
+
+    /**
+     * Writes a raw cart event and counts its token toward the funnel the first time it is seen.
+     * Blocks until the batch holding it is committed.
+     *
+     * @param webhookId Shopify delivery id; a delivery already written is skipped. Null writes always.
+     */
+    public void writeCart(CartEvent cart, String webhookId) {
+        submit(new PendingWrite(cart, null, false, webhookId, new CompletableFuture<>()));
+    }
+
+    /**
+     * Upserts the checkout's session, counting it toward the funnel when it is new, and optionally
+     * appends the raw event to {@code checkout_events}. Blocks until the batch holding it is committed.
+     *
+     * @param webhookId Shopify delivery id; a delivery already written is skipped. Null writes always.
+     */
+    public void writeCheckout(CheckoutEvent checkout, boolean logEvent, String webhookId) {
+        submit(new PendingWrite(null, checkout, logEvent, webhookId, new CompletableFuture<>()));
+    }
+
+    private void submit(PendingWrite write) {
+        if (!enabled) {
+            flush(List.of(write));
+            join(write.done());
+            return;
+        }
+        try {
+            if (!queue.offer(write, submitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                failedEvents.increment();
+                throw new IllegalStateException("Webhook write queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing webhook write", e);
+        }
+        join(write.done());
+    }
+
+    private void join(CompletableFuture<Void> done) {
+        try {
+            done.get(submitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for webhook write", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Webhook write failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for webhook write", e);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxRows);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxRows) {
+                    // Take whatever is already queued without waiting, then wait out the rest of the window
+                    if (queue.drainTo(batch, maxRows - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                log.error("Webhook batch writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        if (!shardDirectory.isEnabled()) {
+            flushShard(batch);
+            return;
+        }
+        Map<String, List<PendingWrite>> byShard = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            String tenantId = write.tenantId();
+            ShardDirectory.Placement placement = shardDirectory.placement(tenantId);
+            if (placement.state() == ShardDirectory.State.MOVING) {
+                failedEvents.increment();
+                write.done().completeExceptionally(new TenantMovingException(tenantId));
+                continue;
+            }
+            byShard.computeIfAbsent(placement.shard(), s -> new ArrayList<>()).add(write);
+        }
+        byShard.forEach((shard, writes) -> TenantContext.runOnShard(shard, () -> flushShard(writes)));
+    }
+
+    private void flushShard(List<PendingWrite> batch) {
+        long started = System.nanoTime();
+        try {
+            write(batch);
+            batch.forEach(write -> write.done().complete(null));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failedEvents.increment();
+                batch.get(0).done().completeExceptionally(e);
+            } else {
+                log.warn("Webhook batch of {} failed, retrying events one at a time", batch.size(), e);
+                for (PendingWrite write : batch) {
+                    try {
+                        write(List.of(write));
+                        write.done().complete(null);
+                    } catch (RuntimeException single) {
+                        failedEvents.increment();
+                        write.done().completeExceptionally(single);
+                    }
+                }
+            }
+        } finally {
+            batchRows.record(batch.size());
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<CartEvent> carts = new ArrayList<>();
+            List<CheckoutEvent> checkouts = new ArrayList<>();
+            List<CheckoutEvent> checkoutLog = new ArrayList<>();
+            for (PendingWrite write : unwritten(batch)) {
+                if (write.cart() != null) {
+                    carts.add(write.cart());
+                } else {
+                    checkouts.add(write.checkout());
+                    if (write.logCheckout()) {
+                        checkoutLog.add(write.checkout());
+                    }
+                }
+            }
+            Map<String, Activity> activity = new HashMap<>();
+            // Carts first, so a checkout in the same batch finds its cart's creation time
+            if (!carts.isEmpty()) {
+                writeCarts(carts, activity);
+            }
+            if (!checkoutLog.isEmpty()) {
+                insertCheckoutEvents(checkoutLog);
+            }
+            if (!checkouts.isEmpty()) {
+                checkouts.forEach(checkout -> activity(activity, checkout.getTenantId()).checkoutEvents++);
+                upsertSessions(checkouts, activity);
+            }
+            // Delivered to transactional listeners after commit; a rolled-back batch publishes nothing
+            activity.forEach((tenantId, counts) -> eventPublisher.publishEvent(StorefrontActivityEvent.builder()
+                    .tenantId(tenantId)
+                    .cartEvents(counts.cartEvents)
+                    .cartsCreated(counts.cartsCreated)
+                    .checkoutEvents(counts.checkoutEvents)
+                    .checkoutsStarted(counts.checkoutsStarted)
+                    .build()));
+        });
+    }
+
+    // Claims the batch's delivery ids and drops the writes whose delivery was already written, by an
+    // earlier batch or earlier in this one
+    private List<PendingWrite> unwritten(List<PendingWrite> batch) {
+        List<WebhookDeliveries.Delivery> deliveries = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.webhookId() != null) {
+                deliveries.add(new WebhookDeliveries.Delivery(write.tenantId(), write.webhookId()));
+            }
+        }
+        if (deliveries.isEmpty()) {
+            return batch;
+        }
+        Set<WebhookDeliveries.Delivery> claimed = webhookDeliveries.claim(deliveries);
+        List<PendingWrite> unwritten = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            if (write.webhookId() == null
+                    || claimed.remove(new WebhookDeliveries.Delivery(write.tenantId(), write.webhookId()))) {
+                unwritten.add(write);
+            }
+        }
+        if (unwritten.size() < batch.size()) {
+            log.info("Skipped {} redelivered webhook events", batch.size() - unwritten.size());
+        }
+        return unwritten;
+    }
+
+    private void writeCarts(List<CartEvent> carts, Map<String, Activity> activity) {
+        // Redelivered webhooks repeat the token; only its first row counts toward the funnel
+        Map<String, Set<String>> tokensByTenant = new HashMap<>();
+        for (CartEvent cart : carts) {
+            if (cart.getCartToken() != null) {
+                tokensByTenant.computeIfAbsent(cart.getTenantId(), t -> new HashSet<>()).add(cart.getCartToken());
+            }
+        }
+        Map<String, Set<String>> seenByTenant = new HashMap<>();
+        tokensByTenant.forEach((tenantId, tokens) ->
+                seenByTenant.put(tenantId, new HashSet<>(findCartCreatedAt(tenantId, tokens).keySet())));
+
+        jdbcTemplate.batchUpdate(INSERT_CART_EVENT, carts, carts.size(), (ps, cart) -> {
+            ps.setString(1, cart.getTenantId());
+            ps.setString(2, cart.getCartToken());
+            ps.setString(3, cart.getCustomerEmail());
+            ps.setString(4, cart.getCustomerId());
+            ps.setObject(5, cart.getCartValue(), Types.NUMERIC);
+            ps.setObject(6, cart.getItemCount(), Types.INTEGER);
+            ps.setString(7, cart.getEventType());
+            ps.setTimestamp(8, Timestamp.valueOf(cart.getCreatedAt()));
+        });
+
+        Map<TenantDay, Integer> created = new HashMap<>();
+        for (CartEvent cart : carts) {
+            activity(activity, cart.getTenantId()).cartEvents++;
+            if (cart.getCartToken() == null
+                    || seenByTenant.computeIfAbsent(cart.getTenantId(), t -> new HashSet<>()).add(cart.getCartToken())) {
+                created.merge(new TenantDay(cart.getTenantId(), cart.getCreatedAt().toLocalDate()), 1, Integer::sum);
+            }
+        }
+        created.forEach((key, count) -> {
+            funnelService.recordCartsCreated(key.tenantId(), key.day(), count);
+            activity(activity, key.tenantId()).cartsCreated += count;
+        });
+    }
+
+    private void insertCheckoutEvents(List<CheckoutEvent> checkouts) {
+        jdbcTemplate.batchUpdate(INSERT_CHECKOUT_EVENT, checkouts, checkouts.size(), (ps, checkout) -> {
+            ps.setString(1, checkout.getTenantId());
+            ps.setString(2, checkout.getCheckoutToken());
+            ps.setString(3, checkout.getCartToken());
+            ps.setString(4, checkout.getCustomerEmail());
+            ps.setString(5, checkout.getCustomerId());
+            ps.setObject(6, checkout.getCheckoutValue(), Types.NUMERIC);
+            ps.setObject(7, checkout.getItemCount(), Types.INTEGER);
+            ps.setString(8, checkout.getEventType());
+            ps.setTimestamp(9, Timestamp.valueOf(checkout.getCreatedAt()));
+        });
+    }
+
+    private void upsertSessions(List<CheckoutEvent> checkouts, Map<String, Activity> activity) {
+        // One upsert cannot touch the same row twice, so fold repeated tokens the way the upsert would
+        Map<List<String>, CheckoutEvent> sessions = new LinkedHashMap<>();
+        for (CheckoutEvent checkout : checkouts) {
+            if (checkout.getCheckoutToken() == null) {
+                continue;
+            }
+            sessions.merge(List.of(checkout.getTenantId(), checkout.getCheckoutToken()), checkout,
+                    WebhookEventWriter::mergeSession);
+        }
+        List<CheckoutEvent> rows = new ArrayList<>(sessions.values());
+
+        Map<String, List<StartedSession>> startedByTenant = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += SESSION_UPSERT_CHUNK) {
+            List<CheckoutEvent> chunk = rows.subList(from, Math.min(from + SESSION_UPSERT_CHUNK, rows.size()));
+            String sql = UPSERT_SESSIONS_PREFIX
+                    + String.join(", ", Collections.nCopies(chunk.size(), UPSERT_SESSIONS_ROW))
+                    + UPSERT_SESSIONS_SUFFIX;
+            jdbcTemplate.query(sql, ps -> bindSessions(ps, chunk), rs -> {
+                if (rs.getBoolean(4)) {
+                    startedByTenant.computeIfAbsent(rs.getString(1), t -> new ArrayList<>())
+                            .add(new StartedSession(rs.getString(2), rs.getTimestamp(3).toLocalDateTime()));
+                }
+            });
+        }
+
+        startedByTenant.forEach((tenantId, started) -> {
+            activity(activity, tenantId).checkoutsStarted += started.size();
+            Set<String> cartTokens = new HashSet<>();
+            started.forEach(session -> {
+                if (session.cartToken() != null) {
+                    cartTokens.add(session.cartToken());
+                }
+            });
+            Map<String, LocalDateTime> cartCreatedAt = findCartCreatedAt(tenantId, cartTokens);
+
+            Map<LocalDate, Integer> counts = new HashMap<>();
+            Map<LocalDate, List<Long>> durations = new HashMap<>();
+            for (StartedSession session : started) {
+                LocalDate day = session.startedAt().toLocalDate();
+                counts.merge(day, 1, Integer::sum);
+                LocalDateTime cartAt = session.cartToken() != null ? cartCreatedAt.get(session.cartToken()) : null;
+                if (cartAt != null) {
+                    durations.computeIfAbsent(day, d -> new ArrayList<>())
+                            .add(Math.max(0, Duration.between(cartAt, session.startedAt()).toSeconds()));
+                }
+            }
+            counts.forEach((day, count) -> funnelService.recordCheckoutsStarted(tenantId, day, count,
+                    durations.getOrDefault(day, List.of())));
+        });
+    }
+
+    private static void bindSessions(PreparedStatement ps, List<CheckoutEvent> chunk) throws SQLException {
+        int i = 1;
+        for (CheckoutEvent checkout : chunk) {
+            Timestamp at = Timestamp.valueOf(checkout.getCreatedAt());
+            ps.setString(i++, checkout.getTenantId());
+            ps.setString(i++, checkout.getCheckoutToken());
+            ps.setString(i++, checkout.getCartToken());
+            ps.setString(i++, checkout.getCustomerEmail());
+            ps.setString(i++, checkout.getCustomerId());
+            ps.setObject(i++, checkout.getCheckoutValue(), Types.NUMERIC);
+            ps.setObject(i++, checkout.getItemCount(), Types.INTEGER);
+            ps.setTimestamp(i++, at);
+            ps.setTimestamp(i++, at);
+        }
+    }
+
+    // Later events win field by field, mirroring the upsert's COALESCE(EXCLUDED.x, x)
+    private static CheckoutEvent mergeSession(CheckoutEvent earlier, CheckoutEvent later) {
+        CheckoutEvent merged = new CheckoutEvent();
+        merged.setTenantId(earlier.getTenantId());
+        merged.setCheckoutToken(earlier.getCheckoutToken());
+        merged.setCartToken(later.getCartToken() != null ? later.getCartToken() : earlier.getCartToken());
+        merged.setCustomerEmail(later.getCustomerEmail() != null ? later.getCustomerEmail() : earlier.getCustomerEmail());
+        merged.setCustomerId(later.getCustomerId() != null ? later.getCustomerId() : earlier.getCustomerId());
+        merged.setCheckoutValue(later.getCheckoutValue() != null ? later.getCheckoutValue() : earlier.getCheckoutValue());
+        merged.setItemCount(later.getItemCount() != null ? later.getItemCount() : earlier.getItemCount());
+        merged.setCreatedAt(later.getCreatedAt());
+        return merged;
+    }
+
+    private static Activity activity(Map<String, Activity> activity, String tenantId) {
+        return activity.computeIfAbsent(tenantId, t -> new Activity());
+    }
+
+    // Earliest row per cart token, for first-seen checks and cart → checkout durations
+    private Map<String, LocalDateTime> findCartCreatedAt(String tenantId, Collection<String> tokens) {
+        Map<String, LocalDateTime> createdAt = new HashMap<>();
+        if (tokens.isEmpty()) {
+            return createdAt;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT cart_token, MIN(created_at) FROM cart_events " +
+                    "WHERE tenant_id = ? AND cart_token = ANY(?) GROUP BY cart_token");
+            ps.setString(1, tenantId);
+            ps.setArray(2, con.createArrayOf("varchar", tokens.toArray()));
+            return ps;
+        }, rs -> {
+            createdAt.put(rs.getString(1), rs.getTimestamp(2).toLocalDateTime());
+        });
+        return createdAt;
+    }
+}
@@ -1,37 +1,63 @@
 package com.xeno.service;
 
+import com.xeno.event.StorefrontActivityEvent;
 import com.xeno.model.*;
 import com.xeno.repository.*;
+import com.xeno.shard.TenantContext;
+import com.xeno.shard.TenantMovingException;
+import com.xeno.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WebhookService {
     
-    private final CartEventRepository cartEventRepository;
     private final CheckoutEventRepository checkoutEventRepository;
     private final TenantRepository tenantRepository;
+    private final CheckoutSessionRepository checkoutSessionRepository;
+    private final AbandonmentDetectorService abandonmentDetectorService;
+    private final FunnelService funnelService;
+    private final WebhookEventWriter webhookEventWriter;
+    private final WebhookDeliveries webhookDeliveries;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
     
-    @Transactional
-    public void processCartCreate(Map<String, Object> payload, String shopDomain) {
+    // Webhooks arrive in bursts from a handful of shops; skip the tenant query on every call
+    private final Map<String, CachedTenant> tenantsByDomain = new ConcurrentHashMap<>();
+    
+    // Append-only checkout_events rows; checkout_sessions is always maintained
+    @Value("${webhooks.checkout-event-log.enabled:true}")
+    private boolean checkoutEventLogEnabled;
+    
+    @Value("${webhooks.tenant-cache-ttl-ms:60000}")
+    private long tenantCacheTtlMillis;
+    
+    // Cart and checkout writes go through WebhookEventWriter, which batches them into its own
+    // transactions, so these methods hold no connection while they wait. webhookId is Shopify's delivery
+    // id (X-Shopify-Webhook-Id); a redelivery of a webhook already written is skipped.
+    public void processCartCreate(Map<String, Object> payload, String shopDomain, String webhookId) {
         try {
             log.info("Processing cart_create webhook for domain: {}", shopDomain);
             
-            // Find tenant by shop domain
-            Tenant tenant = tenantRepository.findByShopifyDomain(shopDomain)
-                    .orElseThrow(() -> new RuntimeException("Tenant not found for domain: " + shopDomain));
+            String tenantId = resolveTenantId(shopDomain);
             
             CartEvent cartEvent = new CartEvent();
-            cartEvent.setTenantId(tenant.getTenantId());
+            cartEvent.setTenantId(tenantId);
             cartEvent.setCartToken((String) payload.get("token"));
             cartEvent.setEventType("cart_created");
             
@@ -47,96 +73,185 @@ public class WebhookService {
                 List<Map<String, Object>> lineItems = (List<Map<String, Object>>) payload.get("line_items");
                 cartEvent.setItemCount(lineItems.size());
                 
-                // Calculate total
-                BigDecimal total = BigDecimal.ZERO;
+                // Calculate total in minor units, converting to BigDecimal once for the entity
+                long totalCents = 0L;
                 for (Map<String, Object> item : lineItems) {
                     if (item.containsKey("price") && item.containsKey("quantity")) {
-                        BigDecimal price = new BigDecimal(item.get("price").toString());
-                        Integer quantity = (Integer) item.get("quantity");
-                        total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+                        long priceCents = Money.parseMinorUnits(item.get("price").toString());
+                        int quantity = ((Number) item.get("quantity")).intValue();
+                        totalCents += priceCents * quantity;
                     }
                 }
-                cartEvent.setCartValue(total);
+                cartEvent.setCartValue(Money.toDecimal(totalCents));
             }
             
             cartEvent.setIsAbandoned(false);
-            cartEventRepository.save(cartEvent);
+            cartEvent.setCreatedAt(LocalDateTime.now());
+            webhookEventWriter.writeCart(cartEvent, webhookId);
+            abandonmentDetectorService.scheduleCart(tenantId, cartEvent.getCartToken(), cartEvent.getCreatedAt());
             
-            log.info("Cart event saved successfully for tenant: {}", tenant.getTenantId());
+            log.info("Cart event saved successfully for tenant: {}", tenantId);
         } catch (Exception e) {
+            rethrowIfWriteFailed(e);
             log.error("Error processing cart_create webhook", e);
         }
     }
     
-    @Transactional
-    public void processCheckoutCreate(Map<String, Object> payload, String shopDomain) {
+    public void processCheckoutCreate(Map<String, Object> payload, String shopDomain, String webhookId) {
         try {
             log.info("Processing checkout_create webhook for domain: {}", shopDomain);
             
-            // Find tenant by shop domain
-            Tenant tenant = tenantRepository.findByShopifyDomain(shopDomain)
-                    .orElseThrow(() -> new RuntimeException("Tenant not found for domain: " + shopDomain));
+            String tenantId = resolveTenantId(shopDomain);
             
-            CheckoutEvent checkoutEvent = new CheckoutEvent();
-            checkoutEvent.setTenantId(tenant.getTenantId());
-            checkoutEvent.setCheckoutToken((String) payload.get("token"));
+            CheckoutEvent checkoutEvent = parseCheckout(payload, tenantId);
             checkoutEvent.setEventType("checkout_started");
+            checkoutEvent.setCreatedAt(LocalDateTime.now());
+            webhookEventWriter.writeCheckout(checkoutEvent, checkoutEventLogEnabled, webhookId);
+            abandonmentDetectorService.cancelCart(tenantId, checkoutEvent.getCartToken());
+            abandonmentDetectorService.scheduleCheckout(tenantId, checkoutEvent.getCheckoutToken(), checkoutEvent.getCreatedAt());
             
-            // Extract customer info
-            if (payload.containsKey("customer") && payload.get("customer") != null) {
-                Map<String, Object> customer = (Map<String, Object>) payload.get("customer");
-                checkoutEvent.setCustomerEmail((String) customer.get("email"));
-                checkoutEvent.setCustomerId(String.valueOf(customer.get("id")));
-            } else if (payload.containsKey("email")) {
-                checkoutEvent.setCustomerEmail((String) payload.get("email"));
-            }
-            
-            // Extract checkout value
-            if (payload.containsKey("total_price")) {
-                checkoutEvent.setCheckoutValue(new BigDecimal(payload.get("total_price").toString()));
-            }
-            
-            // Extract item count
-            if (payload.containsKey("line_items")) {
-                List<Map<String, Object>> lineItems = (List<Map<String, Object>>) payload.get("line_items");
-                checkoutEvent.setItemCount(lineItems.size());
-            }
-            
-            checkoutEvent.setCompleted(false);
-            checkoutEvent.setAbandoned(false);
-            checkoutEventRepository.save(checkoutEvent);
-            
-            log.info("Checkout event saved successfully for tenant: {}", tenant.getTenantId());
+            log.info("Checkout session started for tenant: {}", tenantId);
         } catch (Exception e) {
+            rethrowIfWriteFailed(e);
             log.error("Error processing checkout_create webhook", e);
         }
     }
     
-    @Transactional
-    public void processCheckoutUpdate(Map<String, Object> payload, String shopDomain) {
+    public void processCheckoutUpdate(Map<String, Object> payload, String shopDomain, String webhookId) {
         try {
             log.info("Processing checkout_update webhook for domain: {}", shopDomain);
             
-            Tenant tenant = tenantRepository.findByShopifyDomain(shopDomain)
-                    .orElseThrow(() -> new RuntimeException("Tenant not found for domain: " + shopDomain));
+            String tenantId = resolveTenantId(shopDomain);
             
-            String checkoutToken = (String) payload.get("token");
+            CheckoutEvent checkoutEvent = parseCheckout(payload, tenantId);
+            String checkoutToken = checkoutEvent.getCheckoutToken();
+            if (checkoutToken == null) {
+                log.warn("Ignoring checkout_update without token for tenant: {}", tenantId);
+                return;
+            }
             
             // Check if order was completed
             if (payload.containsKey("order_id") && payload.get("order_id") != null) {
-                // Checkout was completed - mark as completed
-                CheckoutEvent checkoutEvent = new CheckoutEvent();
-                checkoutEvent.setTenantId(tenant.getTenantId());
-                checkoutEvent.setCheckoutToken(checkoutToken);
-                checkoutEvent.setEventType("checkout_completed");
-                checkoutEvent.setCompleted(true);
-                checkoutEvent.setCompletedAt(LocalDateTime.now());
-                checkoutEventRepository.save(checkoutEvent);
+                new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                        completeSession(checkoutEvent, String.valueOf(payload.get("order_id")), webhookId));
+                abandonmentDetectorService.cancelCheckout(tenantId, checkoutToken);
                 
-                log.info("Checkout completed event saved for tenant: {}", tenant.getTenantId());
+                log.info("Checkout session completed for tenant: {}", tenantId);
+            } else {
+                // Still in progress: refresh the session and restart its abandonment timer
+                checkoutEvent.setCreatedAt(LocalDateTime.now());
+                webhookEventWriter.writeCheckout(checkoutEvent, false, webhookId);
+                abandonmentDetectorService.scheduleCheckout(tenantId, checkoutToken, checkoutEvent.getCreatedAt());
             }
         } catch (Exception e) {
+            rethrowIfWriteFailed(e);
             log.error("Error processing checkout_update webhook", e);
         }
     }
+    
+    // Completions are rare next to cart/checkout traffic and need the transition result, so they are
+    // written directly rather than through the batch writer
+    private void completeSession(CheckoutEvent checkout, String orderId, String webhookId) {
+        String tenantId = checkout.getTenantId();
+        if (webhookId != null && webhookDeliveries.claim(
+                List.of(new WebhookDeliveries.Delivery(tenantId, webhookId))).isEmpty()) {
+            log.info("Skipping redelivered checkout completion for tenant: {}", tenantId);
+            return;
+        }
+        LocalDateTime completedAt = LocalDateTime.now();
+        List<Object[]> transition = checkoutSessionRepository.upsertCompleted(tenantId, checkout.getCheckoutToken(),
+                checkout.getCustomerEmail(), checkout.getCheckoutValue(), orderId, completedAt);
+        if (!transition.isEmpty()) {
+            boolean inserted = (Boolean) transition.get(0)[1];
+            if (inserted) {
+                // Completion without a seen start still entered the funnel at checkout
+                funnelService.recordCheckoutStarted(tenantId, completedAt, null);
+            }
+            LocalDateTime startedAt = inserted ? null : toLocalDateTime(transition.get(0)[0]);
+            funnelService.recordCheckoutCompleted(tenantId, completedAt, startedAt);
+        }
+        
+        if (checkoutEventLogEnabled) {
+            checkout.setEventType("checkout_completed");
+            checkout.setCompleted(true);
+            checkout.setCompletedAt(completedAt);
+            checkoutEventRepository.save(checkout);
+        }
+        // Delivered to transactional listeners once the completion commits
+        eventPublisher.publishEvent(StorefrontActivityEvent.builder()
+                .tenantId(tenantId)
+                .checkoutEvents(1)
+                .checkoutsCompleted(transition.isEmpty() ? 0 : 1)
+                .build());
+    }
+    
+    // Looked up on the default shard, which holds the tenant catalog; the rest of the request then
+    // follows the tenant to its own shard
+    private String resolveTenantId(String shopDomain) {
+        long now = System.currentTimeMillis();
+        CachedTenant cached = tenantsByDomain.get(shopDomain);
+        String tenantId;
+        if (cached != null && cached.expiresAt > now) {
+            tenantId = cached.tenantId;
+        } else {
+            Tenant tenant = tenantRepository.findByShopifyDomain(shopDomain)
+                    .orElseThrow(() -> new RuntimeException("Tenant not found for domain: " + shopDomain));
+            tenantId = tenant.getTenantId();
+            tenantsByDomain.put(shopDomain, new CachedTenant(tenantId, now + tenantCacheTtlMillis));
+        }
+        TenantContext.set(tenantId);
+        return tenantId;
+    }
+    
+    private record CachedTenant(String tenantId, long expiresAt) {
+    }
+    
+    // A write that failed, timed out or was refused mid-move fails the webhook, so Shopify redelivers
+    // it; only payloads that cannot be handled at all are acknowledged
+    private static void rethrowIfWriteFailed(Exception e) {
+        if (TenantMovingException.isCause(e)) {
+            throw new IllegalStateException("Tenant is moving to another shard", e);
+        }
+        if (e instanceof IllegalStateException || e instanceof DataAccessException || e instanceof TransactionException) {
+            throw (RuntimeException) e;
+        }
+    }
+    
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+    
+    private CheckoutEvent parseCheckout(Map<String, Object> payload, String tenantId) {
+        CheckoutEvent checkoutEvent = new CheckoutEvent();
+        checkoutEvent.setTenantId(tenantId);
+        checkoutEvent.setCheckoutToken((String) payload.get("token"));
+        checkoutEvent.setCartToken((String) payload.get("cart_token"));
+        
+        // Extract customer info
+        if (payload.containsKey("customer") && payload.get("customer") != null) {
+            Map<String, Object> customer = (Map<String, Object>) payload.get("customer");
+            checkoutEvent.setCustomerEmail((String) customer.get("email"));
+            checkoutEvent.setCustomerId(String.valueOf(customer.get("id")));
+        } else if (payload.containsKey("email")) {
+            checkoutEvent.setCustomerEmail((String) payload.get("email"));
+        }
+        
+        // Extract checkout value
+        if (payload.get("total_price") != null) {
+            checkoutEvent.setCheckoutValue(new BigDecimal(payload.get("total_price").toString()));
+        }
+        
+        // Extract item count
+        if (payload.containsKey("line_items")) {
+            List<Map<String, Object>> lineItems = (List<Map<String, Object>>) payload.get("line_items");
+            checkoutEvent.setItemCount(lineItems.size());
+        }
+        
+        checkoutEvent.setCompleted(false);
+        checkoutEvent.setAbandoned(false);
+        return checkoutEvent;
+    }
 }
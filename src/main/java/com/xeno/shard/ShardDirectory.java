@@ -0,0 +1,156 @@
+package com.xeno.shard;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which shard holds each tenant's rows.
+ * <p>
+ * Placements live in {@code tenant_shards} on the default shard, next to the tenant catalog, and
+ * are reloaded every {@code sharding.directory-refresh-ms} so all instances follow a move. Tenants
+ * without a row (every tenant until one is moved) are on the default shard. With
+ * {@code sharding.enabled=false} there is only the default shard and no table is read.
+ * <p>
+ * The table is created by migration V5, which runs after this bean is built, so placements are
+ * first loaded on the first tenant lookup rather than at startup.
+ */
+@Component
+@Slf4j
+public class ShardDirectory {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    public enum State { ACTIVE, MOVING }
+
+    public record Placement(String shard, State state) {}
+
+    private static final Placement DEFAULT_PLACEMENT = new Placement(DEFAULT_SHARD, State.ACTIVE);
+
+    private final boolean enabled;
+    private final Map<String, ShardNode> nodes;
+    private final ObjectProvider<DataSource> defaultShard;
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Map<String, Placement> placements = Map.of();
+    private volatile boolean placementsLoaded;
+
+    public ShardDirectory(Environment environment,
+                          @Value("${sharding.enabled:false}") boolean enabled,
+                          @Qualifier("primaryDataSource") ObjectProvider<DataSource> defaultShard) {
+        this.enabled = enabled;
+        this.defaultShard = defaultShard;
+        Map<String, ShardNode> configured = Binder.get(environment)
+                .bind("sharding.shards", Bindable.mapOf(String.class, ShardNode.class))
+                .orElse(Map.of());
+        if (configured.containsKey(DEFAULT_SHARD)) {
+            throw new IllegalArgumentException("sharding.shards." + DEFAULT_SHARD + " is reserved for the primary");
+        }
+        this.nodes = enabled ? new LinkedHashMap<>(configured) : Map.of();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate = new JdbcTemplate(defaultShard.getObject());
+        log.info("Sharding enabled: shards {}", shardIds());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Extra shards by id; the default shard is the primary datasource and is not listed.
+     */
+    public Map<String, ShardNode> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Every shard id, default first.
+     */
+    public Set<String> shardIds() {
+        Set<String> ids = new LinkedHashSet<>();
+        ids.add(DEFAULT_SHARD);
+        ids.addAll(nodes.keySet());
+        return ids;
+    }
+
+    public Placement placement(String tenantId) {
+        if (tenantId == null) {
+            return DEFAULT_PLACEMENT;
+        }
+        if (enabled && !placementsLoaded) {
+            refresh();
+        }
+        return placements.getOrDefault(tenantId, DEFAULT_PLACEMENT);
+    }
+
+    public String shardFor(String tenantId) {
+        return placement(tenantId).shard();
+    }
+
+    public boolean isMoving(String tenantId) {
+        return placement(tenantId).state() == State.MOVING;
+    }
+
+    @Scheduled(fixedDelayString = "${sharding.directory-refresh-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Placement> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT tenant_id, shard_id, state FROM tenant_shards", rs -> {
+            String shard = rs.getString(2);
+            if (!DEFAULT_SHARD.equals(shard) && !nodes.containsKey(shard)) {
+                log.error("Tenant {} is placed on unknown shard {}; check sharding.shards", rs.getString(1), shard);
+            }
+            loaded.put(rs.getString(1), new Placement(shard, State.valueOf(rs.getString(3))));
+        });
+        placements = loaded;
+        if (!placementsLoaded) {
+            log.info("Loaded shard placements: {} tenants placed off the default shard", loaded.size());
+            placementsLoaded = true;
+        }
+    }
+
+    /**
+     * Freezes writes for the tenant on its current shard; see {@link TenantShardMigrator}.
+     */
+    void markMoving(String tenantId, String shard) {
+        save(tenantId, shard, State.MOVING);
+    }
+
+    void assign(String tenantId, String shard) {
+        save(tenantId, shard, State.ACTIVE);
+    }
+
+    private void save(String tenantId, String shard, State state) {
+        if (!enabled) {
+            throw new IllegalStateException("Sharding is disabled");
+        }
+        jdbcTemplate.update("INSERT INTO tenant_shards (tenant_id, shard_id, state, updated_at) " +
+                "VALUES (?, ?, ?, LOCALTIMESTAMP) ON CONFLICT (tenant_id) DO UPDATE SET " +
+                "shard_id = EXCLUDED.shard_id, state = EXCLUDED.state, updated_at = EXCLUDED.updated_at",
+                tenantId, shard, state.name());
+        refresh();
+    }
+}
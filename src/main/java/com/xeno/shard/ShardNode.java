@@ -0,0 +1,9 @@
+package com.xeno.shard;
+
+/**
+ * One extra Postgres node from {@code sharding.shards.<id>.*}. Username and password default to the
+ * primary's. Row ids created on the node start at {@code idBase}, so rows keep their ids when a
+ * tenant moves between shards without colliding with the target's own rows.
+ */
+public record ShardNode(String url, String username, String password, Long idBase) {
+}
@@ -0,0 +1,50 @@
+package com.xeno.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections to the shard of the tenant in {@link TenantContext}, or to the shard named
+ * there explicitly, and to the default shard when neither is set.
+ * <p>
+ * Like the replica router it sits behind a lazy connection proxy, so the shard is picked at the first
+ * statement. While a tenant is {@link ShardDirectory.State#MOVING}, only read-only transactions get a
+ * connection for it; everything else fails with {@link TenantMovingException}.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ShardDirectory directory;
+
+    public ShardRoutingDataSource(DataSource defaultShard, Map<String, ? extends DataSource> shards,
+                                  ShardDirectory directory) {
+        this.directory = directory;
+        Map<Object, Object> targets = new HashMap<>(shards);
+        targets.put(ShardDirectory.DEFAULT_SHARD, defaultShard);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(defaultShard);
+        // A tenant placed on a shard that is not configured must fail, not read the default shard
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = TenantContext.shard();
+        return shard != null ? shard : directory.shardFor(TenantContext.tenantId());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String tenantId = TenantContext.tenantId();
+        if (tenantId != null && TenantContext.shard() == null && directory.isMoving(tenantId)
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new TenantMovingException(tenantId);
+        }
+        return super.getConnection();
+    }
+}
@@ -0,0 +1,112 @@
+package com.xeno.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * The tenant (or, for cross-tenant maintenance, the shard) the current thread works for.
+ * {@link ShardRoutingDataSource} picks its database from this.
+ * <p>
+ * Requests get the tenant from the JWT filter or from the webhook's shop domain; background work sets
+ * it around each tenant's unit of work. With nothing set, connections go to the default shard, which
+ * also holds the tenant catalog used for logins and webhook lookups.
+ */
+public final class TenantContext {
+
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String tenantId() {
+        return TENANT.get();
+    }
+
+    /**
+     * Shard chosen explicitly with {@link #runOnShard}, or null when routing follows the tenant.
+     */
+    public static String shard() {
+        return SHARD.get();
+    }
+
+    public static void set(String tenantId) {
+        TENANT.set(tenantId);
+    }
+
+    public static void clear() {
+        TENANT.remove();
+        SHARD.remove();
+    }
+
+    public static void run(String tenantId, Runnable task) {
+        call(tenantId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(String tenantId, Supplier<T> task) {
+        String previousTenant = TENANT.get();
+        String previousShard = SHARD.get();
+        TENANT.set(tenantId);
+        SHARD.remove();
+        try {
+            return task.get();
+        } finally {
+            restore(previousTenant, previousShard);
+        }
+    }
+
+    /**
+     * Runs work that spans every tenant on one shard, such as partition maintenance.
+     */
+    public static void runOnShard(String shard, Runnable task) {
+        callOnShard(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static <T> T callOnShard(String shard, Supplier<T> task) {
+        String previousTenant = TENANT.get();
+        String previousShard = SHARD.get();
+        TENANT.remove();
+        SHARD.set(shard);
+        try {
+            return task.get();
+        } finally {
+            restore(previousTenant, previousShard);
+        }
+    }
+
+    /**
+     * Wraps {@code task} to run under the calling thread's context, for handing work to a thread pool.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        String tenantId = TENANT.get();
+        String shard = SHARD.get();
+        return () -> {
+            String previousTenant = TENANT.get();
+            String previousShard = SHARD.get();
+            restore(tenantId, shard);
+            try {
+                return task.get();
+            } finally {
+                restore(previousTenant, previousShard);
+            }
+        };
+    }
+
+    private static void restore(String tenantId, String shard) {
+        if (tenantId != null) {
+            TENANT.set(tenantId);
+        } else {
+            TENANT.remove();
+        }
+        if (shard != null) {
+            SHARD.set(shard);
+        } else {
+            SHARD.remove();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.xeno.shard;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Refuses a write connection for a tenant whose rows are being moved to another shard. The move
+ * freezes writes only for its final catch-up, so the caller should retry shortly.
+ */
+public class TenantMovingException extends SQLTransientConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TenantMovingException(String tenantId) {
+        super("Tenant " + tenantId + " is moving to another shard; retry shortly");
+    }
+
+    /**
+     * Whether {@code e} or one of its causes is a refused connection, as it arrives wrapped in
+     * Spring's data access and transaction exceptions.
+     */
+    public static boolean isCause(Throwable e) {
+        return find(e) != null;
+    }
+
+    public static TenantMovingException find(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TenantMovingException moving) {
+                return moving;
+            }
+        }
+        return null;
+    }
+}
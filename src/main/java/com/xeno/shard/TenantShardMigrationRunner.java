@@ -0,0 +1,71 @@
+package com.xeno.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Runs one tenant move from the command line and exits:
+ * <pre>
+ * java -jar app.jar --sharding.migrate.tenant=&lt;tenantId&gt; --sharding.migrate.target=shard-1 [--sharding.migrate.purge=true]
+ * </pre>
+ * The instance starts like any other, so it shares the shard directory with the running fleet. With
+ * {@code purge}, the tenant's rows are deleted from the old shard once every instance has followed
+ * the move.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sharding.migrate", name = "tenant")
+@Slf4j
+public class TenantShardMigrationRunner implements ApplicationRunner {
+
+    private final TenantShardMigrator migrator;
+    private final ShardDirectory directory;
+    private final ConfigurableApplicationContext context;
+    private final String tenantId;
+    private final String target;
+    private final boolean purge;
+    private final long freezeWaitMillis;
+
+    public TenantShardMigrationRunner(TenantShardMigrator migrator,
+                                      ShardDirectory directory,
+                                      ConfigurableApplicationContext context,
+                                      @Value("${sharding.migrate.tenant}") String tenantId,
+                                      @Value("${sharding.migrate.target}") String target,
+                                      @Value("${sharding.migrate.purge:false}") boolean purge,
+                                      @Value("${sharding.migration.freeze-wait-ms:15000}") long freezeWaitMillis) {
+        this.migrator = migrator;
+        this.directory = directory;
+        this.context = context;
+        this.tenantId = tenantId;
+        this.target = target;
+        this.purge = purge;
+        this.freezeWaitMillis = freezeWaitMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        try {
+            String source = directory.shardFor(tenantId);
+            Map<String, Long> copied = migrator.migrate(tenantId, target);
+            log.info("Moved tenant {} from shard {} to shard {}: {}", tenantId, source, target, copied);
+            if (purge) {
+                // Instances still reading the old placement finish within one refresh interval
+                Thread.sleep(freezeWaitMillis);
+                migrator.purge(tenantId, source);
+            }
+        } catch (RuntimeException e) {
+            log.error("Moving tenant {} to shard {} failed", tenantId, target, e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
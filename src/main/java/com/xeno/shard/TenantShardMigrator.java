@@ -0,0 +1,335 @@
+package com.xeno.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves one tenant's rows to another shard while the tenant stays online.
+ * <p>
+ * A move runs in four phases:
+ * <ol>
+ *   <li>Copy: every table is copied by id in keyset chunks, upserting on the target's primary key,
+ *       while the tenant keeps reading and writing on its current shard.</li>
+ *   <li>Freeze: the tenant is marked {@link ShardDirectory.State#MOVING}. Every instance refuses its
+ *       writes from its next directory refresh on, and {@code freeze-wait-ms} lets in-flight writes
+ *       finish. Reads continue on the source.</li>
+ *   <li>Catch-up: rows changed since the copy started (by their timestamp columns, less
+ *       {@code catch-up-margin-ms}) are copied again, and the small per-day tables are re-copied.</li>
+ *   <li>Switch: once row counts match on both shards the tenant is assigned to the target. Any
+ *       failure before that puts the tenant back on the source as active.</li>
+ * </ol>
+ * Rows keep their ids, which is why each shard hands out ids from its own {@code id-base}. The source
+ * rows stay until {@link #purge} removes them. The tenant's catalog row always stays on the default
+ * shard, which serves logins and webhook lookups.
+ */
+@Service
+@Slf4j
+public class TenantShardMigrator {
+
+    private enum CatchUp { CHANGED, ORDER_ITEMS, RECOPY }
+
+    private enum Key { TENANT_ID, TENANT_PK }
+
+    private record TableSpec(String table, String filter, Key key, CatchUp catchUp, List<String> changeColumns) {
+
+        static TableSpec changed(String table, Key key, String... changeColumns) {
+            return new TableSpec(table, "tenant_id = ?", key, CatchUp.CHANGED, List.of(changeColumns));
+        }
+
+        static TableSpec recopy(String table, Key key) {
+            return new TableSpec(table, "tenant_id = ?", key, CatchUp.RECOPY, List.of());
+        }
+    }
+
+    private record Chunk(List<String> columns, int[] types, List<Object[]> rows, long lastId) {}
+
+    // Parents before children, so foreign keys hold on the target at every step
+    private static final List<TableSpec> TABLES = List.of(
+            TableSpec.recopy("tenants", Key.TENANT_ID),
+            TableSpec.changed("customers", Key.TENANT_PK, "updated_at"),
+            TableSpec.changed("products", Key.TENANT_PK, "updated_at"),
+            TableSpec.changed("orders", Key.TENANT_PK, "updated_at"),
+            // Items are written with their order, so they are re-copied for every changed order
+            new TableSpec("order_items", "order_id IN (SELECT id FROM orders WHERE tenant_id = ?)",
+                    Key.TENANT_PK, CatchUp.ORDER_ITEMS, List.of()),
+            TableSpec.recopy("product_daily_sales", Key.TENANT_PK),
+            TableSpec.recopy("daily_funnel", Key.TENANT_ID),
+            TableSpec.changed("daily_order_sketches", Key.TENANT_ID, "updated_at"),
+            TableSpec.changed("cart_events", Key.TENANT_ID, "created_at", "abandoned_at"),
+            TableSpec.changed("checkout_events", Key.TENANT_ID, "created_at", "completed_at", "abandoned_at"),
+            TableSpec.changed("checkout_sessions", Key.TENANT_ID,
+                    "started_at", "last_activity_at", "completed_at", "abandoned_at"),
+            TableSpec.changed("webhook_deliveries", Key.TENANT_ID, "received_at"));
+
+    private final ShardDirectory directory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long freezeWaitMillis;
+    private final Duration catchUpMargin;
+
+    public TenantShardMigrator(ShardDirectory directory,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${sharding.migration.chunk-size:5000}") int chunkSize,
+                               @Value("${sharding.migration.freeze-wait-ms:15000}") long freezeWaitMillis,
+                               @Value("${sharding.migration.catch-up-margin-ms:300000}") long catchUpMarginMillis,
+                               @Value("${sharding.directory-refresh-ms:5000}") long directoryRefreshMillis) {
+        if (freezeWaitMillis <= directoryRefreshMillis) {
+            throw new IllegalArgumentException(
+                    "sharding.migration.freeze-wait-ms must be longer than sharding.directory-refresh-ms");
+        }
+        this.directory = directory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.freezeWaitMillis = freezeWaitMillis;
+        this.catchUpMargin = Duration.ofMillis(catchUpMarginMillis);
+    }
+
+    /**
+     * Starts each configured shard's id sequences at its {@code id-base}, before any request is
+     * served, so ids created there never collide with rows moved in from another shard.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void reserveIdRanges() {
+        directory.nodes().forEach((shard, node) -> {
+            if (node.idBase() == null) {
+                log.warn("Shard {} has no id-base; moved rows may collide with its own ids", shard);
+                return;
+            }
+            TenantContext.runOnShard(shard, () -> {
+                for (TableSpec spec : TABLES) {
+                    String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, 'id')",
+                            String.class, spec.table());
+                    if (sequence != null) {
+                        jdbcTemplate.queryForObject("SELECT setval(?::regclass, GREATEST((SELECT last_value FROM " +
+                                sequence + "), ?))", Long.class, sequence, node.idBase());
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Moves the tenant to {@code targetShard} and returns the rows copied per table.
+     */
+    public Map<String, Long> migrate(String tenantId, String targetShard) {
+        if (!directory.isEnabled()) {
+            throw new IllegalStateException("Sharding is disabled");
+        }
+        if (!directory.shardIds().contains(targetShard)) {
+            throw new IllegalArgumentException("Unknown shard: " + targetShard);
+        }
+        ShardDirectory.Placement placement = directory.placement(tenantId);
+        String sourceShard = placement.shard();
+        if (sourceShard.equals(targetShard)) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " is already on shard " + targetShard);
+        }
+        if (placement.state() == ShardDirectory.State.MOVING) {
+            throw new IllegalStateException("Tenant " + tenantId + " is already moving");
+        }
+        Long tenantPk = findTenantPk(sourceShard, tenantId);
+        if (tenantPk == null) {
+            throw new IllegalArgumentException("Tenant not found: " + tenantId);
+        }
+        Object[] keys = {tenantId, tenantPk};
+
+        log.info("Moving tenant {} from shard {} to shard {}", tenantId, sourceShard, targetShard);
+        LocalDateTime copyStarted = LocalDateTime.now();
+        long started = System.currentTimeMillis();
+        try {
+            deleteRows(targetShard, keys, targetShard.equals(ShardDirectory.DEFAULT_SHARD));
+            Map<String, Long> copied = new LinkedHashMap<>();
+            for (TableSpec spec : TABLES) {
+                copied.put(spec.table(), copy(spec.table(), sourceShard, targetShard, spec.filter(), key(spec, keys)));
+            }
+            log.info("Copied tenant {} in {} ms: {}", tenantId, System.currentTimeMillis() - started, copied);
+
+            long frozen = System.currentTimeMillis();
+            directory.markMoving(tenantId, sourceShard);
+            log.info("Tenant {} frozen; waiting {} ms for in-flight writes", tenantId, freezeWaitMillis);
+            Thread.sleep(freezeWaitMillis);
+
+            LocalDateTime since = copyStarted.minus(catchUpMargin);
+            for (TableSpec spec : TABLES) {
+                long rows = catchUp(spec, sourceShard, targetShard, key(spec, keys), since);
+                copied.merge(spec.table(), rows, Long::sum);
+            }
+            verify(sourceShard, targetShard, keys);
+            directory.assign(tenantId, targetShard);
+            long finished = System.currentTimeMillis();
+            log.info("Tenant {} moved to shard {} in {} ms, writes refused for {} ms",
+                    tenantId, targetShard, finished - started, finished - frozen);
+            return copied;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            directory.assign(tenantId, sourceShard);
+            throw new IllegalStateException("Interrupted while moving tenant " + tenantId, e);
+        } catch (RuntimeException e) {
+            log.error("Moving tenant {} failed; it stays on shard {}", tenantId, sourceShard, e);
+            directory.assign(tenantId, sourceShard);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the tenant's rows from a shard it was moved away from. The catalog row on the default
+     * shard is kept.
+     */
+    public void purge(String tenantId, String shard) {
+        if (shard.equals(directory.shardFor(tenantId))) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " is still placed on shard " + shard);
+        }
+        Long tenantPk = findTenantPk(shard, tenantId);
+        if (tenantPk == null) {
+            return;
+        }
+        deleteRows(shard, new Object[]{tenantId, tenantPk}, shard.equals(ShardDirectory.DEFAULT_SHARD));
+        log.info("Purged tenant {} from shard {}", tenantId, shard);
+    }
+
+    private long copy(String table, String sourceShard, String targetShard, String filter, Object... params) {
+        List<String> keyColumns = TenantContext.callOnShard(targetShard, () -> primaryKey(table));
+        long copied = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long afterId = lastId;
+            Chunk chunk = TenantContext.callOnShard(sourceShard, () -> read(table, filter, params, afterId));
+            if (chunk.rows().isEmpty()) {
+                return copied;
+            }
+            TenantContext.runOnShard(targetShard, () -> transactionTemplate.executeWithoutResult(status ->
+                    upsert(table, keyColumns, chunk)));
+            copied += chunk.rows().size();
+            lastId = chunk.lastId();
+        }
+    }
+
+    private long catchUp(TableSpec spec, String sourceShard, String targetShard, Object key, LocalDateTime since) {
+        Timestamp from = Timestamp.valueOf(since);
+        return switch (spec.catchUp()) {
+            case RECOPY -> copy(spec.table(), sourceShard, targetShard, spec.filter(), key);
+            case CHANGED -> {
+                String changed = String.join(" OR ", spec.changeColumns().stream()
+                        .map(column -> column + " >= ?").toList());
+                Object[] params = new Object[spec.changeColumns().size() + 1];
+                params[0] = key;
+                Arrays.fill(params, 1, params.length, from);
+                yield copy(spec.table(), sourceShard, targetShard, spec.filter() + " AND (" + changed + ")", params);
+            }
+            case ORDER_ITEMS -> {
+                String changedOrders = "order_id IN (SELECT id FROM orders WHERE tenant_id = ? AND updated_at >= ?)";
+                TenantContext.runOnShard(targetShard, () ->
+                        jdbcTemplate.update("DELETE FROM order_items WHERE " + changedOrders, key, from));
+                yield copy(spec.table(), sourceShard, targetShard, changedOrders, key, from);
+            }
+        };
+    }
+
+    private void verify(String sourceShard, String targetShard, Object[] keys) {
+        List<String> mismatches = new ArrayList<>();
+        for (TableSpec spec : TABLES) {
+            String sql = "SELECT count(*) FROM " + spec.table() + " WHERE " + spec.filter();
+            Object key = key(spec, keys);
+            long source = TenantContext.callOnShard(sourceShard, () -> jdbcTemplate.queryForObject(sql, Long.class, key));
+            long target = TenantContext.callOnShard(targetShard, () -> jdbcTemplate.queryForObject(sql, Long.class, key));
+            if (source != target) {
+                mismatches.add(spec.table() + " " + source + " -> " + target);
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("Row counts differ after catch-up: " + mismatches);
+        }
+    }
+
+    // Children first; rows left behind by an earlier aborted move are cleared the same way
+    private void deleteRows(String shard, Object[] keys, boolean keepCatalogRow) {
+        List<TableSpec> reversed = new ArrayList<>(TABLES);
+        Collections.reverse(reversed);
+        TenantContext.runOnShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+            for (TableSpec spec : reversed) {
+                if (keepCatalogRow && spec.table().equals("tenants")) {
+                    continue;
+                }
+                jdbcTemplate.update("DELETE FROM " + spec.table() + " WHERE " + spec.filter(), key(spec, keys));
+            }
+        }));
+    }
+
+    private Chunk read(String table, String filter, Object[] params, long afterId) {
+        Object[] args = Arrays.copyOf(params, params.length + 2);
+        args[params.length] = afterId;
+        args[params.length + 1] = chunkSize;
+        String sql = "SELECT * FROM " + table + " WHERE " + filter + " AND id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            int count = meta.getColumnCount();
+            List<String> columns = new ArrayList<>(count);
+            int[] types = new int[count];
+            int idColumn = -1;
+            for (int c = 0; c < count; c++) {
+                columns.add(meta.getColumnName(c + 1));
+                types[c] = meta.getColumnType(c + 1);
+                if (columns.get(c).equals("id")) {
+                    idColumn = c;
+                }
+            }
+            List<Object[]> rows = new ArrayList<>();
+            long lastId = afterId;
+            while (rs.next()) {
+                Object[] row = new Object[count];
+                for (int c = 0; c < count; c++) {
+                    row[c] = rs.getObject(c + 1);
+                }
+                rows.add(row);
+                lastId = ((Number) row[idColumn]).longValue();
+            }
+            return new Chunk(columns, types, rows, lastId);
+        }, args);
+    }
+
+    private void upsert(String table, List<String> keyColumns, Chunk chunk) {
+        List<String> updates = chunk.columns().stream()
+                .filter(column -> !keyColumns.contains(column))
+                .map(column -> column + " = EXCLUDED." + column)
+                .toList();
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", chunk.columns()) + ") VALUES (" +
+                String.join(", ", Collections.nCopies(chunk.columns().size(), "?")) + ") " +
+                "ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " + String.join(", ", updates);
+        jdbcTemplate.batchUpdate(sql, chunk.rows(), chunk.types());
+    }
+
+    // Partitioned event tables key on (id, created_at), everything else on id
+    private List<String> primaryKey(String table) {
+        return jdbcTemplate.queryForList("SELECT a.attname FROM pg_index i " +
+                "JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey) " +
+                "WHERE i.indrelid = ?::regclass AND i.indisprimary ORDER BY a.attnum", String.class, table);
+    }
+
+    private Long findTenantPk(String shard, String tenantId) {
+        return TenantContext.callOnShard(shard, () -> jdbcTemplate.query("SELECT id FROM tenants WHERE tenant_id = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, tenantId));
+    }
+
+    private static Object key(TableSpec spec, Object[] keys) {
+        return spec.key() == Key.TENANT_ID ? keys[0] : keys[1];
+    }
+}
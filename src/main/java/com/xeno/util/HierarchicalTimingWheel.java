@@ -0,0 +1,185 @@
+package com.xeno.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel keyed by {@code K}, with O(1) schedule and cancel.
+ * <p>
+ * Level 0 has {@code 2^bitsPerLevel} slots of one tick each; every level above covers
+ * {@code 2^bitsPerLevel} slots of the level below. A timer lives in exactly one slot of one level,
+ * chosen by how far its deadline is from the current tick. Whenever a lower level wraps, the
+ * matching slot of the next level is cascaded down. Deadlines beyond the top level's range park in
+ * the top level and are re-placed on cascade, so no timer ever fires early.
+ * <p>
+ * Each timer is a node in an intrusive doubly-linked list per slot, found through a key map, so
+ * cancel unlinks it without searching the slot. Not thread-safe.
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int bitsPerLevel;
+    private final int mask;
+    private final Node<K>[][] slots;
+    private final Map<K, Node<K>> timers = new HashMap<>();
+
+    // Next tick to be processed; every pending timer expires at or after it
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int bitsPerLevel, int levels, long startMillis) {
+        if (tickMillis <= 0 || bitsPerLevel <= 0 || levels <= 0 || (long) bitsPerLevel * levels >= 63) {
+            throw new IllegalArgumentException("Invalid timing wheel geometry");
+        }
+        this.tickMillis = tickMillis;
+        this.bitsPerLevel = bitsPerLevel;
+        this.mask = (1 << bitsPerLevel) - 1;
+        this.slots = (Node<K>[][]) new Node<?>[levels][1 << bitsPerLevel];
+        for (Node<K>[] level : slots) {
+            for (int i = 0; i < level.length; i++) {
+                level[i] = Node.sentinel();
+            }
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Schedules {@code key} to expire at {@code deadlineMillis}, replacing any pending timer for it.
+     * Deadlines already in the past fire on the next tick.
+     */
+    public void schedule(K key, long deadlineMillis) {
+        Node<K> node = timers.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            timers.put(key, node);
+        } else {
+            node.unlink();
+        }
+        // Round up so a timer never fires before its deadline
+        node.deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        place(node);
+    }
+
+    /**
+     * Cancels the pending timer for {@code key}.
+     *
+     * @return whether a timer was pending
+     */
+    public boolean cancel(K key) {
+        Node<K> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    public boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Processes every tick up to and including {@code nowMillis}, handing each expired key to
+     * {@code onExpired} in deadline order.
+     *
+     * @return number of timers that expired
+     */
+    public int advanceTo(long nowMillis, Consumer<K> onExpired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int expired = 0;
+        while (currentTick <= targetTick) {
+            if (timers.isEmpty()) {
+                currentTick = targetTick + 1;
+                break;
+            }
+            int index = (int) (currentTick & mask);
+            if (index == 0) {
+                cascade();
+            }
+            Node<K> head = slots[0][index];
+            while (head.next != head) {
+                Node<K> node = head.next;
+                node.unlink();
+                timers.remove(node.key);
+                onExpired.accept(node.key);
+                expired++;
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+
+    // Level 0 just wrapped: pull the due slot of each higher level down, stopping at the first
+    // level that has not wrapped itself
+    private void cascade() {
+        for (int level = 1; level < slots.length; level++) {
+            int index = (int) ((currentTick >>> (bitsPerLevel * level)) & mask);
+            Node<K> head = slots[level][index];
+            Node<K> node = head.next;
+            head.next = head;
+            head.prev = head;
+            while (node != head) {
+                Node<K> next = node.next;
+                place(node);
+                node = next;
+            }
+            if (index != 0) {
+                break;
+            }
+        }
+    }
+
+    private void place(Node<K> node) {
+        long delta = node.deadlineTick - currentTick;
+        long slotTick = delta < 0 ? currentTick : node.deadlineTick;
+        int level = 0;
+        while (level < slots.length - 1 && delta >= (1L << (bitsPerLevel * (level + 1)))) {
+            level++;
+        }
+        if (delta >= (1L << (bitsPerLevel * slots.length))) {
+            // Beyond the wheel's range: park at the farthest top-level slot and re-place on cascade
+            slotTick = currentTick + (1L << (bitsPerLevel * slots.length)) - 1;
+        }
+        int index = (int) ((slotTick >>> (bitsPerLevel * level)) & mask);
+        node.linkBefore(slots[level][index]);
+    }
+
+    private static final class Node<K> {
+        final K key;
+        long deadlineTick;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        static <K> Node<K> sentinel() {
+            Node<K> head = new Node<>(null);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        void linkBefore(Node<K> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.xeno.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a {@code long} count of minor units: hundredths of the amount's currency.
+ * <p>
+ * Entities keep {@link BigDecimal} columns with two decimal places, so hundredths hold every stored
+ * amount exactly whatever the currency. Analytics, rollups and exports convert once at the boundary
+ * and then add plain longs, which is exact and allocation-free. Amounts are not converted between
+ * currencies, the same as the revenue queries over the decimal columns.
+ */
+public final class Money {
+
+    public static final int DEFAULT_FRACTION_DIGITS = 2;
+    /** Minor units per major unit at {@link #DEFAULT_FRACTION_DIGITS}, usable in query strings. */
+    public static final int MINOR_UNITS_PER_MAJOR = 100;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private Money() {
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return toMinorUnits(amount, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * Convert a decimal amount to minor units, rounding half-up; {@code null} is zero.
+     */
+    public static long toMinorUnits(BigDecimal amount, int fractionDigits) {
+        if (amount == null) {
+            return 0L;
+        }
+        if (amount.scale() != fractionDigits) {
+            amount = amount.setScale(fractionDigits, RoundingMode.HALF_UP);
+        }
+        return amount.unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * Amount in major units for JSON responses; exact for any total below 2^53 minor units.
+     */
+    public static double toMajorUnits(long minorUnits) {
+        return minorUnits / (double) MINOR_UNITS_PER_MAJOR;
+    }
+
+    /**
+     * SQL expression converting a decimal column or expression to minor units, rounding half away
+     * from zero like {@link #toMinorUnits(BigDecimal)}.
+     */
+    public static String toMinorUnitsSql(String expression) {
+        return "ROUND((" + expression + ") * " + MINOR_UNITS_PER_MAJOR + ")::bigint";
+    }
+
+    public static long parseMinorUnits(CharSequence text) {
+        return parseMinorUnits(text, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * Parse a plain decimal string such as {@code "-12.345"} straight into minor units, rounding
+     * half-up, without going through {@link BigDecimal}. Blank input is zero; anything other than
+     * an optional sign, digits and a single dot (e.g. exponents) falls back to {@code BigDecimal}.
+     */
+    public static long parseMinorUnits(CharSequence text, int fractionDigits) {
+        if (text == null) {
+            return 0L;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length && text.charAt(i) == ' ') i++;
+        while (length > i && text.charAt(length - 1) == ' ') length--;
+        if (i == length) {
+            return 0L;
+        }
+
+        boolean negative = false;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long whole = 0;
+        long fraction = 0;
+        int fractionSeen = 0;
+        boolean dot = false;
+        boolean roundUp = false;
+        boolean digitsSeen = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitsSeen = true;
+                int d = c - '0';
+                if (!dot) {
+                    whole = Math.addExact(Math.multiplyExact(whole, 10), d);
+                } else if (fractionSeen < fractionDigits) {
+                    fraction = fraction * 10 + d;
+                    fractionSeen++;
+                } else if (fractionSeen == fractionDigits) {
+                    roundUp = d >= 5;
+                    fractionSeen++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return toMinorUnits(new BigDecimal(text.toString().trim()), fractionDigits);
+            }
+        }
+        if (!digitsSeen) {
+            throw new NumberFormatException("Not a decimal amount: " + text);
+        }
+        for (int pad = Math.min(fractionSeen, fractionDigits); pad < fractionDigits; pad++) {
+            fraction *= 10;
+        }
+        long result = Math.addExact(Math.multiplyExact(whole, POWERS_OF_TEN[fractionDigits]), fraction);
+        if (roundUp) {
+            result = Math.addExact(result, 1);
+        }
+        return negative ? -result : result;
+    }
+
+    public static String format(long minorUnits) {
+        return format(minorUnits, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * Plain decimal rendering such as {@code "1234.50"}, equivalent to {@code String.format("%.2f")}
+     * for two fraction digits but without the formatter.
+     */
+    public static String format(long minorUnits, int fractionDigits) {
+        StringBuilder sb = new StringBuilder(24);
+        appendTo(sb, minorUnits, fractionDigits);
+        return sb.toString();
+    }
+
+    public static void appendTo(StringBuilder sb, long minorUnits, int fractionDigits) {
+        if (minorUnits < 0) {
+            sb.append('-');
+        }
+        long abs = Math.abs(minorUnits);
+        long scale = POWERS_OF_TEN[fractionDigits];
+        sb.append(abs / scale);
+        if (fractionDigits > 0) {
+            sb.append('.');
+            String fraction = Long.toString(abs % scale);
+            for (int pad = fraction.length(); pad < fractionDigits; pad++) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+-- Schema as Hibernate's ddl-auto=update left it before migrations were introduced. Databases created
+-- that way are recorded as version 1 (spring.flyway.baseline-on-migrate) and skip this script; new
+-- databases start here.
+--
+-- Foreign keys keep the names Hibernate generated, so both kinds of database end up identical.
+
+CREATE TABLE tenants (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL UNIQUE,
+    store_name VARCHAR(255) NOT NULL,
+    shopify_domain VARCHAR(255) NOT NULL UNIQUE,
+    shopify_access_token VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    api_key VARCHAR(255),
+    webhook_secret VARCHAR(255),
+    active BOOLEAN,
+    event_retention_months INTEGER,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE customers (
+    id BIGSERIAL NOT NULL,
+    tenant_id BIGINT NOT NULL,
+    shopify_customer_id VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    phone VARCHAR(255),
+    orders_count INTEGER,
+    total_spent NUMERIC(10,2),
+    state VARCHAR(255),
+    tags VARCHAR(255),
+    last_order_date TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE products (
+    id BIGSERIAL NOT NULL,
+    tenant_id BIGINT NOT NULL,
+    shopify_product_id VARCHAR(255) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    description VARCHAR(2000),
+    vendor VARCHAR(255),
+    product_type VARCHAR(255),
+    price NUMERIC(10,2),
+    status VARCHAR(255),
+    inventory_quantity INTEGER,
+    image_url VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE orders (
+    id BIGSERIAL NOT NULL,
+    tenant_id BIGINT NOT NULL,
+    customer_id BIGINT,
+    shopify_order_id VARCHAR(255) NOT NULL,
+    order_number VARCHAR(255),
+    order_date TIMESTAMP(6) NOT NULL,
+    total_price NUMERIC(10,2) NOT NULL,
+    subtotal_price NUMERIC(10,2),
+    total_tax NUMERIC(10,2),
+    total_shipping NUMERIC(10,2),
+    currency VARCHAR(255),
+    financial_status VARCHAR(255),
+    fulfillment_status VARCHAR(255),
+    item_count INTEGER,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE order_items (
+    id BIGSERIAL NOT NULL,
+    order_id BIGINT NOT NULL,
+    tenant_id BIGINT,
+    shopify_product_id VARCHAR(255) NOT NULL,
+    product_title VARCHAR(255),
+    variant_title VARCHAR(255),
+    quantity INTEGER NOT NULL,
+    price NUMERIC(10,2) NOT NULL,
+    total_discount NUMERIC(10,2),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE product_daily_sales (
+    id BIGSERIAL NOT NULL,
+    tenant_id BIGINT NOT NULL,
+    sales_date DATE NOT NULL,
+    shopify_product_id VARCHAR(255) NOT NULL,
+    units_sold BIGINT NOT NULL,
+    revenue_cents BIGINT NOT NULL,
+    order_lines BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_product_sales_tenant_date_product UNIQUE (tenant_id, sales_date, shopify_product_id)
+);
+
+CREATE TABLE cart_events (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    cart_token VARCHAR(255),
+    customer_id VARCHAR(255),
+    customer_email VARCHAR(255),
+    cart_value NUMERIC(38,2),
+    item_count INTEGER,
+    event_type VARCHAR(255),
+    is_abandoned BOOLEAN,
+    created_at TIMESTAMP(6),
+    abandoned_at TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE checkout_events (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    checkout_token VARCHAR(255),
+    cart_token VARCHAR(255),
+    customer_id VARCHAR(255),
+    customer_email VARCHAR(255),
+    checkout_value NUMERIC(38,2),
+    item_count INTEGER,
+    event_type VARCHAR(255),
+    completed BOOLEAN,
+    abandoned BOOLEAN,
+    created_at TIMESTAMP(6),
+    completed_at TIMESTAMP(6),
+    abandoned_at TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE checkout_sessions (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    checkout_token VARCHAR(255) NOT NULL,
+    cart_token VARCHAR(255),
+    customer_id VARCHAR(255),
+    customer_email VARCHAR(255),
+    checkout_value NUMERIC(38,2),
+    item_count INTEGER,
+    state VARCHAR(16) NOT NULL,
+    shopify_order_id VARCHAR(255),
+    started_at TIMESTAMP(6) NOT NULL,
+    last_activity_at TIMESTAMP(6) NOT NULL,
+    completed_at TIMESTAMP(6),
+    abandoned_at TIMESTAMP(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_checkout_session_tenant_token UNIQUE (tenant_id, checkout_token)
+);
+
+CREATE TABLE daily_funnel (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    funnel_date DATE NOT NULL,
+    carts_created BIGINT NOT NULL,
+    checkouts_started BIGINT NOT NULL,
+    checkouts_completed BIGINT NOT NULL,
+    orders BIGINT NOT NULL,
+    cart_to_checkout_seconds BYTEA,
+    checkout_to_completion_seconds BYTEA,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_funnel_tenant_date UNIQUE (tenant_id, funnel_date)
+);
+
+CREATE TABLE daily_order_sketches (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    sketch_date DATE NOT NULL,
+    order_count BIGINT NOT NULL,
+    buyers_hll BYTEA,
+    order_value_quantiles BYTEA,
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_sketch_tenant_date UNIQUE (tenant_id, sketch_date)
+);
+
+CREATE INDEX idx_tenant_customer ON customers (tenant_id, shopify_customer_id);
+CREATE INDEX idx_email ON customers (email);
+CREATE INDEX idx_tenant_product ON products (tenant_id, shopify_product_id);
+CREATE INDEX idx_tenant_order ON orders (tenant_id, shopify_order_id);
+CREATE INDEX idx_order_date ON orders (order_date);
+CREATE INDEX idx_customer_id ON orders (customer_id);
+CREATE INDEX idx_order_item_order_product ON order_items (order_id, shopify_product_id);
+CREATE INDEX idx_cart_event_tenant_created ON cart_events (tenant_id, created_at);
+CREATE INDEX idx_cart_event_tenant_token ON cart_events (tenant_id, cart_token);
+CREATE INDEX idx_checkout_event_tenant_created ON checkout_events (tenant_id, created_at);
+CREATE INDEX idx_checkout_session_tenant_started ON checkout_sessions (tenant_id, started_at);
+CREATE INDEX idx_checkout_session_tenant_state ON checkout_sessions (tenant_id, state, started_at);
+
+ALTER TABLE customers ADD CONSTRAINT fkpd6k5i4wnbhgk8fwug35v2x5t FOREIGN KEY (tenant_id) REFERENCES tenants (id);
+ALTER TABLE products ADD CONSTRAINT fkn8rwil6da3e23e0g04r5cw0mf FOREIGN KEY (tenant_id) REFERENCES tenants (id);
+ALTER TABLE orders ADD CONSTRAINT fk45pihpalbn6gyf7x3l9hbybw0 FOREIGN KEY (tenant_id) REFERENCES tenants (id);
+ALTER TABLE orders ADD CONSTRAINT fkpxtb8awmi0dk6smoh2vp1litg FOREIGN KEY (customer_id) REFERENCES customers (id);
+ALTER TABLE order_items ADD CONSTRAINT fkbioxgbv59vetrxe0ejfubep1w FOREIGN KEY (order_id) REFERENCES orders (id);
@@ -0,0 +1,10 @@
+-- order_items.tenant_id (the order's tenant) may be missing or still hold nulls on databases created
+-- before migrations. A no-op where partition_order_tables.sql has already run.
+
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS tenant_id BIGINT;
+
+UPDATE order_items oi SET tenant_id = o.tenant_id
+FROM orders o
+WHERE o.id = oi.order_id AND oi.tenant_id IS NULL;
+
+ALTER TABLE order_items ALTER COLUMN tenant_id SET NOT NULL;
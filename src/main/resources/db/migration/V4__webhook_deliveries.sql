@@ -0,0 +1,13 @@
+-- Shopify delivery ids (X-Shopify-Webhook-Id) of the cart and checkout webhooks already written, so a
+-- redelivered webhook is not written twice. Kept for webhooks.deliveries.retention-hours.
+
+CREATE TABLE webhook_deliveries (
+    id BIGSERIAL NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    webhook_id VARCHAR(255) NOT NULL,
+    received_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_webhook_delivery_tenant_id UNIQUE (tenant_id, webhook_id)
+);
+
+CREATE INDEX idx_webhook_delivery_received ON webhook_deliveries (received_at);
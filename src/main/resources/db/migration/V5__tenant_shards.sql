@@ -0,0 +1,11 @@
+-- Shard placement of each tenant that has been moved off the default shard (see ShardDirectory).
+-- Only the default shard's copy is read. Earlier versions created the table at startup, so it may
+-- already exist.
+
+CREATE TABLE IF NOT EXISTS tenant_shards (
+    tenant_id VARCHAR(255) NOT NULL,
+    shard_id VARCHAR(64) NOT NULL,
+    state VARCHAR(16) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+    PRIMARY KEY (tenant_id)
+);
@@ -0,0 +1,48 @@
+-- Converts cart_events and checkout_events into tables range-partitioned by month on created_at.
+--
+-- Run once against an existing database while webhooks are paused, then set
+-- events.partitioning.enabled=true. From then on EventPartitionService creates each month's partition
+-- ahead of time and applies the retention policy. Existing rows are copied into monthly partitions;
+-- the default partition only catches rows outside every monthly range.
+--
+-- The primary key becomes (id, created_at) because a partitioned table's unique constraints must
+-- include the partition key. ids keep coming from the same sequence, so they stay unique.
+
+BEGIN;
+
+DO $$
+DECLARE
+    t text;
+    seq text;
+    m date;
+    last_month date := (date_trunc('month', now()) + interval '3 months')::date;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['cart_events', 'checkout_events'] LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', t, t || '_heap');
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) '
+                       'PARTITION BY RANGE (created_at)', t, t || '_heap');
+
+        EXECUTE format('SELECT date_trunc(''month'', COALESCE(MIN(created_at), now()))::date FROM %I', t || '_heap')
+            INTO m;
+        WHILE m <= last_month LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           t || '_p' || to_char(m, 'YYYY_MM'), t, m, (m + interval '1 month')::date);
+            m := (m + interval '1 month')::date;
+        END LOOP;
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', t || '_default', t);
+
+        EXECUTE format('INSERT INTO %I SELECT * FROM %I', t, t || '_heap');
+        -- The copied id default still uses the old table's sequence; hand the sequence over
+        seq := pg_get_serial_sequence(t || '_heap', 'id');
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', seq, t);
+        -- Dropping the old table frees its constraint and index names for the new one
+        EXECUTE format('DROP TABLE %I', t || '_heap');
+        EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, created_at)', t);
+    END LOOP;
+END $$;
+
+CREATE INDEX idx_cart_event_tenant_created ON cart_events (tenant_id, created_at);
+CREATE INDEX idx_cart_event_tenant_token ON cart_events (tenant_id, cart_token);
+CREATE INDEX idx_checkout_event_tenant_created ON checkout_events (tenant_id, created_at);
+
+COMMIT;
@@ -0,0 +1,74 @@
+-- Converts orders and order_items into tables hash-partitioned by tenant_id (16 partitions each).
+--
+-- Run once against an existing database while syncs and webhooks are paused. Queries that filter on
+-- tenant_id (every dashboard, sync and webhook lookup) then read one partition instead of every
+-- tenant's orders, and the per-tenant rebuilds join matching order/order_item partitions.
+--
+-- order_items gets its own tenant_id column (the order's tenant), backfilled here first. The primary
+-- keys become (id, tenant_id) because a partitioned table's unique constraints must include the
+-- partition key; ids keep coming from the same sequences, so they stay unique. The order_items ->
+-- orders foreign key becomes (order_id, tenant_id) for the same reason. Foreign keys and indexes keep
+-- the names the migrations in db/migration gave them; on a database where V3 has not run yet, V3
+-- finds its indexes already built and skips them.
+
+BEGIN;
+
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS tenant_id BIGINT;
+UPDATE order_items oi SET tenant_id = o.tenant_id
+FROM orders o
+WHERE o.id = oi.order_id AND oi.tenant_id IS NULL;
+ALTER TABLE order_items ALTER COLUMN tenant_id SET NOT NULL;
+
+DO $$
+DECLARE
+    partitions constant int := 16;
+    t text;
+    seq text;
+    fk_tenant text;
+    fk_customer text;
+    fk_order text;
+BEGIN
+    SELECT conname INTO fk_tenant FROM pg_constraint
+    WHERE conrelid = 'orders'::regclass AND confrelid = 'tenants'::regclass AND contype = 'f';
+    SELECT conname INTO fk_customer FROM pg_constraint
+    WHERE conrelid = 'orders'::regclass AND confrelid = 'customers'::regclass AND contype = 'f';
+    SELECT conname INTO fk_order FROM pg_constraint
+    WHERE conrelid = 'order_items'::regclass AND confrelid = 'orders'::regclass AND contype = 'f';
+
+    FOREACH t IN ARRAY ARRAY['orders', 'order_items'] LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', t, t || '_heap');
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) '
+                       'PARTITION BY HASH (tenant_id)', t, t || '_heap');
+        FOR i IN 0 .. partitions - 1 LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                           t || '_h' || lpad(i::text, 2, '0'), t, partitions, i);
+        END LOOP;
+
+        EXECUTE format('INSERT INTO %I SELECT * FROM %I', t, t || '_heap');
+        -- The copied id default still uses the old table's sequence; hand the sequence over
+        seq := pg_get_serial_sequence(t || '_heap', 'id');
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', seq, t);
+    END LOOP;
+
+    -- Dropping the old tables (items first, they reference orders) frees constraint and index names
+    DROP TABLE order_items_heap;
+    DROP TABLE orders_heap;
+
+    ALTER TABLE orders ADD PRIMARY KEY (id, tenant_id);
+    ALTER TABLE order_items ADD PRIMARY KEY (id, tenant_id);
+
+    EXECUTE format('ALTER TABLE orders ADD CONSTRAINT %I FOREIGN KEY (tenant_id) REFERENCES tenants (id)',
+                   COALESCE(fk_tenant, 'fk_orders_tenant'));
+    EXECUTE format('ALTER TABLE orders ADD CONSTRAINT %I FOREIGN KEY (customer_id) REFERENCES customers (id)',
+                   COALESCE(fk_customer, 'fk_orders_customer'));
+    EXECUTE format('ALTER TABLE order_items ADD CONSTRAINT %I FOREIGN KEY (order_id, tenant_id) '
+                   'REFERENCES orders (id, tenant_id)', COALESCE(fk_order, 'fk_order_items_order'));
+END $$;
+
+CREATE UNIQUE INDEX uk_order_tenant_shopify_id ON orders (tenant_id, shopify_order_id);
+CREATE INDEX idx_order_tenant_date ON orders (tenant_id, order_date);
+CREATE INDEX idx_order_date_brin ON orders USING brin (order_date);
+CREATE INDEX idx_customer_id ON orders (customer_id);
+CREATE INDEX idx_order_item_order_product ON order_items (order_id, shopify_product_id);
+
+COMMIT;
@@ -0,0 +1,66 @@
+package com.xeno.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CohortMatrixTest {
+
+    private static final int JAN = CohortMatrix.toEpochMonth(2024, 1);
+
+    @Test
+    void countsCohortSizesAndReturningCustomersOnce() {
+        CohortMatrix matrix = new CohortMatrix();
+        matrix.record(1, JAN);
+        matrix.record(1, JAN);
+        matrix.record(1, JAN + 2);
+        matrix.record(1, JAN + 2);
+        matrix.record(2, JAN);
+        matrix.record(3, JAN + 1);
+
+        assertThat(matrix.getBaseMonth()).isEqualTo(JAN);
+        assertThat(matrix.getCohortCount()).isEqualTo(2);
+        assertThat(matrix.row(JAN)).startsWith(2, 0, 1);
+        assertThat(matrix.row(JAN + 1)).startsWith(1);
+        assertThat(matrix.row(JAN + 5)).isEmpty();
+    }
+
+    @Test
+    void anEarlierOrderMovesTheCustomerToAnOlderCohort() {
+        CohortMatrix matrix = new CohortMatrix();
+        matrix.record(1, JAN + 3);
+        matrix.record(1, JAN + 4);
+        matrix.record(1, JAN);
+
+        assertThat(matrix.getBaseMonth()).isEqualTo(JAN);
+        assertThat(matrix.row(JAN)).startsWith(1, 0, 0, 1, 1);
+        assertThat(matrix.row(JAN + 3)).containsOnly(0);
+    }
+
+    @Test
+    void replacingACustomerRetractsTheirOldCells() {
+        CohortMatrix matrix = new CohortMatrix();
+        matrix.record(1, JAN);
+        matrix.record(1, JAN + 2);
+        matrix.record(2, JAN);
+
+        // Customer 1's January order was reassigned; only March remains
+        matrix.replace(1, new int[]{JAN + 2});
+        assertThat(matrix.row(JAN)).startsWith(1, 0, 0);
+        assertThat(matrix.row(JAN + 2)).startsWith(1);
+
+        matrix.replace(2, new int[0]);
+        assertThat(matrix.row(JAN)).containsOnly(0);
+        assertThat(matrix.row(JAN + 2)).startsWith(1);
+    }
+
+    @Test
+    void convertsEpochMonths() {
+        assertThat(CohortMatrix.toEpochMonth(LocalDateTime.of(2024, 1, 31, 23, 59))).isEqualTo(JAN);
+        assertThat(CohortMatrix.fromEpochMonth(JAN + 11)).isEqualTo(YearMonth.of(2024, 12));
+        assertThat(CohortMatrix.fromEpochMonth(JAN + 12)).isEqualTo(YearMonth.of(2025, 1));
+    }
+}
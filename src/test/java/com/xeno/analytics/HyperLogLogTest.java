@@ -0,0 +1,51 @@
+package com.xeno.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinAFewStandardErrors() {
+        for (int distinct : new int[]{10, 1_000, 100_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 1; id <= distinct; id++) {
+                sketch.add(id);
+                sketch.add(id);
+            }
+            assertThat((double) sketch.estimate()).as("%d ids", distinct)
+                    .isCloseTo(distinct, within(distinct * 0.05 + 1));
+        }
+    }
+
+    @Test
+    void mergeEqualsTheUnion() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        HyperLogLog both = new HyperLogLog();
+        for (long id = 0; id < 20_000; id++) {
+            (id % 2 == 0 ? monday : tuesday).add(id);
+            if (id % 3 == 0) {
+                tuesday.add(id);
+            }
+            both.add(id);
+        }
+        monday.merge(tuesday);
+        assertThat(monday.estimate()).isEqualTo(both.estimate());
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 0; id < 5_000; id++) {
+            sketch.add(id * 31);
+        }
+        assertThat(HyperLogLog.fromBytes(sketch.toBytes()).estimate()).isEqualTo(sketch.estimate());
+        assertThat(HyperLogLog.fromBytes(null).estimate()).isZero();
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{9, 12}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
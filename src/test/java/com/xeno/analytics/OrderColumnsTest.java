@@ -0,0 +1,91 @@
+package com.xeno.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderColumnsTest {
+
+    private record Row(int day, long cents, String status) {}
+
+    private static final String[] STATUSES = {"paid", "pending", "refunded", null};
+
+    @Test
+    void aggregatesMatchAScanOfTheRows() {
+        Random random = new Random(11);
+        OrderColumns columns = new OrderColumns();
+        Map<Long, Row> rows = new HashMap<>();
+        // Days land on both sides of the first one, and re-synced orders move between days and statuses
+        for (int i = 0; i < 5_000; i++) {
+            long orderId = random.nextInt(3_000);
+            Row row = new Row(19_000 + random.nextInt(400) - 200, random.nextInt(100_000),
+                    STATUSES[random.nextInt(STATUSES.length)]);
+            rows.put(orderId, row);
+            columns.writeLock().lock();
+            try {
+                columns.upsert(orderId, row.day(), row.cents(), row.status());
+            } finally {
+                columns.writeLock().unlock();
+            }
+        }
+        assertThat(columns.size()).isEqualTo(rows.size());
+
+        for (int check = 0; check < 50; check++) {
+            int from = 18_700 + random.nextInt(600);
+            int to = from + random.nextInt(200);
+
+            long count = 0;
+            long sum = 0;
+            long paidCount = 0;
+            long[] dailyCounts = new long[to - from + 1];
+            for (Row row : rows.values()) {
+                if (row.day() < from || row.day() > to) {
+                    continue;
+                }
+                count++;
+                sum += row.cents();
+                dailyCounts[row.day() - from]++;
+                if ("paid".equals(row.status())) {
+                    paidCount++;
+                }
+            }
+
+            assertThat(columns.sumRange(from, to, OrderColumns.ANY_STATUS))
+                    .isEqualTo(new OrderColumns.RangeAggregate(count, sum));
+            assertThat(columns.sumRange(from, to, columns.statusCode("paid")).count()).isEqualTo(paidCount);
+            assertThat(columns.groupByDay(from, to).counts()).containsExactly(dailyCounts);
+        }
+    }
+
+    @Test
+    void unknownStatusMatchesNothing() {
+        OrderColumns columns = new OrderColumns();
+        columns.writeLock().lock();
+        try {
+            columns.upsert(1, 100, 500, "paid");
+        } finally {
+            columns.writeLock().unlock();
+        }
+        assertThat(columns.sumRange(0, 200, columns.statusCode("voided")).count()).isZero();
+        assertThat(columns.sumRange(0, 200, columns.statusCode("paid")).sumCents()).isEqualTo(500);
+    }
+
+    @Test
+    void invertedRangeIsEmpty() {
+        OrderColumns columns = new OrderColumns();
+        columns.writeLock().lock();
+        try {
+            columns.upsert(1, 100, 500, "paid");
+        } finally {
+            columns.writeLock().unlock();
+        }
+        OrderColumns.DailyAggregate daily = columns.groupByDay(150, 50);
+        assertThat(daily.counts()).isEmpty();
+        assertThat(daily.sumCents()).isEmpty();
+        assertThat(columns.sumRange(150, 50, OrderColumns.ANY_STATUS).count()).isZero();
+    }
+}
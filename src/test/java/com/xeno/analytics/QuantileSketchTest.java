@@ -0,0 +1,65 @@
+package com.xeno.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantileSketchTest {
+
+    @Test
+    void quantilesStayWithinOnePercentOfTheTrueValue() {
+        Random random = new Random(3);
+        long[] values = new long[50_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 100 + (long) (Math.exp(random.nextGaussian() * 1.5 + 8));
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertThat(sketch.count()).isEqualTo(values.length);
+        for (double q : new double[]{0, 0.1, 0.5, 0.9, 0.99, 1}) {
+            long exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertThat((double) sketch.quantile(q)).as("q=%s", q).isCloseTo(exact, within(exact * 0.01 + 1));
+        }
+    }
+
+    @Test
+    void mergingDailySketchesMatchesOneSketchOverTheRange() {
+        QuantileSketch range = new QuantileSketch();
+        QuantileSketch merged = new QuantileSketch();
+        for (int day = 0; day < 7; day++) {
+            QuantileSketch daily = new QuantileSketch();
+            for (long v = 0; v < 1_000; v++) {
+                long value = v * (day + 1);
+                daily.add(value);
+                range.add(value);
+            }
+            merged.merge(daily);
+        }
+        assertThat(merged.toBytes()).isEqualTo(range.toBytes());
+        assertThat(merged.quantile(0.5)).isEqualTo(range.quantile(0.5));
+    }
+
+    @Test
+    void countsZerosAndRoundTripsThroughBytes() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertThat(sketch.quantile(0.5)).isZero();
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(1_000);
+        assertThat(sketch.quantile(0.5)).isZero();
+
+        QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+        assertThat(copy.count()).isEqualTo(3);
+        assertThat(copy.quantile(1)).isEqualTo(sketch.quantile(1));
+        assertThat(QuantileSketch.fromBytes(new byte[0]).count()).isZero();
+        assertThatThrownBy(() -> QuantileSketch.fromBytes(new byte[]{42}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,154 @@
+package com.xeno.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import static com.xeno.archive.ArchiveColumn.booleanColumn;
+import static com.xeno.archive.ArchiveColumn.longColumn;
+import static com.xeno.archive.ArchiveColumn.stringColumn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarArchiveTest {
+
+    private static final List<ArchiveColumn> COLUMNS = List.of(
+            longColumn("id"), stringColumn("status"), booleanColumn("abandoned"), longColumn("value"));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryTypeAndNullsAcrossRowGroups() throws IOException {
+        Path file = dir.resolve("rows.xca");
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < 1_000; i++) {
+            rows.add(new Object[]{
+                    i * 7 - 3_000,
+                    i % 5 == 0 ? null : "status-" + (i % 3),
+                    i % 7 == 0 ? null : i % 2 == 0,
+                    i % 11 == 0 ? null : (i % 2 == 0 ? Long.MAX_VALUE - i : Long.MIN_VALUE + i)});
+        }
+        write(file, rows, 64);
+
+        List<Object[]> read = new ArrayList<>();
+        try (ColumnarArchiveReader reader = ColumnarArchiveReader.open(file)) {
+            assertThat(reader.columns()).isEqualTo(COLUMNS);
+            assertThat(reader.rowCount()).isEqualTo(rows.size());
+            reader.scan(List.of("id", "status", "abandoned", "value"), batch -> {
+                for (int r = 0; r < batch.size(); r++) {
+                    read.add(new Object[]{
+                            batch.isNull("id", r) ? null : batch.longs("id")[r],
+                            batch.isNull("status", r) ? null : batch.strings("status")[r],
+                            batch.isNull("abandoned", r) ? null : batch.booleans("abandoned")[r],
+                            batch.isNull("value", r) ? null : batch.longs("value")[r]});
+                }
+            });
+        }
+        assertThat(read).hasSameSizeAs(rows);
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(read.get(i)).as("row %d", i).containsExactly(rows.get(i));
+        }
+    }
+
+    @Test
+    void emptyArchiveHasNoRows() throws IOException {
+        Path file = dir.resolve("empty.xca");
+        write(file, List.of(), 16);
+        try (ColumnarArchiveReader reader = ColumnarArchiveReader.open(file)) {
+            assertThat(reader.rowCount()).isZero();
+            List<Integer> batches = new ArrayList<>();
+            reader.scan(List.of("id"), batch -> batches.add(batch.size()));
+            assertThat(batches).isEmpty();
+        }
+    }
+
+    @Test
+    void scanReadsOnlyTheRequestedColumns() throws IOException {
+        Path file = dir.resolve("pruned.xca");
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            rows.add(new Object[]{i, "s", true, i * 100});
+        }
+        write(file, rows, 1_000);
+        // The first chunk after the magic is the "id" column of the only row group; break its zlib header
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(ColumnarArchiveWriter.MAGIC.length);
+            raw.write(new byte[]{(byte) 0xFF, (byte) 0xFF});
+        }
+
+        try (ColumnarArchiveReader reader = ColumnarArchiveReader.open(file)) {
+            long[] sum = new long[1];
+            reader.scan(Set.of("value"), batch -> {
+                assertThatThrownBy(() -> batch.longs("id")).isInstanceOf(IllegalArgumentException.class);
+                for (long value : batch.longs("value")) {
+                    sum[0] += value;
+                }
+            });
+            assertThat(sum[0]).isEqualTo(100L * 99 / 2 * 100);
+
+            assertThatThrownBy(() -> reader.scan(Set.of("id"), batch -> { }))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("Corrupt archive chunk");
+            assertThatThrownBy(() -> reader.scan(Set.of("missing"), batch -> { }))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rejectsFilesWithoutAValidFooter() throws IOException {
+        Path file = dir.resolve("valid.xca");
+        write(file, List.<Object[]>of(new Object[]{1L, "a", false, 2L}), 16);
+        byte[] valid = Files.readAllBytes(file);
+        int magic = ColumnarArchiveWriter.MAGIC.length;
+
+        assertNotAnArchive(new byte[]{'X', 'C'});
+        assertNotAnArchive(Arrays.copyOf(valid, valid.length - 1));
+
+        byte[] badMagic = valid.clone();
+        badMagic[badMagic.length - 1] = 'X';
+        assertNotAnArchive(badMagic);
+
+        byte[] badLength = valid.clone();
+        int lengthAt = badLength.length - magic - Integer.BYTES;
+        badLength[lengthAt] = 0x7F;
+        assertNotAnArchive(badLength);
+
+        // The footer starts with the format version
+        byte[] badVersion = valid.clone();
+        int footerLength = ByteBuffer.wrap(valid, lengthAt, Integer.BYTES).getInt();
+        badVersion[lengthAt - footerLength + 3] = 9;
+        Path versioned = dir.resolve("version.xca");
+        Files.write(versioned, badVersion);
+        assertThatThrownBy(() -> ColumnarArchiveReader.open(versioned))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unsupported archive version 9");
+    }
+
+    private void assertNotAnArchive(byte[] bytes) throws IOException {
+        Path file = Files.write(dir.resolve("broken.xca"), bytes);
+        assertThatThrownBy(() -> ColumnarArchiveReader.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an archive file");
+    }
+
+    private static void write(Path file, List<Object[]> rows, int rowGroupSize) throws IOException {
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(Files.newOutputStream(file), COLUMNS,
+                rowGroupSize, Deflater.DEFAULT_COMPRESSION)) {
+            for (Object[] row : rows) {
+                writer.addRow(row);
+            }
+            assertThat(writer.rowCount()).isEqualTo(rows.size());
+        }
+    }
+}
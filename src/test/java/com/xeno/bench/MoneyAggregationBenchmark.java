@@ -0,0 +1,135 @@
+package com.xeno.bench;
+
+import com.xeno.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation paths before and after money moved to long minor units: summing order totals,
+ * inventory value (price x quantity), parsing webhook prices and formatting CSV amounts.
+ * <p>
+ * Run with {@code mvn -q test-compile} and then
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main MoneyAggregation}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyAggregationBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    private BigDecimal[] decimals;
+    private double[] doubles;
+    private long[] minorUnits;
+    private int[] quantities;
+    private String[] texts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimals = new BigDecimal[rows];
+        doubles = new double[rows];
+        minorUnits = new long[rows];
+        quantities = new int[rows];
+        texts = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            long cents = 100 + random.nextInt(500_000);
+            decimals[i] = BigDecimal.valueOf(cents, 2);
+            doubles[i] = cents / 100.0;
+            minorUnits[i] = cents;
+            quantities[i] = random.nextInt(50);
+            texts[i] = decimals[i].toPlainString();
+        }
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : decimals) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double sumDouble() {
+        double total = 0;
+        for (double amount : doubles) {
+            total += amount;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long sumMinorUnits() {
+        long total = 0;
+        for (long amount : minorUnits) {
+            total += amount;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double inventoryValueDouble() {
+        double total = 0;
+        for (int i = 0; i < rows; i++) {
+            total += decimals[i].doubleValue() * quantities[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long inventoryValueMinorUnits() {
+        long total = 0;
+        for (int i = 0; i < rows; i++) {
+            total += minorUnits[i] * quantities[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void parseBigDecimal(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(Money.toMinorUnits(new BigDecimal(text)));
+        }
+    }
+
+    @Benchmark
+    public void parseMinorUnits(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(Money.parseMinorUnits(text));
+        }
+    }
+
+    @Benchmark
+    public void formatStringFormat(Blackhole blackhole) {
+        for (double amount : doubles) {
+            blackhole.consume(String.format("%.2f", amount));
+        }
+    }
+
+    @Benchmark
+    public void formatMinorUnits(Blackhole blackhole) {
+        for (long amount : minorUnits) {
+            blackhole.consume(Money.format(amount));
+        }
+    }
+}
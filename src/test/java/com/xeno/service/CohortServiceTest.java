@@ -0,0 +1,91 @@
+package com.xeno.service;
+
+import com.xeno.dto.CohortRetentionDTO;
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.model.Tenant;
+import com.xeno.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CohortServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final Tenant tenant = Tenant.builder().id(1L).tenantId("tenant-1").build();
+
+    private CohortService service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        service = new CohortService(orderRepository, transactionManager);
+    }
+
+    @Test
+    void reassignedOrderMovesBetweenCustomers() {
+        // Customer 1 and 2 each ordered this month
+        when(orderRepository.findCustomerOrderMonths("tenant-1")).thenReturn(List.of(
+                month(1L, NOW), month(2L, NOW)));
+        assertThat(cohortSize()).isEqualTo(2);
+
+        // Customer 2's only order now belongs to customer 1
+        when(orderRepository.findOrderMonthsByCustomer("tenant-1", 2L)).thenReturn(List.of());
+        when(orderRepository.findOrderMonthsByCustomer("tenant-1", 1L)).thenReturn(List.<Object[]>of(
+                new Object[]{NOW.getYear(), NOW.getMonthValue()}));
+        service.onOrderIngested(update(2L, NOW, 1L, NOW));
+
+        assertThat(cohortSize()).isEqualTo(1);
+    }
+
+    @Test
+    void orderMovedToAnotherMonthLeavesItsOldMonth() {
+        LocalDateTime lastMonth = NOW.minusMonths(1);
+        when(orderRepository.findCustomerOrderMonths("tenant-1")).thenReturn(List.of(
+                month(1L, lastMonth), month(1L, NOW)));
+        List<CohortRetentionDTO> before = service.getCohortRetention(tenant, 12);
+        assertThat(before.get(0).getActiveCustomers()).containsExactly(1, 1);
+
+        when(orderRepository.findOrderMonthsByCustomer("tenant-1", 1L)).thenReturn(List.<Object[]>of(
+                new Object[]{lastMonth.getYear(), lastMonth.getMonthValue()}));
+        service.onOrderIngested(update(1L, NOW, 1L, lastMonth));
+
+        List<CohortRetentionDTO> after = service.getCohortRetention(tenant, 12);
+        assertThat(after.get(0).getCohortMonth()).isEqualTo(YearMonth.from(lastMonth));
+        assertThat(after.get(0).getActiveCustomers()).containsExactly(1, 0);
+    }
+
+    private int cohortSize() {
+        return service.getCohortRetention(tenant, 1).stream().mapToInt(CohortRetentionDTO::getCohortSize).sum();
+    }
+
+    private static Object[] month(Long customerId, LocalDateTime dateTime) {
+        return new Object[]{customerId, dateTime.getYear(), dateTime.getMonthValue()};
+    }
+
+    private static OrderIngestedEvent update(Long previousCustomerId, LocalDateTime previousOrderDate,
+                                             Long customerId, LocalDateTime orderDate) {
+        return OrderIngestedEvent.builder()
+                .tenantId("tenant-1")
+                .orderId(10L)
+                .customerId(customerId)
+                .orderDate(orderDate)
+                .previousCustomerId(previousCustomerId)
+                .previousOrderDate(previousOrderDate)
+                .newOrder(false)
+                .lineItems(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.xeno.service;
+
+import com.xeno.archive.ArchiveColumn;
+import com.xeno.archive.ColumnarArchiveWriter;
+import com.xeno.dto.ArchiveMonthDTO;
+import com.xeno.dto.ArchiveSummaryDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+
+import static com.xeno.archive.ArchiveColumn.longColumn;
+import static com.xeno.archive.ArchiveColumn.stringColumn;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventArchiveServiceTest {
+
+    private static final String TENANT = "tenant-1";
+
+    @TempDir
+    Path dir;
+
+    // Summaries only read files, so no database is needed
+    private EventArchiveService service() {
+        return new EventArchiveService(null, null, null, null, false, dir.toString(), 3);
+    }
+
+    @Test
+    void summarizesMonthsFromTheValueColumnAlone() throws IOException {
+        write(YearMonth.of(2024, 1), new Object[][]{{1L, "a", 1_999L}, {2L, "b", null}, {3L, null, 1L}});
+        write(YearMonth.of(2024, 3), new Object[][]{{4L, "c", 10_000L}});
+
+        ArchiveSummaryDTO summary = service().summarize(TENANT, EventArchiveService.Dataset.CARTS,
+                YearMonth.of(2023, 12), YearMonth.of(2024, 3));
+
+        assertThat(summary.getDataset()).isEqualTo("carts");
+        assertThat(summary.getRows()).isEqualTo(4L);
+        assertThat(summary.getTotalValue()).isEqualByComparingTo("120.00");
+        assertThat(summary.getMonths()).extracting(ArchiveMonthDTO::getMonth)
+                .containsExactly(YearMonth.of(2024, 1), YearMonth.of(2024, 3));
+        assertThat(summary.getMonths().get(0).getRows()).isEqualTo(3L);
+        assertThat(summary.getMonths().get(0).getTotalValue()).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void keepsTenantsApart() throws IOException {
+        write(YearMonth.of(2024, 1), new Object[][]{{1L, "a", 500L}});
+
+        ArchiveSummaryDTO summary = service().summarize("other", EventArchiveService.Dataset.CARTS,
+                YearMonth.of(2024, 1), YearMonth.of(2024, 1));
+
+        assertThat(summary.getRows()).isZero();
+        assertThat(summary.getMonths()).isEmpty();
+    }
+
+    @Test
+    void reportsUnreadableArchives() throws IOException {
+        Path file = dir.resolve("carts").resolve(TENANT).resolve("2024-01.xca");
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+
+        assertThatThrownBy(() -> service().summarize(TENANT, EventArchiveService.Dataset.CARTS,
+                YearMonth.of(2024, 1), YearMonth.of(2024, 1)))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void parsesDatasetNames() {
+        assertThat(EventArchiveService.Dataset.parse("Checkouts")).isEqualTo(EventArchiveService.Dataset.CHECKOUTS);
+        assertThatThrownBy(() -> EventArchiveService.Dataset.parse("products"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void write(YearMonth month, Object[][] rows) throws IOException {
+        Path file = dir.resolve("carts").resolve(TENANT).resolve(month + ".xca");
+        Files.createDirectories(file.getParent());
+        List<ArchiveColumn> columns = List.of(longColumn("id"), stringColumn("cart_token"), longColumn("cart_value"));
+        try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(file, columns)) {
+            for (Object[] row : rows) {
+                writer.addRow(row);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.xeno.service;
+
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.model.Customer;
+import com.xeno.model.Order;
+import com.xeno.model.OrderItem;
+import com.xeno.model.Tenant;
+import com.xeno.repository.CustomerRepository;
+import com.xeno.repository.OrderItemRepository;
+import com.xeno.repository.OrderRepository;
+import com.xeno.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShopifyServiceTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+    private final CustomerIdResolver customerIdResolver = mock(CustomerIdResolver.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransactionStatus status = new SimpleTransactionStatus();
+
+    private final Tenant tenant = Tenant.builder().id(1L).tenantId("tenant-1").build();
+
+    private ShopifyService service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        service = new ShopifyService(customerRepository, mock(ProductRepository.class), orderRepository,
+                orderItemRepository, mock(WebClient.Builder.class), eventPublisher,
+                mock(ProductInventoryService.class), customerIdResolver, transactionManager);
+    }
+
+    @Test
+    void rollsBackTheWholeOrderWhenAnItemFails() {
+        when(orderRepository.findByTenantIdAndShopifyOrderId(1L, "1001")).thenReturn(Optional.empty());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(55L);
+            return order;
+        });
+        when(customerIdResolver.resolve(1L, "7")).thenReturn(70L);
+        when(customerRepository.getReferenceById(70L)).thenReturn(new Customer());
+        when(orderItemRepository.save(any(OrderItem.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("price out of range"));
+
+        Map<String, Object> orderData = Map.of(
+                "id", 1001,
+                "customer", Map.of("id", 7),
+                "order_number", 1001,
+                "created_at", "2024-11-05T10:15:30Z",
+                "total_price", "30.00",
+                "line_items", List.of(
+                        Map.of("product_id", 1, "title", "Mug", "quantity", 1, "price", "10.00"),
+                        Map.of("product_id", 2, "title", "Pot", "quantity", 1, "price", "20.00")));
+
+        assertThatThrownBy(() -> service.saveOrder(tenant, orderData))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        // The order row and its first item were written in the transaction that is rolled back
+        verify(orderRepository).save(any(Order.class));
+        verify(transactionManager).rollback(status);
+        verify(transactionManager, never()).commit(any());
+        verify(eventPublisher, never()).publishEvent(any(OrderIngestedEvent.class));
+    }
+
+    @Test
+    void commitsOrderAndItemsTogether() {
+        when(orderRepository.findByTenantIdAndShopifyOrderId(1L, "1002")).thenReturn(Optional.empty());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderItemRepository.save(any(OrderItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.saveOrder(tenant, Map.of(
+                "id", 1002,
+                "customer", Map.of("id", 8),
+                "total_price", "5.00",
+                "line_items", List.of(Map.of("product_id", 1, "title", "Mug", "quantity", 1, "price", "5.00"))));
+
+        verify(transactionManager).commit(status);
+        verify(transactionManager, never()).rollback(any());
+        verify(eventPublisher).publishEvent(any(OrderIngestedEvent.class));
+    }
+}
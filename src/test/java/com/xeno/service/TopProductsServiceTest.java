@@ -0,0 +1,88 @@
+package com.xeno.service;
+
+import com.xeno.event.OrderIngestedEvent;
+import com.xeno.repository.ProductDailySalesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TopProductsServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 11, 5);
+
+    private final ProductDailySalesRepository repository = mock(ProductDailySalesRepository.class);
+    private final TenantDataVersionService dataVersionService = new TenantDataVersionService();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private TopProductsService service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        service = new TopProductsService(repository, dataVersionService, transactionManager);
+    }
+
+    @Test
+    void rebuildsADayWhoseSaleCouldNotBeAdded() {
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(repository).addSale(any(), any(), anyString(), anyLong(), anyLong());
+
+        service.onOrderIngested(order());
+        verify(repository, never()).rebuildDay(any(), any());
+
+        service.reconcile();
+        verify(repository).deleteDay(1L, DAY);
+        verify(repository).rebuildDay(1L, DAY);
+        assertThat(dataVersionService.version("tenant-1")).isEqualTo(1);
+
+        // Nothing left to rebuild
+        service.reconcile();
+        verify(repository, times(1)).rebuildDay(any(), any());
+    }
+
+    @Test
+    void keepsADayWhoseRebuildFails() {
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(repository).addSale(any(), any(), anyString(), anyLong(), anyLong());
+        when(repository.rebuildDay(1L, DAY))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(1);
+
+        service.onOrderIngested(order());
+        service.reconcile();
+        assertThat(dataVersionService.version("tenant-1")).isZero();
+
+        service.reconcile();
+        verify(repository, times(2)).rebuildDay(1L, DAY);
+        assertThat(dataVersionService.version("tenant-1")).isEqualTo(1);
+    }
+
+    private static OrderIngestedEvent order() {
+        return OrderIngestedEvent.builder()
+                .tenantId("tenant-1")
+                .tenantPk(1L)
+                .orderId(10L)
+                .orderDate(LocalDateTime.of(DAY, LocalTime.NOON))
+                .newOrder(true)
+                .lineItems(List.of(new OrderIngestedEvent.LineItem("777", 2, 1000)))
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.xeno.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void firesOnTheFirstTickAtOrAfterTheDeadline() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 2, 3, 0);
+        wheel.schedule("a", 25);
+        List<String> expired = new ArrayList<>();
+
+        assertThat(wheel.advanceTo(29, expired::add)).isZero();
+        assertThat(wheel.advanceTo(30, expired::add)).isEqualTo(1);
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelAndRescheduleReplaceThePendingTimer() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 2, 3, 0);
+        wheel.schedule("a", 50);
+        wheel.schedule("b", 50);
+        wheel.schedule("a", 500);
+        assertThat(wheel.cancel("b")).isTrue();
+        assertThat(wheel.cancel("b")).isFalse();
+
+        List<String> expired = new ArrayList<>();
+        wheel.advanceTo(490, expired::add);
+        assertThat(expired).isEmpty();
+        assertThat(wheel.contains("a")).isTrue();
+        wheel.advanceTo(500, expired::add);
+        assertThat(expired).containsExactly("a");
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 2, 3, 1_000);
+        wheel.schedule("late", 10);
+        List<String> expired = new ArrayList<>();
+        wheel.advanceTo(1_000, expired::add);
+        assertThat(expired).containsExactly("late");
+    }
+
+    @Test
+    void matchesAReferenceAcrossLevelsAndBeyondTheRange() {
+        // 4 slots x 3 levels covers 64 ticks, so many deadlines park in the top level and cascade
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK, 2, 3, 0);
+        Random random = new Random(7);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int key = 0; key < 2_000; key++) {
+            long deadline = random.nextInt(5_000);
+            deadlines.put(key, deadline);
+            wheel.schedule(key, deadline);
+        }
+
+        Map<Integer, Long> firedAt = new HashMap<>();
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(40);
+            long at = now;
+            List<Long> order = new ArrayList<>();
+            wheel.advanceTo(at, key -> {
+                assertThat(firedAt.put(key, at)).as("fired twice: %s", key).isNull();
+                order.add(Math.floorDiv(deadlines.get(key) + TICK - 1, TICK));
+            });
+            assertThat(order).isSorted();
+        }
+
+        assertThat(firedAt).hasSameSizeAs(deadlines);
+        for (Map.Entry<Integer, Long> entry : firedAt.entrySet()) {
+            long deadlineTick = Math.floorDiv(deadlines.get(entry.getKey()) + TICK - 1, TICK);
+            assertThat(Math.floorDiv(entry.getValue(), TICK)).isGreaterThanOrEqualTo(deadlineTick);
+        }
+    }
+
+    @Test
+    void rejectsGeometryThatOverflows() {
+        assertThatThrownBy(() -> new HierarchicalTimingWheel<String>(TICK, 16, 4, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HierarchicalTimingWheel<String>(0, 2, 3, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
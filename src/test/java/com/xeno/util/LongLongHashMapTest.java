@@ -0,0 +1,47 @@
+package com.xeno.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongLongHashMapTest {
+
+    @Test
+    void behavesLikeAHashMapThroughResizes() {
+        Random random = new Random(5);
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> reference = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Narrow key range so keys are overwritten, plus negative and extreme keys
+            long key = switch (i % 4) {
+                case 0 -> random.nextInt(50_000);
+                case 1 -> -random.nextInt(50_000);
+                case 2 -> (long) random.nextInt(1_000) << 40;
+                default -> Long.MAX_VALUE - random.nextInt(100);
+            };
+            long value = random.nextLong();
+            map.put(key, value);
+            reference.put(key, value);
+        }
+        assertThat(map.size()).isEqualTo(reference.size());
+        reference.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        assertThat(map.get(123_456_789L)).isEqualTo(LongLongHashMap.MISSING);
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongLongHashMap map = new LongLongHashMap();
+        for (long key = 0; key < 100; key++) {
+            map.put(key, key * 2);
+        }
+        map.clear();
+        assertThat(map.size()).isZero();
+        assertThat(map.get(5)).isEqualTo(LongLongHashMap.MISSING);
+        map.put(5, 1);
+        assertThat(map.get(5)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.xeno.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void convertsDecimalsToMinorUnitsRoundingHalfUp() {
+        assertThat(Money.toMinorUnits(new BigDecimal("12.34"))).isEqualTo(1234L);
+        assertThat(Money.toMinorUnits(new BigDecimal("12.345"))).isEqualTo(1235L);
+        assertThat(Money.toMinorUnits(new BigDecimal("-12.345"))).isEqualTo(-1235L);
+        assertThat(Money.toMinorUnits(new BigDecimal("7"))).isEqualTo(700L);
+        assertThat(Money.toMinorUnits(null)).isZero();
+    }
+
+    @Test
+    void parsesLikeBigDecimal() {
+        for (String text : new String[]{"0", "0.5", "19.99", "-3.456", "+42.1", " 8.005 ", "1e3", "123456789.12"}) {
+            assertThat(Money.parseMinorUnits(text))
+                    .as(text)
+                    .isEqualTo(Money.toMinorUnits(new BigDecimal(text.trim())));
+        }
+        assertThat(Money.parseMinorUnits("")).isZero();
+        assertThat(Money.parseMinorUnits(null)).isZero();
+    }
+
+    @Test
+    void rejectsTextWithoutDigits() {
+        assertThatThrownBy(() -> Money.parseMinorUnits("-.")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parseMinorUnits("abc")).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void formatsLikeStringFormat() {
+        for (long minorUnits : new long[]{0, 5, 99, 100, 123456, -5, -123456}) {
+            assertThat(Money.format(minorUnits))
+                    .isEqualTo(String.format("%.2f", minorUnits / 100.0));
+        }
+    }
+
+    @Test
+    void convertsBackToDecimalAndMajorUnits() {
+        assertThat(Money.toDecimal(123456L)).isEqualByComparingTo("1234.56");
+        assertThat(Money.toDecimal(123456L).scale()).isEqualTo(2);
+        assertThat(Money.toMajorUnits(-250L)).isEqualTo(-2.5);
+    }
+
+    @Test
+    void buildsMatchingSqlExpression() {
+        assertThat(Money.toMinorUnitsSql("total_price")).isEqualTo("ROUND((total_price) * 100)::bigint");
+    }
+}